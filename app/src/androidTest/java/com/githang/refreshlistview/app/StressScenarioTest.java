@@ -0,0 +1,119 @@
+package com.githang.refreshlistview.app;
+
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+
+/**
+ * 在仪器测试中执行{@link StressScenario}的各个场景，检查刷新及加载的触发与完成次数，
+ * 并将每个场景的统计输出到日志：adb logcat -s StressScenarioTest
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class StressScenarioTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    private static final String TAG = "StressScenarioTest";
+
+    /**
+     * 等待脚本执行完毕的最长时间
+     */
+    private static final long SCRIPT_TIMEOUT = 120000;
+
+    private boolean mRunning;
+
+    public StressScenarioTest() {
+        super(MainActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // 去掉模拟的加载耗时，缩短等待
+        assertTrue(getInstrumentation().invokeMenuActionSync(getActivity(),
+                R.id.action_latency_0, 0));
+    }
+
+    /**
+     * 每次下拉都应触发并完成一次刷新
+     */
+    public void testPull() {
+        String output = runScript(R.id.action_run_pull);
+        int triggers = count(output, StressScenario.PULL + ",refresh_trigger,");
+        assertEquals(StressScenario.PULL_REPEAT, triggers);
+        assertEquals(triggers, count(output, StressScenario.PULL + ",refresh_done,"));
+        assertEquals(triggers, count(output, StressScenario.PULL + ",pull_released,"));
+    }
+
+    /**
+     * 快速滑动不应触发刷新
+     */
+    public void testFling() {
+        String output = runScript(R.id.action_run_fling);
+        assertEquals(0, count(output, StressScenario.FLING + ",refresh_trigger,"));
+    }
+
+    /**
+     * 持续滑动到底部应多次触发自动加载，每次加载都应完成
+     */
+    public void testAutoLoad() {
+        String output = runScript(R.id.action_run_auto_load);
+        int triggers = count(output, StressScenario.AUTO_LOAD + ",load_more_trigger,");
+        assertTrue("自动加载次数不足: " + triggers, triggers >= StressScenario.AUTO_LOAD_TARGET);
+        int done = count(output, StressScenario.AUTO_LOAD + ",load_more_done,");
+        // 场景在达到次数后立即结束，最后一次加载可能尚未完成
+        assertTrue("加载未完成: " + done + "/" + triggers, done >= triggers - 1);
+    }
+
+    /**
+     * 依次执行所有场景，每个场景都应有统计
+     */
+    public void testRunAll() {
+        String output = runScript(R.id.action_run_all);
+        assertEquals(1, count(output, StressScenario.PULL + ",summary,"));
+        assertEquals(1, count(output, StressScenario.FLING + ",summary,"));
+        assertEquals(1, count(output, StressScenario.AUTO_LOAD + ",summary,"));
+    }
+
+    /**
+     * 通过菜单执行脚本并等待完成
+     *
+     * @param menuId 脚本对应的菜单项
+     * @return 各场景的记录
+     */
+    private String runScript(int menuId) {
+        final MainActivity activity = getActivity();
+        assertTrue(getInstrumentation().invokeMenuActionSync(activity, menuId, 0));
+        long start = SystemClock.uptimeMillis();
+        while (isScriptRunning(activity)) {
+            assertTrue("脚本执行超时", SystemClock.uptimeMillis() - start < SCRIPT_TIMEOUT);
+            SystemClock.sleep(100);
+        }
+        String output = activity.getRecorder().getOutput();
+        for (String line : output.split("\n")) {
+            if (line.contains(",summary,")) {
+                Log.i(TAG, line);
+            }
+        }
+        return output;
+    }
+
+    private boolean isScriptRunning(final MainActivity activity) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mRunning = activity.isScriptRunning();
+            }
+        });
+        return mRunning;
+    }
+
+    private static int count(String output, String prefix) {
+        int count = 0;
+        for (String line : output.split("\n")) {
+            if (line.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
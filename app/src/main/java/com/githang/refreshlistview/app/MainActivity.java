@@ -1,17 +1,108 @@
-
 package com.githang.refreshlistview.app;
 
 import android.support.v7.app.ActionBarActivity;
 import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.githang.refreshlistview.RefreshListView;
+import com.githang.refreshlistview.core.LoadToken;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * RefreshListView的压力测试：合成的大数据量列表，按脚本执行下拉刷新、快速滑动及自动加载，
+ * 并将帧间隔及加载时间写入应用目录下的CSV文件.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class MainActivity extends ActionBarActivity implements StressScenario.Callback {
+
+    /**
+     * 每次刷新在顶部插入的条目数
+     */
+    private static final int REFRESH_SIZE = 20;
+
+    /**
+     * 每次加载的条目数
+     */
+    private static final int PAGE_SIZE = 50;
+
+    private RefreshListView mListView;
+
+    private TextView mStatusView;
+
+    private SyntheticAdapter mAdapter;
+
+    private StressRecorder mRecorder;
+
+    private StressScenario mScenario;
 
-public class MainActivity extends ActionBarActivity {
+    private int mRowCount = 10000;
+
+    /**
+     * 模拟的加载耗时，单位：毫秒，后台线程读取
+     */
+    private volatile long mLoadLatency = 300;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        mStatusView = (TextView) findViewById(R.id.status);
+        mListView = (RefreshListView) findViewById(R.id.list);
+        mRecorder = new StressRecorder();
+        mAdapter = new SyntheticAdapter(this, mRowCount);
+        mListView.setAdapter(mAdapter);
+        mListView.setOnMetricsListener(mRecorder);
+        mListView.setOnAsyncLoadListener(new RefreshListView.OnAsyncLoadListener<Integer>() {
+            @Override
+            public Integer onLoadRefresh(LoadToken token) throws Exception {
+                mRecorder.record(StressRecorder.EVENT_REFRESH_TRIGGER, token.getTicket(), 0);
+                fakeLatency();
+                return REFRESH_SIZE;
+            }
+
+            @Override
+            public Integer onLoadMore(LoadToken token) throws Exception {
+                mRecorder.record(StressRecorder.EVENT_LOAD_MORE_TRIGGER, token.getTicket(), 0);
+                fakeLatency();
+                return PAGE_SIZE;
+            }
+
+            @Override
+            public void onRefreshResult(Integer result) {
+                mAdapter.prepend(result);
+            }
+
+            @Override
+            public void onLoadMoreResult(Integer result) {
+                mAdapter.append(result);
+            }
+
+            @Override
+            public void onLoadError(boolean refresh, Exception e) {
+                Toast.makeText(MainActivity.this, String.valueOf(e), Toast.LENGTH_SHORT).show();
+            }
+        });
+        mScenario = new StressScenario(mListView, mRecorder, this);
+        updateStatus(null);
+    }
+
+    @Override
+    protected void onDestroy() {
+        mScenario.cancel();
+        super.onDestroy();
+    }
+
+    private void fakeLatency() throws InterruptedException {
+        long latency = mLoadLatency;
+        if (latency > 0) {
+            Thread.sleep(latency);
+        }
     }
 
     @Override
@@ -21,18 +112,136 @@ public class MainActivity extends ActionBarActivity {
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(R.id.action_rows_100).setChecked(mRowCount == 100);
+        menu.findItem(R.id.action_rows_10k).setChecked(mRowCount == 10000);
+        menu.findItem(R.id.action_rows_1m).setChecked(mRowCount == 1000000);
+        menu.findItem(R.id.action_latency_0).setChecked(mLoadLatency == 0);
+        menu.findItem(R.id.action_latency_300).setChecked(mLoadLatency == 300);
+        menu.findItem(R.id.action_latency_2000).setChecked(mLoadLatency == 2000);
+        menu.findItem(R.id.action_stop).setVisible(mScenario.isRunning());
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
-        // Handle action bar item clicks here. The action bar will
-        // automatically handle clicks on the Home/Up button, so long
-        // as you specify a parent activity in AndroidManifest.xml.
-        int id = item.getItemId();
-
-        //noinspection SimplifiableIfStatement
-        if (id == R.id.action_settings) {
-            return true;
+        switch (item.getItemId()) {
+            case R.id.action_run_all:
+                runScript(StressScenario.PULL, StressScenario.FLING, StressScenario.AUTO_LOAD);
+                return true;
+            case R.id.action_run_pull:
+                runScript(StressScenario.PULL);
+                return true;
+            case R.id.action_run_fling:
+                runScript(StressScenario.FLING);
+                return true;
+            case R.id.action_run_auto_load:
+                runScript(StressScenario.AUTO_LOAD);
+                return true;
+            case R.id.action_stop:
+                mScenario.cancel();
+                return true;
+            case R.id.action_rows_100:
+                setRowCount(100);
+                return true;
+            case R.id.action_rows_10k:
+                setRowCount(10000);
+                return true;
+            case R.id.action_rows_1m:
+                setRowCount(1000000);
+                return true;
+            case R.id.action_latency_0:
+                mLoadLatency = 0;
+                updateStatus(null);
+                return true;
+            case R.id.action_latency_300:
+                mLoadLatency = 300;
+                updateStatus(null);
+                return true;
+            case R.id.action_latency_2000:
+                mLoadLatency = 2000;
+                updateStatus(null);
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
         }
+    }
+
+    private void setRowCount(int count) {
+        mScenario.cancel();
+        mRowCount = count;
+        mAdapter.reset(count);
+        mListView.setSelection(0);
+        updateStatus(null);
+    }
 
-        return super.onOptionsItemSelected(item);
+    private void runScript(String... script) {
+        mRecorder.clear();
+        mAdapter.reset(mRowCount);
+        mListView.setSelection(0);
+        mScenario.run(script);
+        supportInvalidateOptionsMenu();
+    }
+
+    /**
+     * @return 压力测试的记录，供仪器测试检查
+     */
+    StressRecorder getRecorder() {
+        return mRecorder;
+    }
+
+    /**
+     * @return 是否正在执行脚本，在主线程调用
+     */
+    boolean isScriptRunning() {
+        return mScenario.isRunning();
+    }
+
+    private String getConfig() {
+        return getString(R.string.stress_config, mRowCount, mLoadLatency);
+    }
+
+    private void updateStatus(String scenario) {
+        String config = getConfig();
+        mStatusView.setText(scenario == null ? config
+                : getString(R.string.stress_running, scenario, config));
+    }
+
+    @Override
+    public void onScenarioStarted(String scenario) {
+        updateStatus(scenario);
+    }
+
+    @Override
+    public void onScriptFinished(boolean cancelled) {
+        supportInvalidateOptionsMenu();
+        updateStatus(null);
+        File dir = getExternalFilesDir(null);
+        if (dir == null) {
+            dir = getFilesDir();
+        }
+        final File file = new File(dir, "stress-" + System.currentTimeMillis() + ".csv");
+        final String config = getConfig() + (cancelled ? " cancelled" : "");
+        // 写文件不放在主线程，避免影响后续的测试
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                String message;
+                try {
+                    mRecorder.writeTo(file, config);
+                    message = getString(R.string.stress_saved, file.getAbsolutePath());
+                } catch (IOException e) {
+                    message = String.valueOf(e);
+                }
+                final String text = message;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        mStatusView.setText(text);
+                    }
+                });
+            }
+        }, "stress-writer").start();
     }
 }
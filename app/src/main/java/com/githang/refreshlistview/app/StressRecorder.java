@@ -0,0 +1,240 @@
+package com.githang.refreshlistview.app;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import com.githang.refreshlistview.RefreshListView;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 记录压力测试过程中的帧间隔、加载触发及完成的时间，结束后写入CSV文件.
+ *
+ * 测试过程中只写入预先分配的数组，避免记录本身影响帧耗时；场景结束时才格式化为文本.
+ * 帧间隔仅在Android 4.1及以上记录.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+class StressRecorder implements RefreshListView.OnMetricsListener {
+
+    /**
+     * 每个场景最多记录的帧数，60fps时约18分钟
+     */
+    private static final int MAX_FRAMES = 1 << 16;
+
+    /**
+     * 每个场景最多记录的事件数
+     */
+    private static final int MAX_EVENTS = 4096;
+
+    static final int EVENT_REFRESH_TRIGGER = 0;
+    static final int EVENT_LOAD_MORE_TRIGGER = 1;
+    static final int EVENT_REFRESH_DONE = 2;
+    static final int EVENT_LOAD_MORE_DONE = 3;
+    static final int EVENT_PULL_RELEASED = 4;
+    static final int EVENT_DRAG_FRAMES = 5;
+
+    private static final String[] EVENT_NAMES = {
+            "refresh_trigger", "load_more_trigger", "refresh_done", "load_more_done",
+            "pull_released", "drag_frames"
+    };
+
+    private final long[] mFrameTimes = new long[MAX_FRAMES];
+
+    private int mFrameCount;
+
+    private final int[] mEventTypes = new int[MAX_EVENTS];
+
+    private final long[] mEventTimes = new long[MAX_EVENTS];
+
+    private final long[] mEventValues = new long[MAX_EVENTS];
+
+    private final long[] mEventExtras = new long[MAX_EVENTS];
+
+    private int mEventCount;
+
+    private int mLoadMoreCount;
+
+    /**
+     * 已结束的场景的记录
+     */
+    private final StringBuilder mOutput = new StringBuilder();
+
+    private String mScenario;
+
+    private long mStartTime;
+
+    private Object mFrameCallback;
+
+    /**
+     * 开始记录一个场景
+     *
+     * @param scenario 场景名称
+     */
+    void begin(String scenario) {
+        mScenario = scenario;
+        mStartTime = SystemClock.uptimeMillis();
+        mFrameCount = 0;
+        synchronized (this) {
+            mEventCount = 0;
+            mLoadMoreCount = 0;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            startFrames();
+        }
+    }
+
+    /**
+     * 结束当前场景，将记录格式化后暂存
+     */
+    void end() {
+        if (mScenario == null) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            stopFrames();
+        }
+        StringBuilder out = new StringBuilder();
+        int janky = 0;
+        for (int i = 1; i < mFrameCount; i++) {
+            long interval = mFrameTimes[i] - mFrameTimes[i - 1];
+            // 超过1.5倍的16.7ms视为丢帧
+            if (interval > 25000000L) {
+                janky++;
+            }
+            out.append(mScenario).append(",frame,")
+                    .append((mFrameTimes[i] / 1000000L) - mStartTime).append(',')
+                    .append(interval / 1000).append(",\n");
+        }
+        synchronized (this) {
+            for (int i = 0; i < mEventCount; i++) {
+                out.append(mScenario).append(',').append(EVENT_NAMES[mEventTypes[i]]).append(',')
+                        .append(mEventTimes[i] - mStartTime).append(',')
+                        .append(mEventValues[i]).append(',')
+                        .append(mEventExtras[i]).append('\n');
+            }
+        }
+        out.append(mScenario).append(",summary,")
+                .append(SystemClock.uptimeMillis() - mStartTime).append(',')
+                .append(mFrameCount).append(',').append(janky).append('\n');
+        synchronized (this) {
+            mOutput.append(out);
+        }
+        mScenario = null;
+    }
+
+    /**
+     * 记录一个事件，可在任意线程调用
+     *
+     * @param type  事件类型
+     * @param value 事件的值
+     * @param extra 事件的附加值
+     */
+    synchronized void record(int type, long value, long extra) {
+        if (type == EVENT_LOAD_MORE_TRIGGER) {
+            mLoadMoreCount++;
+        }
+        if (mEventCount >= MAX_EVENTS) {
+            return;
+        }
+        mEventTypes[mEventCount] = type;
+        mEventTimes[mEventCount] = SystemClock.uptimeMillis();
+        mEventValues[mEventCount] = value;
+        mEventExtras[mEventCount] = extra;
+        mEventCount++;
+    }
+
+    /**
+     * @return 当前场景中触发上拉加载的次数
+     */
+    synchronized int getLoadMoreCount() {
+        return mLoadMoreCount;
+    }
+
+    /**
+     * 将所有已结束的场景写入文件，在后台线程调用
+     *
+     * @param file   输出文件
+     * @param config 测试配置，写在文件开头
+     * @throws IOException 写入失败
+     */
+    void writeTo(File file, String config) throws IOException {
+        String content;
+        synchronized (this) {
+            content = mOutput.toString();
+        }
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write("# " + config + "\n");
+            writer.write("# frame: time_ms,interval_us | event: time_ms,value,extra"
+                    + " | summary: duration_ms,frames,janky_frames\n");
+            writer.write("scenario,type,time,value,extra\n");
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return 所有已结束的场景的记录，格式与写入文件的内容相同
+     */
+    synchronized String getOutput() {
+        return mOutput.toString();
+    }
+
+    /**
+     * 清除所有记录
+     */
+    synchronized void clear() {
+        mOutput.setLength(0);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void startFrames() {
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    if (mFrameCount < MAX_FRAMES) {
+                        mFrameTimes[mFrameCount++] = frameTimeNanos;
+                    }
+                    Choreographer.getInstance().postFrameCallback(this);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void stopFrames() {
+        if (mFrameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback(
+                    (Choreographer.FrameCallback) mFrameCallback);
+        }
+    }
+
+    @Override
+    public void onPullReleased(long pullDuration) {
+        record(EVENT_PULL_RELEASED, pullDuration, 0);
+    }
+
+    @Override
+    public void onRefreshLatency(long latency) {
+        record(EVENT_REFRESH_DONE, latency, 0);
+    }
+
+    @Override
+    public void onLoadMoreLatency(long latency, long spinnerVisibleLength) {
+        record(EVENT_LOAD_MORE_DONE, latency, spinnerVisibleLength);
+    }
+
+    @Override
+    public void onDragFrameStats(int frames, int droppedFrames) {
+        record(EVENT_DRAG_FRAMES, frames, droppedFrames);
+    }
+}
@@ -0,0 +1,246 @@
+package com.githang.refreshlistview.app;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.widget.ListAdapter;
+
+import com.githang.refreshlistview.RefreshListView;
+
+/**
+ * 按脚本依次执行下拉刷新、快速滑动及自动加载场景，并通过{@link StressRecorder}记录.
+ *
+ * 下拉通过向列表分发合成的触摸事件完成，与手指拖动走同样的流程；快速滑动使用smoothScrollBy.
+ * 所有步骤在主线程按帧间隔调度.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+class StressScenario {
+
+    static final String PULL = "pull";
+    static final String FLING = "fling";
+    static final String AUTO_LOAD = "auto_load";
+
+    /**
+     * 脚本执行的回调
+     */
+    interface Callback {
+        /**
+         * 单个场景开始
+         *
+         * @param scenario 场景名称
+         */
+        void onScenarioStarted(String scenario);
+
+        /**
+         * 所有场景已执行完毕或被取消
+         *
+         * @param cancelled 是否被取消
+         */
+        void onScriptFinished(boolean cancelled);
+    }
+
+    private static final long FRAME_DELAY = 16;
+
+    static final int PULL_REPEAT = 3;
+    private static final int PULL_MOVE_FRAMES = 30;
+
+    private static final int FLING_REPEAT = 6;
+    private static final int FLING_DURATION = 400;
+    private static final int FLING_PAGES = 20;
+
+    static final int AUTO_LOAD_TARGET = 5;
+    private static final int AUTO_LOAD_SCROLL_DURATION = 300;
+
+    /**
+     * 等待刷新或加载完成的最长时间，超出后直接进入下一步
+     */
+    private static final long WAIT_TIMEOUT = 30000;
+
+    private final RefreshListView mListView;
+
+    private final StressRecorder mRecorder;
+
+    private final Callback mCallback;
+
+    private String[] mScript;
+
+    private int mScenarioIndex;
+
+    private int mStep;
+
+    private int mRepeat;
+
+    private long mDownTime;
+
+    private long mWaitStart;
+
+    private boolean mRunning;
+
+    private final Runnable mStepRunnable = new Runnable() {
+        @Override
+        public void run() {
+            step();
+        }
+    };
+
+    StressScenario(RefreshListView listView, StressRecorder recorder, Callback callback) {
+        mListView = listView;
+        mRecorder = recorder;
+        mCallback = callback;
+    }
+
+    /**
+     * 依次执行场景，正在执行时先取消
+     *
+     * @param script 场景名称，见{@link #PULL}、{@link #FLING}及{@link #AUTO_LOAD}
+     */
+    void run(String... script) {
+        cancel();
+        mScript = script;
+        mScenarioIndex = -1;
+        mRunning = true;
+        nextScenario();
+    }
+
+    /**
+     * 取消正在执行的脚本，已完成的场景的记录仍然保留
+     */
+    void cancel() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        mListView.removeCallbacks(mStepRunnable);
+        if (PULL.equals(mScript[mScenarioIndex]) && mStep > 0 && mStep <= PULL_MOVE_FRAMES) {
+            // 手指仍处于按下状态
+            dispatchTouch(MotionEvent.ACTION_CANCEL, 0);
+        }
+        mRecorder.end();
+        mCallback.onScriptFinished(true);
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    private void nextScenario() {
+        mRecorder.end();
+        mScenarioIndex++;
+        if (mScenarioIndex >= mScript.length) {
+            mRunning = false;
+            mCallback.onScriptFinished(false);
+            return;
+        }
+        String scenario = mScript[mScenarioIndex];
+        mStep = 0;
+        mRepeat = 0;
+        mCallback.onScenarioStarted(scenario);
+        mRecorder.begin(scenario);
+        schedule(0);
+    }
+
+    private void schedule(long delay) {
+        mListView.postDelayed(mStepRunnable, delay);
+    }
+
+    private void step() {
+        if (!mRunning) {
+            return;
+        }
+        String scenario = mScript[mScenarioIndex];
+        if (PULL.equals(scenario)) {
+            stepPull();
+        } else if (FLING.equals(scenario)) {
+            stepFling();
+        } else {
+            stepAutoLoad();
+        }
+    }
+
+    /**
+     * 在顶部按下，逐帧向下拖动半个列表高度后松手，等待刷新完成，重复{@link #PULL_REPEAT}次
+     */
+    private void stepPull() {
+        if (mStep == 0) {
+            if (mRepeat >= PULL_REPEAT) {
+                nextScenario();
+                return;
+            }
+            mListView.setSelection(0);
+            mDownTime = SystemClock.uptimeMillis();
+            dispatchTouch(MotionEvent.ACTION_DOWN, 0);
+            mStep++;
+            schedule(FRAME_DELAY);
+        } else if (mStep <= PULL_MOVE_FRAMES) {
+            dispatchTouch(MotionEvent.ACTION_MOVE, pullOffset(mStep));
+            mStep++;
+            schedule(FRAME_DELAY);
+        } else if (mStep == PULL_MOVE_FRAMES + 1) {
+            dispatchTouch(MotionEvent.ACTION_UP, pullOffset(PULL_MOVE_FRAMES));
+            mWaitStart = SystemClock.uptimeMillis();
+            mStep++;
+            schedule(FRAME_DELAY);
+        } else {
+            if (mListView.getRefreshTicket() != RefreshListView.NO_TICKET && !waitTimedOut()) {
+                schedule(FRAME_DELAY * 4);
+                return;
+            }
+            mRepeat++;
+            mStep = 0;
+            schedule(FRAME_DELAY * 10);
+        }
+    }
+
+    /**
+     * 交替向下及向上快速滑动{@link #FLING_REPEAT}次
+     */
+    private void stepFling() {
+        if (mRepeat >= FLING_REPEAT) {
+            nextScenario();
+            return;
+        }
+        int distance = mListView.getHeight() * FLING_PAGES;
+        mListView.smoothScrollBy((mRepeat & 1) == 0 ? distance : -distance, FLING_DURATION);
+        mRepeat++;
+        schedule(FLING_DURATION * 2);
+    }
+
+    /**
+     * 跳到末尾附近后持续向下滑动，直到触发{@link #AUTO_LOAD_TARGET}次自动加载
+     */
+    private void stepAutoLoad() {
+        ListAdapter adapter = mListView.getAdapter();
+        if (mStep == 0) {
+            mListView.setAutoLoadEnabled(true);
+            if (adapter != null) {
+                mListView.setSelection(Math.max(adapter.getCount() - 30, 0));
+            }
+            mWaitStart = SystemClock.uptimeMillis();
+            mStep++;
+            schedule(FRAME_DELAY * 4);
+            return;
+        }
+        if (mRecorder.getLoadMoreCount() >= AUTO_LOAD_TARGET || waitTimedOut()) {
+            nextScenario();
+            return;
+        }
+        mListView.smoothScrollBy(mListView.getHeight(), AUTO_LOAD_SCROLL_DURATION);
+        schedule(AUTO_LOAD_SCROLL_DURATION + FRAME_DELAY);
+    }
+
+    private boolean waitTimedOut() {
+        return SystemClock.uptimeMillis() - mWaitStart > WAIT_TIMEOUT;
+    }
+
+    private float pullOffset(int frame) {
+        return mListView.getHeight() / 2f * frame / PULL_MOVE_FRAMES;
+    }
+
+    private void dispatchTouch(int action, float offsetY) {
+        float x = mListView.getWidth() / 2f;
+        float y = mListView.getPaddingTop() + 1 + offsetY;
+        MotionEvent event = MotionEvent.obtain(mDownTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        mListView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
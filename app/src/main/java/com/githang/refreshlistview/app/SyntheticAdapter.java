@@ -0,0 +1,179 @@
+package com.githang.refreshlistview.app;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+/**
+ * 压力测试用的合成数据适配器，条目数可从几百到上百万，不保存任何条目数据.
+ *
+ * 包含三种条目类型：分组标题、单行及双行，按位置固定分布，ID与位置无关，刷新后仍保持稳定.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+class SyntheticAdapter extends BaseAdapter {
+
+    static final int TYPE_SECTION = 0;
+    static final int TYPE_SINGLE = 1;
+    static final int TYPE_DOUBLE = 2;
+
+    private static final int TYPE_COUNT = 3;
+
+    /**
+     * 每隔多少条出现一个分组标题
+     */
+    private static final int SECTION_INTERVAL = 20;
+
+    private final Context mContext;
+
+    private final int mPadding;
+
+    private int mCount;
+
+    /**
+     * 第一条数据的ID，下拉刷新时在顶部插入新数据，ID递减
+     */
+    private long mFirstId;
+
+    SyntheticAdapter(Context context, int count) {
+        mContext = context;
+        mCount = count;
+        mPadding = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 12,
+                context.getResources().getDisplayMetrics());
+    }
+
+    /**
+     * 重置条目数
+     *
+     * @param count 条目数
+     */
+    void reset(int count) {
+        mCount = count;
+        mFirstId = 0;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * 在顶部插入新条目，模拟下拉刷新得到的新数据
+     *
+     * @param count 新条目数
+     */
+    void prepend(int count) {
+        mCount += count;
+        mFirstId -= count;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * 在末尾追加条目，模拟上拉加载的下一页
+     *
+     * @param count 新条目数
+     */
+    void append(int count) {
+        mCount += count;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return mCount;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return null;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mFirstId + position;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return TYPE_COUNT;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        long id = getItemId(position);
+        if (id % SECTION_INTERVAL == 0) {
+            return TYPE_SECTION;
+        }
+        return (id & 1) == 0 ? TYPE_SINGLE : TYPE_DOUBLE;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        int type = getItemViewType(position);
+        ViewHolder holder;
+        if (convertView == null) {
+            holder = new ViewHolder();
+            convertView = createView(type, holder);
+            convertView.setTag(holder);
+        } else {
+            holder = (ViewHolder) convertView.getTag();
+        }
+        long id = getItemId(position);
+        switch (type) {
+            case TYPE_SECTION:
+                holder.title.setText(mContext.getString(R.string.stress_section, id / SECTION_INTERVAL));
+                break;
+            case TYPE_DOUBLE:
+                holder.title.setText(mContext.getString(R.string.stress_item, id));
+                holder.subtitle.setText(mContext.getString(R.string.stress_item_detail, position));
+                break;
+            default:
+                holder.title.setText(mContext.getString(R.string.stress_item, id));
+                break;
+        }
+        return convertView;
+    }
+
+    private View createView(int type, ViewHolder holder) {
+        TextView title = new TextView(mContext);
+        holder.title = title;
+        if (type == TYPE_SECTION) {
+            title.setTypeface(Typeface.DEFAULT_BOLD);
+            title.setGravity(Gravity.CENTER_VERTICAL);
+            title.setPadding(mPadding, mPadding * 2, mPadding, mPadding / 2);
+            title.setLayoutParams(new AbsListView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            return title;
+        }
+        if (type == TYPE_SINGLE) {
+            title.setPadding(mPadding, mPadding, mPadding, mPadding);
+            title.setLayoutParams(new AbsListView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            return title;
+        }
+        LinearLayout layout = new LinearLayout(mContext);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setPadding(mPadding, mPadding, mPadding, mPadding);
+        layout.setLayoutParams(new AbsListView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        TextView subtitle = new TextView(mContext);
+        subtitle.setTextSize(TypedValue.COMPLEX_UNIT_SP, 12);
+        holder.subtitle = subtitle;
+        layout.addView(title);
+        layout.addView(subtitle);
+        return layout;
+    }
+
+    private static class ViewHolder {
+        TextView title;
+        TextView subtitle;
+    }
+}
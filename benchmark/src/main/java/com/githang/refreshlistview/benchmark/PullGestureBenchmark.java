@@ -0,0 +1,96 @@
+package com.githang.refreshlistview.benchmark;
+
+import com.githang.refreshlistview.core.PullStateMachine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下拉及上拉手势每个事件的耗时.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PullGestureBenchmark {
+
+    /**
+     * 顶部及底部信息栏高度，对应48dp在xxhdpi下的像素值
+     */
+    private static final int BAR_HEIGHT = 144;
+
+    /**
+     * 一次拖动的最大距离
+     */
+    private static final int MAX_DISTANCE = BAR_HEIGHT * 8;
+
+    private PullStateMachine mPull;
+
+    private int mY;
+
+    private int mStep;
+
+    @Setup
+    public void setUp() {
+        mPull = new PullStateMachine();
+        mPull.setHeaderHeight(BAR_HEIGHT);
+        mPull.setFooterHeight(BAR_HEIGHT);
+        mPull.onDown(0);
+        mY = 0;
+        mStep = 7;
+    }
+
+    /**
+     * 下拉过程中的ACTION_MOVE，来回越过刷新界限，包含状态切换
+     */
+    @Benchmark
+    public int pullDownMove() {
+        mY += mStep;
+        if (mY >= MAX_DISTANCE || mY <= 0) {
+            mStep = -mStep;
+        }
+        return mPull.onMove(mY, true, false, true, true);
+    }
+
+    /**
+     * 上拉过程中的ACTION_MOVE
+     */
+    @Benchmark
+    public int pullUpMove() {
+        mY -= mStep;
+        if (mY <= -MAX_DISTANCE || mY >= 0) {
+            mStep = -mStep;
+        }
+        return mPull.onMove(mY, false, true, true, true);
+    }
+
+    /**
+     * 一次完整的下拉手势：按下、拖过界限、松手触发刷新、刷新完成
+     */
+    @Benchmark
+    public int pullToRefreshCycle() {
+        mPull.onDown(0);
+        int result = 0;
+        for (int y = 0; y <= BAR_HEIGHT * 3; y += 16) {
+            result |= mPull.onMove(y, true, false, true, true);
+        }
+        result |= mPull.onUp(BAR_HEIGHT * 3, true, false);
+        mPull.setRefreshState(PullStateMachine.REFRESHING);
+        mPull.setRefreshState(PullStateMachine.DONE);
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package com.githang.refreshlistview.benchmark;
+
+import com.githang.refreshlistview.core.LoadToken;
+import com.githang.refreshlistview.core.RefreshController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 刷新及加载流程中每个事件的耗时. 事件序列预先随机生成，包括滑动、开始刷新、完成、失败及取消，
+ * 覆盖加载策略及自动重试的各个分支.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RefreshControllerBenchmark {
+
+    private static final int TOTAL = 10000;
+
+    private static final int VISIBLE = 12;
+
+    private static final int EVENT_COUNT = 4096;
+
+    private static final int EVENT_SCROLL = 0;
+    private static final int EVENT_REFRESH = 1;
+    private static final int EVENT_COMPLETE_REFRESH = 2;
+    private static final int EVENT_COMPLETE_LOAD_MORE = 3;
+    private static final int EVENT_FAIL_LOAD_MORE = 4;
+    private static final int EVENT_RETRY = 5;
+    private static final int EVENT_CANCEL = 6;
+
+    private RefreshController mController;
+
+    private int[] mEvents;
+
+    private int mIndex;
+
+    private int mFirst;
+
+    private long mTime;
+
+    @Setup
+    public void setUp() {
+        mController = new RefreshController(new RefreshController.Callback() {
+            @Override
+            public void onHeaderStateChanged() {
+            }
+
+            @Override
+            public void onFooterStateChanged() {
+            }
+
+            @Override
+            public void onRefreshStarted(int ticket, LoadToken token) {
+            }
+
+            @Override
+            public void onRefreshFinished(boolean completed) {
+            }
+
+            @Override
+            public void onLoadMoreStarted(int ticket, LoadToken token) {
+            }
+
+            @Override
+            public void onLoadMoreFinished(boolean completed) {
+            }
+
+            @Override
+            public void onRetryScheduled(int attempt, long delay) {
+            }
+
+            @Override
+            public void onRetriesExhausted(int attempts) {
+            }
+        });
+        mController.setAutoLoadEnabled(true);
+        mController.setLoadPolicy(RefreshController.POLICY_REFRESH_SUPERSEDES_LOAD_MORE);
+        mController.getScrollTracker().setPrefetchDistance(10);
+
+        // 大部分为滑动，其余事件均匀分布，固定种子保证每次运行的序列相同
+        Random random = new Random(42);
+        mEvents = new int[EVENT_COUNT];
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            mEvents[i] = random.nextInt(4) != 0 ? EVENT_SCROLL : 1 + random.nextInt(EVENT_CANCEL);
+        }
+        mIndex = 0;
+        mFirst = 0;
+        mTime = 1;
+    }
+
+    @Benchmark
+    public int onEvent() {
+        mTime += 16;
+        int event = mEvents[mIndex];
+        mIndex = (mIndex + 1) & (EVENT_COUNT - 1);
+        switch (event) {
+            case EVENT_SCROLL:
+                mFirst = (mFirst + 1) % (TOTAL - VISIBLE);
+                mController.onScroll(mFirst, VISIBLE, TOTAL, 1, true, mTime);
+                break;
+            case EVENT_REFRESH:
+                mController.startRefresh();
+                break;
+            case EVENT_COMPLETE_REFRESH:
+                mController.completeRefresh();
+                break;
+            case EVENT_COMPLETE_LOAD_MORE:
+                mController.completeLoadMore(mTime);
+                break;
+            case EVENT_FAIL_LOAD_MORE:
+                mController.failLoadMore();
+                break;
+            case EVENT_RETRY:
+                mController.retryLoadMore(mTime);
+                break;
+            default:
+                mController.cancelLoadMore(LoadToken.REASON_SUPERSEDED);
+                break;
+        }
+        return mController.getLoadMoreTicket();
+    }
+}
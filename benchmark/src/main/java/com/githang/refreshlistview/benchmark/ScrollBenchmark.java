@@ -0,0 +1,59 @@
+package com.githang.refreshlistview.benchmark;
+
+import com.githang.refreshlistview.core.ScrollTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 滑动时每次onScroll的耗时，包括速度估算及是否自动加载的判断.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScrollBenchmark {
+
+    private static final int TOTAL = 10000;
+
+    private static final int VISIBLE = 12;
+
+    private ScrollTracker mTracker;
+
+    private int mFirst;
+
+    private long mTime;
+
+    @Setup
+    public void setUp() {
+        mTracker = new ScrollTracker();
+        mTracker.setPrefetchDistance(10);
+        mTracker.setAdaptivePrefetchEnabled(true);
+        mTracker.onLoadMoreStarted(0);
+        mTracker.onLoadMoreCompleted(300);
+        mFirst = 0;
+        mTime = 1;
+    }
+
+    @Benchmark
+    public boolean onScroll() {
+        mTime += 16;
+        mFirst = (mFirst + 1) % (TOTAL - VISIBLE);
+        mTracker.onScroll(mFirst, true, mTime);
+        return mTracker.shouldLoadMore(mFirst, VISIBLE, TOTAL, 1);
+    }
+}
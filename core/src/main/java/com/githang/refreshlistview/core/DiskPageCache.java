@@ -0,0 +1,318 @@
+package com.githang.refreshlistview.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 保存在磁盘上的分页缓存，按最近使用的顺序淘汰，限制总大小及条目数.
+ *
+ * 每个条目保存为一个文件，格式为：魔数、版本、写入时间、键、由{@link Codec}写入的内容.
+ * 写入时先写临时文件再重命名，进程中断不会留下不完整的条目. 最近使用的顺序通过文件的修改时间保存，
+ * 重新打开后仍然有效. 不依赖Android，可在JVM上针对临时目录使用. 所有方法均线程安全，
+ * 但会进行磁盘读写，不应在主线程调用.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class DiskPageCache {
+
+    /**
+     * 条目内容的读写
+     *
+     * @param <V> 条目内容
+     */
+    public interface Codec<V> {
+        /**
+         * 写入内容
+         *
+         * @param out   输出
+         * @param value 内容
+         * @throws IOException 写入失败
+         */
+        void write(DataOutput out, V value) throws IOException;
+
+        /**
+         * 读取内容
+         *
+         * @param in 输入
+         * @return 内容
+         * @throws IOException 读取失败或格式错误
+         */
+        V read(DataInput in) throws IOException;
+    }
+
+    /**
+     * 读取到的条目
+     *
+     * @param <V> 条目内容
+     */
+    public static class Entry<V> {
+        /**
+         * 条目内容
+         */
+        public final V value;
+        /**
+         * 写入时间，单位：毫秒
+         */
+        public final long timestamp;
+
+        public Entry(V value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * 文件魔数
+     */
+    private static final int MAGIC = 0x524c5043;
+
+    /**
+     * 文件格式版本
+     */
+    private static final int VERSION = 1;
+
+    private static final String SUFFIX = ".page";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File mDirectory;
+
+    private final long mMaxSize;
+
+    private final int mMaxEntries;
+
+    /**
+     * 文件名到文件大小的索引，按最近使用的顺序排列
+     */
+    private final LinkedHashMap<String, Long> mIndex = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    private long mSize;
+
+    private boolean mIndexLoaded;
+
+    /**
+     * 构造方法
+     *
+     * @param directory  缓存目录，不存在时自动创建
+     * @param maxSize    缓存的最大总大小，单位：字节
+     * @param maxEntries 最多缓存的条目数
+     */
+    public DiskPageCache(File directory, long maxSize, int maxEntries) {
+        if (maxSize <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("缓存大小及条目数必须大于0");
+        }
+        mDirectory = directory;
+        mMaxSize = maxSize;
+        mMaxEntries = maxEntries;
+    }
+
+    /**
+     * 写入条目，已存在时覆盖
+     *
+     * @param key       键
+     * @param value     内容
+     * @param codec     内容的读写
+     * @param timestamp 写入时间，单位：毫秒
+     * @param <V>       条目内容
+     * @throws IOException 写入失败
+     */
+    public synchronized <V> void put(String key, V value, Codec<V> codec, long timestamp)
+            throws IOException {
+        loadIndex();
+        String name = fileName(key);
+        File temp = new File(mDirectory, name + TEMP_SUFFIX);
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)));
+        boolean written = false;
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(timestamp);
+            out.writeUTF(key);
+            codec.write(out, value);
+            out.close();
+            written = true;
+        } finally {
+            if (!written) {
+                // 写入失败时删除临时文件，原有的条目保持不变
+                closeQuietly(out);
+                temp.delete();
+            }
+        }
+        File file = new File(mDirectory, name);
+        if (!temp.renameTo(file)) {
+            // 部分系统上重命名不会覆盖已存在的文件
+            file.delete();
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("无法写入缓存文件: " + file);
+            }
+        }
+        Long old = mIndex.put(name, file.length());
+        if (old != null) {
+            mSize -= old;
+        }
+        mSize += file.length();
+        trim();
+    }
+
+    /**
+     * 读取条目，并将其标记为最近使用
+     *
+     * @param key   键
+     * @param codec 内容的读写
+     * @param <V>   条目内容
+     * @return 条目，不存在或已损坏时返回null
+     */
+    public synchronized <V> Entry<V> get(String key, Codec<V> codec) {
+        loadIndex();
+        String name = fileName(key);
+        if (mIndex.get(name) == null) {
+            return null;
+        }
+        File file = new File(mDirectory, name);
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("缓存文件格式错误: " + file);
+            }
+            long timestamp = in.readLong();
+            if (!key.equals(in.readUTF())) {
+                // 文件名冲突的其他键
+                return null;
+            }
+            V value = codec.read(in);
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry<V>(value, timestamp);
+        } catch (IOException e) {
+            remove(key);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * 删除条目
+     *
+     * @param key 键
+     */
+    public synchronized void remove(String key) {
+        loadIndex();
+        String name = fileName(key);
+        Long size = mIndex.remove(name);
+        if (size != null) {
+            mSize -= size;
+        }
+        new File(mDirectory, name).delete();
+    }
+
+    /**
+     * 删除所有条目
+     */
+    public synchronized void clear() {
+        loadIndex();
+        for (String name : mIndex.keySet()) {
+            new File(mDirectory, name).delete();
+        }
+        mIndex.clear();
+        mSize = 0;
+    }
+
+    /**
+     * @return 缓存的总大小，单位：字节
+     */
+    public synchronized long size() {
+        loadIndex();
+        return mSize;
+    }
+
+    /**
+     * @return 缓存的条目数
+     */
+    public synchronized int entryCount() {
+        loadIndex();
+        return mIndex.size();
+    }
+
+    /**
+     * 首次使用时扫描缓存目录建立索引，按文件的修改时间恢复最近使用的顺序
+     */
+    private void loadIndex() {
+        if (mIndexLoaded) {
+            return;
+        }
+        mIndexLoaded = true;
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            return;
+        }
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long l = lhs.lastModified();
+                long r = rhs.lastModified();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX)) {
+                mIndex.put(name, file.length());
+                mSize += file.length();
+            } else if (name.endsWith(TEMP_SUFFIX)) {
+                // 上次未写完的临时文件
+                file.delete();
+            }
+        }
+        trim();
+    }
+
+    /**
+     * 淘汰最久未使用的条目，直到总大小及条目数不超过限制
+     */
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> it = mIndex.entrySet().iterator();
+        while ((mSize > mMaxSize || mIndex.size() > mMaxEntries) && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            new File(mDirectory, eldest.getKey()).delete();
+            mSize -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    /**
+     * 根据键生成文件名，冲突时由文件中保存的键区分
+     */
+    private static String fileName(String key) {
+        return Integer.toHexString(key.hashCode()) + "_" + key.length() + SUFFIX;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // 忽略
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.githang.refreshlistview.core;
+
+/**
+ * 根据最近的触摸采样估算拖动速度.
+ *
+ * 保存最近的若干个采样点（包括批量触摸事件中的历史采样），对最近一段时间内的采样做最小二乘拟合得到速度，
+ * 比只用相邻两个事件的差值更稳定. 所有方法均不分配对象.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class DragVelocity {
+
+    /**
+     * 保存的采样点个数
+     */
+    private static final int HISTORY_SIZE = 20;
+
+    /**
+     * 参与计算的采样时间范围，单位：毫秒
+     */
+    private static final long HORIZON = 100;
+
+    private final float[] mPositions = new float[HISTORY_SIZE];
+
+    private final long[] mTimes = new long[HISTORY_SIZE];
+
+    /**
+     * 最新的采样点的序号
+     */
+    private int mIndex = -1;
+
+    private int mCount;
+
+    /**
+     * 添加采样点，需按时间顺序添加
+     *
+     * @param y    触摸位置
+     * @param time 采样时间，单位：毫秒
+     */
+    public void addSample(float y, long time) {
+        mIndex = (mIndex + 1) % HISTORY_SIZE;
+        mPositions[mIndex] = y;
+        mTimes[mIndex] = time;
+        if (mCount < HISTORY_SIZE) {
+            mCount++;
+        }
+    }
+
+    /**
+     * 清除所有采样点
+     */
+    public void reset() {
+        mIndex = -1;
+        mCount = 0;
+    }
+
+    /**
+     * 计算速度，向下为正
+     *
+     * @return 速度，单位：像素/秒，采样不足时为0
+     */
+    public float getVelocity() {
+        if (mCount < 2) {
+            return 0;
+        }
+        long newest = mTimes[mIndex];
+        // 以最新的采样为原点，避免时间数值过大损失精度
+        double sumT = 0;
+        double sumY = 0;
+        double sumTT = 0;
+        double sumTY = 0;
+        int n = 0;
+        float originY = mPositions[mIndex];
+        for (int i = 0; i < mCount; i++) {
+            int index = (mIndex - i + HISTORY_SIZE) % HISTORY_SIZE;
+            long t = mTimes[index] - newest;
+            if (-t > HORIZON) {
+                break;
+            }
+            double y = mPositions[index] - originY;
+            sumT += t;
+            sumY += y;
+            sumTT += t * t;
+            sumTY += t * y;
+            n++;
+        }
+        double denominator = n * sumTT - sumT * sumT;
+        if (n < 2 || denominator == 0) {
+            return 0;
+        }
+        double slope = (n * sumTY - sumT * sumY) / denominator;
+        return (float) (slope * 1000);
+    }
+}
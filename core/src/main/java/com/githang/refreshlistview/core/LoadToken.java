@@ -0,0 +1,144 @@
+package com.githang.refreshlistview.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次下拉刷新或上拉加载的取消标记.
+ *
+ * 刷新或加载超时、控件被移除、适配器被替换或被新的刷新取代时会被取消，
+ * 加载数据的一方可通过{@link #isCancelled()}或{@link OnCancelListener}提前停止已不再需要的工作.
+ * 可在任意线程查询及添加监听，监听在调用{@link #cancel(int)}的线程回调.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class LoadToken {
+
+    /**
+     * 取消原因-未取消
+     */
+    public static final int REASON_NONE = 0;
+
+    /**
+     * 取消原因-超时
+     */
+    public static final int REASON_TIMEOUT = 1;
+
+    /**
+     * 取消原因-控件已从窗口移除
+     */
+    public static final int REASON_DETACHED = 2;
+
+    /**
+     * 取消原因-适配器已被替换
+     */
+    public static final int REASON_ADAPTER_CHANGED = 3;
+
+    /**
+     * 取消原因-被新的刷新取代
+     */
+    public static final int REASON_SUPERSEDED = 4;
+
+    /**
+     * 取消的回调监听
+     */
+    public interface OnCancelListener {
+        /**
+         * 已被取消
+         *
+         * @param token  被取消的标记
+         * @param reason 取消原因
+         */
+        void onCancel(LoadToken token, int reason);
+    }
+
+    private final int mTicket;
+
+    private volatile int mCancelReason = REASON_NONE;
+
+    private List<OnCancelListener> mListeners;
+
+    /**
+     * @param ticket 对应的刷新或加载的凭证
+     */
+    public LoadToken(int ticket) {
+        mTicket = ticket;
+    }
+
+    /**
+     * @return 对应的刷新或加载的凭证
+     */
+    public int getTicket() {
+        return mTicket;
+    }
+
+    /**
+     * @return 是否已被取消
+     */
+    public boolean isCancelled() {
+        return mCancelReason != REASON_NONE;
+    }
+
+    /**
+     * @return 取消原因，未取消时为{@link #REASON_NONE}
+     */
+    public int getCancelReason() {
+        return mCancelReason;
+    }
+
+    /**
+     * 添加取消的监听，已被取消时立即回调
+     *
+     * @param listener 监听
+     */
+    public void addOnCancelListener(OnCancelListener listener) {
+        synchronized (this) {
+            if (mCancelReason == REASON_NONE) {
+                if (mListeners == null) {
+                    mListeners = new ArrayList<OnCancelListener>(2);
+                }
+                mListeners.add(listener);
+                return;
+            }
+        }
+        listener.onCancel(this, mCancelReason);
+    }
+
+    /**
+     * 移除取消的监听
+     *
+     * @param listener 监听
+     */
+    public synchronized void removeOnCancelListener(OnCancelListener listener) {
+        if (mListeners != null) {
+            mListeners.remove(listener);
+        }
+    }
+
+    /**
+     * 取消
+     *
+     * @param reason 取消原因
+     * @return 是否为本次调用取消，已被取消时返回false
+     */
+    public boolean cancel(int reason) {
+        if (reason == REASON_NONE) {
+            throw new IllegalArgumentException("取消原因不可为REASON_NONE");
+        }
+        List<OnCancelListener> listeners;
+        synchronized (this) {
+            if (mCancelReason != REASON_NONE) {
+                return false;
+            }
+            mCancelReason = reason;
+            listeners = mListeners;
+            mListeners = null;
+        }
+        if (listeners != null) {
+            for (int i = 0, size = listeners.size(); i < size; i++) {
+                listeners.get(i).onCancel(this, reason);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,243 @@
+package com.githang.refreshlistview.core;
+
+/**
+ * 根据滑动方向及速度计算即将可见的条目范围（预取窗口）.
+ *
+ * 向下滑动时窗口位于可见区域之后，向上滑动时位于可见区域之前，窗口大小随滑动速度增大.
+ * 已通知过的范围不会重复通知；滑离后不再需要的范围会通知取消，已进入可见区域的范围视为已使用，
+ * 不通知取消. 时间由调用方传入，所有方法均不分配对象.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class PrefetchWindow {
+
+    /**
+     * 预取范围的回调，范围均为左闭右开的条目序号
+     */
+    public interface Callback {
+        /**
+         * 需要预取的范围
+         *
+         * @param start 起始序号，包含
+         * @param end   结束序号，不包含
+         */
+        void onPrefetch(int start, int end);
+
+        /**
+         * 已通知但不再需要预取的范围
+         *
+         * @param start 起始序号，包含
+         * @param end   结束序号，不包含
+         */
+        void onCancelPrefetch(int start, int end);
+    }
+
+    /**
+     * 默认的最小窗口大小
+     */
+    public static final int DEFAULT_MIN_ITEMS = 2;
+
+    /**
+     * 默认的最大窗口大小
+     */
+    public static final int DEFAULT_MAX_ITEMS = 20;
+
+    /**
+     * 默认的预取时长，即预取按当前速度在多长时间内会滑入的条目，单位：毫秒
+     */
+    public static final long DEFAULT_LOOKAHEAD = 300;
+
+    private int mMinItems = DEFAULT_MIN_ITEMS;
+
+    private int mMaxItems = DEFAULT_MAX_ITEMS;
+
+    private long mLookahead = DEFAULT_LOOKAHEAD;
+
+    /**
+     * 上次第一个可见条目的序号
+     */
+    private int mLastFirstItem = -1;
+
+    /**
+     * 上次第一个可见条目变化的时间
+     */
+    private long mLastScrollTime;
+
+    /**
+     * 滑动速度，单位：条/毫秒
+     */
+    private float mSpeed;
+
+    /**
+     * 是否向下滑动，即向列表末尾滑动
+     */
+    private boolean mForward = true;
+
+    /**
+     * 已通知的范围的起始序号，包含
+     */
+    private int mStart;
+
+    /**
+     * 已通知的范围的结束序号，不包含. 与起始序号相等时表示没有已通知的范围
+     */
+    private int mEnd;
+
+    /**
+     * 设置窗口大小的范围
+     *
+     * @param minItems 最小窗口大小
+     * @param maxItems 最大窗口大小
+     */
+    public void setWindowSize(int minItems, int maxItems) {
+        if (minItems < 0 || maxItems < minItems) {
+            throw new IllegalArgumentException("窗口大小不合法");
+        }
+        mMinItems = minItems;
+        mMaxItems = maxItems;
+    }
+
+    /**
+     * @param lookahead 预取按当前速度在多长时间内会滑入的条目，单位：毫秒
+     */
+    public void setLookahead(long lookahead) {
+        mLookahead = lookahead;
+    }
+
+    /**
+     * 列表滑动，更新滑动方向及速度并计算新的窗口
+     *
+     * @param firstVisible 第一个可见条目的序号
+     * @param visibleCount 可见条目数
+     * @param itemCount    条目总数
+     * @param scrolling    是否正在滑动
+     * @param now          当前时间，单位：毫秒
+     * @param callback     回调
+     */
+    public void onScroll(int firstVisible, int visibleCount, int itemCount, boolean scrolling,
+                         long now, Callback callback) {
+        if (mLastFirstItem >= 0 && firstVisible != mLastFirstItem) {
+            mForward = firstVisible > mLastFirstItem;
+            long elapsed = now - mLastScrollTime;
+            if (scrolling && elapsed > 0) {
+                float speed = Math.abs(firstVisible - mLastFirstItem) / (float) elapsed;
+                mSpeed = (mSpeed + speed) / 2;
+            }
+        }
+        if (!scrolling) {
+            mSpeed = 0;
+        }
+        if (firstVisible != mLastFirstItem) {
+            mLastFirstItem = firstVisible;
+            mLastScrollTime = now;
+        }
+
+        int size = (int) Math.ceil(mSpeed * mLookahead);
+        size = Math.min(mMaxItems, Math.max(mMinItems, size));
+        int lastVisible = firstVisible + visibleCount;
+        int start;
+        int end;
+        if (mForward) {
+            start = Math.min(lastVisible, itemCount);
+            end = Math.min(lastVisible + size, itemCount);
+        } else {
+            start = Math.max(firstVisible - size, 0);
+            end = Math.max(Math.min(firstVisible, itemCount), start);
+        }
+        update(start, end, firstVisible, lastVisible, callback);
+    }
+
+    /**
+     * 将已通知的范围更新为新的窗口，只通知差异部分
+     */
+    private void update(int start, int end, int firstVisible, int lastVisible, Callback callback) {
+        if (mStart < mEnd) {
+            // 已通知但不在新窗口也未进入可见区域的部分需要取消
+            cancelOutside(mStart, mEnd, start, end, firstVisible, lastVisible, callback);
+        }
+        if (start < end) {
+            if (mStart >= mEnd || end <= mStart || start >= mEnd) {
+                callback.onPrefetch(start, end);
+            } else {
+                if (start < mStart) {
+                    callback.onPrefetch(start, mStart);
+                }
+                if (end > mEnd) {
+                    callback.onPrefetch(mEnd, end);
+                }
+            }
+        }
+        mStart = start;
+        mEnd = end;
+    }
+
+    /**
+     * 取消[from, to)中既不在新窗口也不在可见区域的部分
+     */
+    private static void cancelOutside(int from, int to, int start, int end, int firstVisible,
+                                      int lastVisible, Callback callback) {
+        int i = from;
+        while (i < to) {
+            if (isKept(i, start, end, firstVisible, lastVisible)) {
+                i++;
+                continue;
+            }
+            int j = i + 1;
+            while (j < to && !isKept(j, start, end, firstVisible, lastVisible)) {
+                j++;
+            }
+            callback.onCancelPrefetch(i, j);
+            i = j;
+        }
+    }
+
+    private static boolean isKept(int position, int start, int end, int firstVisible,
+                                  int lastVisible) {
+        return (position >= start && position < end)
+                || (position >= firstVisible && position < lastVisible);
+    }
+
+    /**
+     * 取消所有已通知的范围并重置，用于数据变化导致序号失效时
+     *
+     * @param callback 回调，为null时只重置不通知
+     */
+    public void reset(Callback callback) {
+        if (callback != null && mStart < mEnd) {
+            callback.onCancelPrefetch(mStart, mEnd);
+        }
+        mStart = 0;
+        mEnd = 0;
+        mLastFirstItem = -1;
+        mLastScrollTime = 0;
+        mSpeed = 0;
+    }
+
+    /**
+     * @return 已通知的范围的起始序号，包含
+     */
+    public int getStart() {
+        return mStart;
+    }
+
+    /**
+     * @return 已通知的范围的结束序号，不包含
+     */
+    public int getEnd() {
+        return mEnd;
+    }
+
+    /**
+     * @return 滑动速度，单位：条/毫秒
+     */
+    public float getSpeed() {
+        return mSpeed;
+    }
+
+    /**
+     * @return 是否向列表末尾滑动
+     */
+    public boolean isForward() {
+        return mForward;
+    }
+}
@@ -0,0 +1,446 @@
+package com.githang.refreshlistview.core;
+
+/**
+ * 下拉刷新及上拉加载的手势状态机.
+ *
+ * 不依赖Android的View，根据触摸位置计算顶部及底部信息栏的状态与拖动距离，
+ * 由控件根据返回的标志位更新界面. 所有方法均不分配对象.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class PullStateMachine {
+
+    /**
+     * 控件状态-下拉过界
+     */
+    public static final int RELEASE_TO_REFRESH = 0;
+    /**
+     * 控件状态-下拉中
+     */
+    public static final int PULL_TO_REFRESH = 1;
+    /**
+     * 控件状态-正在加载
+     */
+    public static final int REFRESHING = 2;
+
+    /**
+     * 控件状态-加载完成||无需加载状态
+     */
+    public static final int DONE = 3;
+
+    /**
+     * 控件状态-上拉刷新
+     */
+    public static final int RAISE_TO_REFRESH = 5;
+
+    /**
+     * 控件状态-上拉时松手刷新
+     */
+    public static final int RELEASE_RAISE_TO_REFRESH = 6;
+
+    /**
+     * 控件状态-上拉加载失败
+     */
+    public static final int LOAD_FAILED = 7;
+
+    /**
+     * 结果标志-顶部状态发生变化
+     */
+    public static final int HEADER_STATE_CHANGED = 1;
+
+    /**
+     * 结果标志-底部状态发生变化
+     */
+    public static final int FOOTER_STATE_CHANGED = 1 << 1;
+
+    /**
+     * 结果标志-顶部拖动距离发生变化
+     */
+    public static final int HEADER_MOVED = 1 << 2;
+
+    /**
+     * 结果标志-底部拖动距离发生变化
+     */
+    public static final int FOOTER_MOVED = 1 << 3;
+
+    /**
+     * 结果标志-需要将列表定位到顶部
+     */
+    public static final int SELECT_TOP = 1 << 4;
+
+    /**
+     * 结果标志-需要将列表定位到底部
+     */
+    public static final int SELECT_BOTTOM = 1 << 5;
+
+    /**
+     * 结果标志-需要开始下拉刷新
+     */
+    public static final int START_REFRESH = 1 << 6;
+
+    /**
+     * 结果标志-需要开始上拉加载
+     */
+    public static final int START_LOAD_MORE = 1 << 7;
+
+    /**
+     * 结果标志-事件已被消耗
+     */
+    public static final int CONSUMED = 1 << 8;
+
+    /**
+     * 滑动距离/提示信息高度 的比值
+     */
+    private static final int RATIO = 2;
+
+    /**
+     * 顶部下拉刷新的状态
+     */
+    private int mRefreshState = DONE;
+
+    /**
+     * 底部上拉加载的状态
+     */
+    private int mLoadMoreState = DONE;
+
+    /**
+     * 下拉提示控件高度
+     */
+    private int mHeaderHeight;
+
+    /**
+     * 上拉提示控件高度
+     */
+    private int mFooterHeight;
+
+    /**
+     * 界限倍数
+     */
+    private int mRaiseBoundary = 3;
+
+    /**
+     * 是否已开始记录事件位置
+     */
+    private boolean mRecording;
+
+    /**
+     * 触摸事件起始位置
+     */
+    private int mStartY;
+
+    /**
+     * 下拉越界后是否有拖回界限内
+     */
+    private boolean mBack;
+
+    /**
+     * 本次上拉是否从加载失败状态开始，未达到界限时需恢复失败状态
+     */
+    private boolean mRaiseFromFailed;
+
+    /**
+     * 顶部的拖动距离
+     */
+    private int mHeaderOffset;
+
+    /**
+     * 底部的拖动距离
+     */
+    private int mFooterOffset;
+
+    /**
+     * 手指按下
+     *
+     * @param y 触摸位置
+     */
+    public void onDown(int y) {
+        if (!mRecording) {
+            mRecording = true;
+            mStartY = y;
+        }
+    }
+
+    /**
+     * 手指移动，根据手势判断是下拉还是上拉
+     *
+     * @param y               触摸位置
+     * @param atTop           列表是否处于顶部
+     * @param atBottom        列表是否处于底部
+     * @param refreshEnabled  是否可以下拉刷新
+     * @param loadMoreEnabled 是否可以上拉加载
+     * @return 结果标志
+     */
+    public int onMove(int y, boolean atTop, boolean atBottom, boolean refreshEnabled,
+                      boolean loadMoreEnabled) {
+        if (!mRecording && (atTop || atBottom)) {
+            mRecording = true;
+            mStartY = y;
+        }
+        int distance = y - mStartY;
+        int result = 0;
+        if (distance > 0 && atTop && refreshEnabled) {
+            // 下拉动作
+            result = pullToRefresh(distance);
+        } else if (distance < 0 && atBottom && loadMoreEnabled) {
+            // 上拉动作
+            result = pullToLoadMore(distance);
+        }
+        if (distance == 0) {
+            // 交替动作界限 将拖动中的状态重置
+            result |= resetDrag() | CONSUMED;
+        }
+        return result;
+    }
+
+    /**
+     * 手指抬起
+     *
+     * @param y               触摸位置
+     * @param refreshEnabled  是否可以下拉刷新
+     * @param loadMoreEnabled 是否可以上拉加载，且列表处于底部
+     * @return 结果标志
+     */
+    public int onUp(int y, boolean refreshEnabled, boolean loadMoreEnabled) {
+        int result = 0;
+        if (refreshEnabled) {
+            if (mRefreshState == PULL_TO_REFRESH) {
+                // 下拉刷新界限内
+                setRefreshState(DONE);
+                result |= HEADER_STATE_CHANGED;
+            } else if (mRefreshState == RELEASE_TO_REFRESH) {
+                // 触发刷新
+                result |= START_REFRESH;
+            }
+        } else if (mRefreshState == PULL_TO_REFRESH || mRefreshState == RELEASE_TO_REFRESH) {
+            // 松手时已不能刷新，结束拖动
+            setRefreshState(DONE);
+            result |= HEADER_STATE_CHANGED;
+        }
+        if (loadMoreEnabled && mLoadMoreState != REFRESHING && mLoadMoreState != LOAD_FAILED) {
+            if (-1 * (y - mStartY) < mFooterHeight * mRaiseBoundary) {
+                // 界限内
+                setLoadMoreState(mRaiseFromFailed ? LOAD_FAILED : DONE);
+                result |= FOOTER_STATE_CHANGED;
+            } else {
+                // 触发上拉加载
+                result |= START_LOAD_MORE;
+            }
+        } else if (mLoadMoreState == RAISE_TO_REFRESH || mLoadMoreState == RELEASE_RAISE_TO_REFRESH) {
+            // 松手时底部信息栏已不可见或不能加载，结束拖动
+            setLoadMoreState(mRaiseFromFailed ? LOAD_FAILED : DONE);
+            result |= FOOTER_STATE_CHANGED;
+        }
+        mRecording = false;
+        mBack = false;
+        return result;
+    }
+
+    /**
+     * 将拖动中的状态重置
+     *
+     * @return 结果标志
+     */
+    public int resetDrag() {
+        int result = 0;
+        if (mRefreshState == PULL_TO_REFRESH || mRefreshState == RELEASE_TO_REFRESH) {
+            setRefreshState(DONE);
+            result |= HEADER_STATE_CHANGED;
+        }
+        if (mLoadMoreState == RAISE_TO_REFRESH || mLoadMoreState == RELEASE_RAISE_TO_REFRESH) {
+            setLoadMoreState(mRaiseFromFailed ? LOAD_FAILED : DONE);
+            result |= FOOTER_STATE_CHANGED;
+        }
+        return result;
+    }
+
+    /**
+     * 下拉刷新
+     *
+     * @param distance 拖动距离
+     * @return 结果标志
+     */
+    private int pullToRefresh(int distance) {
+        // 控件无刷新，后台无更新数据，并且触发了开始记录触摸事件位置
+        if (mRefreshState == REFRESHING || !mRecording) {
+            return 0;
+        }
+        int result = 0;
+        if (mRefreshState == RELEASE_TO_REFRESH) {
+            // 处于下拉越界状态
+            result |= SELECT_TOP;
+            if ((distance / RATIO < mHeaderHeight) && distance > 0) {
+                mRefreshState = PULL_TO_REFRESH;
+                result |= HEADER_STATE_CHANGED;
+            } else if (distance <= 0) {
+                setRefreshState(DONE);
+                result |= HEADER_STATE_CHANGED;
+            }
+        }
+
+        if (mRefreshState == PULL_TO_REFRESH) {
+            // 正常下拉状态
+            result |= SELECT_TOP;
+            if (distance / RATIO >= mHeaderHeight) {
+                mRefreshState = RELEASE_TO_REFRESH;
+                mBack = true;
+                result |= HEADER_STATE_CHANGED;
+            } else if (distance <= 0) {
+                setRefreshState(DONE);
+                result |= HEADER_STATE_CHANGED;
+            }
+        }
+        // 正常状态
+        if (mRefreshState == DONE) {
+            if (distance > 0) {
+                mRefreshState = PULL_TO_REFRESH;
+                result |= HEADER_STATE_CHANGED;
+            }
+        }
+
+        if (mRefreshState == PULL_TO_REFRESH || mRefreshState == RELEASE_TO_REFRESH) {
+            int offset = distance / RATIO;
+            if (offset != mHeaderOffset) {
+                mHeaderOffset = offset;
+                result |= HEADER_MOVED;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 上拉加载
+     *
+     * @param distance 拖动距离
+     * @return 结果标志
+     */
+    private int pullToLoadMore(int distance) {
+        if (mLoadMoreState == REFRESHING || !mRecording) {
+            return 0;
+        }
+        int result = 0;
+        if (mLoadMoreState == DONE || mLoadMoreState == LOAD_FAILED) {
+            // 开始拖动
+            mRaiseFromFailed = mLoadMoreState == LOAD_FAILED;
+            mLoadMoreState = RAISE_TO_REFRESH;
+            result |= FOOTER_STATE_CHANGED;
+        }
+        if (mLoadMoreState == RAISE_TO_REFRESH) {
+            // 拖动过程中
+            result |= SELECT_BOTTOM;
+            if (-1 * (distance / RATIO) >= mFooterHeight * mRaiseBoundary) {
+                mLoadMoreState = RELEASE_RAISE_TO_REFRESH;
+            } else {
+                mLoadMoreState = RAISE_TO_REFRESH;
+                result |= FOOTER_STATE_CHANGED;
+            }
+        }
+        int offset = -1 * distance / RATIO;
+        if (offset != mFooterOffset) {
+            mFooterOffset = offset;
+            result |= FOOTER_MOVED;
+        }
+        return result;
+    }
+
+    /**
+     * @return 顶部下拉刷新的状态
+     */
+    public int getRefreshState() {
+        return mRefreshState;
+    }
+
+    /**
+     * 设置顶部下拉刷新的状态
+     *
+     * @param state 状态
+     */
+    public void setRefreshState(int state) {
+        mRefreshState = state;
+        if (state == DONE || state == REFRESHING) {
+            mHeaderOffset = 0;
+        }
+    }
+
+    /**
+     * @return 底部上拉加载的状态
+     */
+    public int getLoadMoreState() {
+        return mLoadMoreState;
+    }
+
+    /**
+     * 设置底部上拉加载的状态
+     *
+     * @param state 状态
+     */
+    public void setLoadMoreState(int state) {
+        mLoadMoreState = state;
+        mRaiseFromFailed = false;
+        if (state == DONE || state == REFRESHING) {
+            mFooterOffset = 0;
+        }
+    }
+
+    /**
+     * 清除上拉开始时记录的失败状态，之后松手或拖动取消时恢复为完成而不是失败，不改变当前的状态
+     */
+    public void clearRaiseFromFailed() {
+        mRaiseFromFailed = false;
+    }
+
+    /**
+     * @return 顶部的拖动距离
+     */
+    public int getHeaderOffset() {
+        return mHeaderOffset;
+    }
+
+    /**
+     * @return 底部的拖动距离，向上为正
+     */
+    public int getFooterOffset() {
+        return mFooterOffset;
+    }
+
+    /**
+     * @return 下拉越界后是否有拖回界限内
+     */
+    public boolean isBack() {
+        return mBack;
+    }
+
+    /**
+     * @param back 下拉越界后是否有拖回界限内
+     */
+    public void setBack(boolean back) {
+        mBack = back;
+    }
+
+    /**
+     * @return 是否已开始记录事件位置
+     */
+    public boolean isRecording() {
+        return mRecording;
+    }
+
+    /**
+     * @param headerHeight 下拉提示控件高度
+     */
+    public void setHeaderHeight(int headerHeight) {
+        mHeaderHeight = headerHeight;
+    }
+
+    /**
+     * @param footerHeight 上拉提示控件高度
+     */
+    public void setFooterHeight(int footerHeight) {
+        mFooterHeight = footerHeight;
+    }
+
+    /**
+     * @param raiseBoundary 上拉时触动加载更多的界限值与底部信息栏高度的比值
+     */
+    public void setRaiseBoundary(int raiseBoundary) {
+        mRaiseBoundary = raiseBoundary;
+    }
+}
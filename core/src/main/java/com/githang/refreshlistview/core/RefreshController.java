@@ -0,0 +1,537 @@
+package com.githang.refreshlistview.core;
+
+/**
+ * 下拉刷新及上拉加载的流程控制，与具体的控件无关.
+ *
+ * 负责刷新及加载的开始、结束、取消及失败，发放凭证及取消标记，按加载策略处理刷新与加载的并发，
+ * 根据滑动位置判断是否自动加载，并在加载失败后按退避安排重试. 失败状态由控制器自己记录，
+ * 不受手势的影响，失败后只能由退避安排的重试、拖过界限的上拉或刷新完成解除. 控件只需转发滑动及完成事件，
+ * 并在{@link Callback}中更新界面. 除每次开始刷新或加载时创建的{@link LoadToken}外不分配对象.
+ *
+ * 除凭证的查询外，所有方法需在同一线程调用.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class RefreshController {
+
+    /**
+     * 无效的凭证
+     */
+    public static final int NO_TICKET = 0;
+
+    /**
+     * 加载策略-下拉刷新与上拉加载可同时进行
+     */
+    public static final int POLICY_PARALLEL = 0;
+
+    /**
+     * 加载策略-下拉刷新取消正在进行的上拉加载，刷新期间不开始上拉加载
+     */
+    public static final int POLICY_REFRESH_SUPERSEDES_LOAD_MORE = 1;
+
+    /**
+     * 加载策略-同时只能进行其中一个
+     */
+    public static final int POLICY_EXCLUSIVE = 2;
+
+    private static final int REFRESHING = PullStateMachine.REFRESHING;
+
+    private static final int DONE = PullStateMachine.DONE;
+
+    private static final int LOAD_FAILED = PullStateMachine.LOAD_FAILED;
+
+    /**
+     * 流程变化的回调，在调用控制器方法的线程中回调
+     */
+    public interface Callback {
+        /**
+         * 顶部的状态发生变化，需要更新顶部信息栏
+         */
+        void onHeaderStateChanged();
+
+        /**
+         * 底部的状态发生变化，需要更新底部信息栏
+         */
+        void onFooterStateChanged();
+
+        /**
+         * 已开始下拉刷新
+         *
+         * @param ticket 本次刷新的凭证
+         * @param token  本次刷新的取消标记
+         */
+        void onRefreshStarted(int ticket, LoadToken token);
+
+        /**
+         * 下拉刷新已结束，状态已恢复为完成
+         *
+         * @param completed 是否为正常完成，被取消时为false
+         */
+        void onRefreshFinished(boolean completed);
+
+        /**
+         * 已开始上拉加载
+         *
+         * @param ticket 本次加载的凭证
+         * @param token  本次加载的取消标记
+         */
+        void onLoadMoreStarted(int ticket, LoadToken token);
+
+        /**
+         * 上拉加载已结束，状态已恢复为完成，失败时为加载失败. 底部信息栏只需按当前状态更新一次
+         *
+         * @param completed 是否为正常完成，被取消或失败时为false
+         */
+        void onLoadMoreFinished(boolean completed);
+
+        /**
+         * 加载失败后已安排自动重试，到时后需调用{@link #retryLoadMore(long)}
+         *
+         * @param attempt 第几次重试
+         * @param delay   重试间隔，单位：毫秒
+         */
+        void onRetryScheduled(int attempt, long delay);
+
+        /**
+         * 自动重试次数已用完
+         *
+         * @param attempts 已重试的次数
+         */
+        void onRetriesExhausted(int attempts);
+    }
+
+    private final PullStateMachine mPull = new PullStateMachine();
+
+    private final ScrollTracker mScrollTracker = new ScrollTracker();
+
+    private final RetryBackoff mRetryBackoff = new RetryBackoff();
+
+    private final Callback mCallback;
+
+    private int mLoadPolicy = POLICY_PARALLEL;
+
+    private boolean mCanLoadMore = true;
+
+    private boolean mAutoLoadEnabled;
+
+    /**
+     * 上拉加载是否处于失败状态，不随手势变化
+     */
+    private boolean mLoadMoreFailed;
+
+    private int mLastTicket = NO_TICKET;
+
+    private volatile int mRefreshTicket = NO_TICKET;
+
+    private volatile int mLoadMoreTicket = NO_TICKET;
+
+    private LoadToken mRefreshToken;
+
+    private LoadToken mLoadMoreToken;
+
+    /**
+     * @param callback 流程变化的回调
+     */
+    public RefreshController(Callback callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("callback不可为null");
+        }
+        mCallback = callback;
+    }
+
+    /**
+     * @return 手势状态机，控件将触摸事件交给它处理
+     */
+    public PullStateMachine getPullStateMachine() {
+        return mPull;
+    }
+
+    /**
+     * @return 自动加载的滑动跟踪
+     */
+    public ScrollTracker getScrollTracker() {
+        return mScrollTracker;
+    }
+
+    /**
+     * @return 加载失败后自动重试的退避
+     */
+    public RetryBackoff getRetryBackoff() {
+        return mRetryBackoff;
+    }
+
+    /**
+     * @param policy 加载策略
+     */
+    public void setLoadPolicy(int policy) {
+        if (policy < POLICY_PARALLEL || policy > POLICY_EXCLUSIVE) {
+            throw new IllegalArgumentException("加载策略不合法: " + policy);
+        }
+        mLoadPolicy = policy;
+    }
+
+    /**
+     * @param canLoadMore 上拉加载是否可用
+     */
+    public void setCanLoadMore(boolean canLoadMore) {
+        mCanLoadMore = canLoadMore;
+    }
+
+    /**
+     * @return 上拉加载是否可用
+     */
+    public boolean canLoadMore() {
+        return mCanLoadMore;
+    }
+
+    /**
+     * @param enabled 是否在滑动到底部附近时自动加载
+     */
+    public void setAutoLoadEnabled(boolean enabled) {
+        mAutoLoadEnabled = enabled;
+    }
+
+    /**
+     * @return 是否在滑动到底部附近时自动加载
+     */
+    public boolean isAutoLoadEnabled() {
+        return mAutoLoadEnabled;
+    }
+
+    /**
+     * 列表滑动
+     *
+     * @param firstVisibleItem 第一个可见条目的序号
+     * @param visibleItemCount 可见条目数
+     * @param totalItemCount   总条目数，包括顶部及底部信息栏
+     * @param footerCount      底部信息栏的个数
+     * @param scrolling        是否正在滑动
+     * @param now              当前时间，单位：毫秒
+     */
+    public void onScroll(int firstVisibleItem, int visibleItemCount, int totalItemCount,
+                         int footerCount, boolean scrolling, long now) {
+        mScrollTracker.onScroll(firstVisibleItem, scrolling, now);
+        if (scrolling && mAutoLoadEnabled && mCanLoadMore && !mLoadMoreFailed
+                && mPull.getLoadMoreState() != REFRESHING
+                && mScrollTracker.shouldLoadMore(firstVisibleItem, visibleItemCount,
+                totalItemCount, footerCount)) {
+            startLoadMore(now);
+        }
+    }
+
+    /**
+     * 列表的滑动状态变化
+     *
+     * @param idle          是否已停止滑动
+     * @param footerVisible 底部信息栏是否可见
+     * @param now           当前时间，单位：毫秒
+     */
+    public void onScrollStateChanged(boolean idle, boolean footerVisible, long now) {
+        if (idle) {
+            mScrollTracker.onScrollIdle();
+        }
+        if (footerVisible && mAutoLoadEnabled && mCanLoadMore && !mLoadMoreFailed) {
+            // 加载失败后由退避控制重试，不随滑动重复请求
+            startLoadMore(now);
+        }
+    }
+
+    /**
+     * 开始下拉刷新，正在刷新时返回当前的凭证
+     *
+     * @return 本次刷新的凭证，被加载策略拒绝时返回{@link #NO_TICKET}
+     */
+    public int startRefresh() {
+        if (mPull.getRefreshState() == REFRESHING) {
+            return mRefreshTicket;
+        }
+        if (mPull.getLoadMoreState() == REFRESHING) {
+            if (mLoadPolicy == POLICY_EXCLUSIVE) {
+                mPull.setRefreshState(DONE);
+                mCallback.onHeaderStateChanged();
+                return NO_TICKET;
+            }
+            if (mLoadPolicy == POLICY_REFRESH_SUPERSEDES_LOAD_MORE) {
+                cancelLoadMore(LoadToken.REASON_SUPERSEDED);
+            }
+        }
+        mPull.setRefreshState(REFRESHING);
+        mRefreshTicket = nextTicket();
+        mRefreshToken = new LoadToken(mRefreshTicket);
+        mCallback.onRefreshStarted(mRefreshTicket, mRefreshToken);
+        return mRefreshTicket;
+    }
+
+    /**
+     * 开始上拉加载，正在加载时返回当前的凭证
+     *
+     * @param now 当前时间，单位：毫秒
+     * @return 本次加载的凭证，被加载策略拒绝时返回{@link #NO_TICKET}
+     */
+    public int startLoadMore(long now) {
+        if (mPull.getLoadMoreState() == REFRESHING) {
+            return mLoadMoreTicket;
+        }
+        if (mPull.getRefreshState() == REFRESHING && mLoadPolicy != POLICY_PARALLEL) {
+            mPull.setLoadMoreState(mLoadMoreFailed ? LOAD_FAILED : DONE);
+            mCallback.onFooterStateChanged();
+            return NO_TICKET;
+        }
+        mLoadMoreFailed = false;
+        mPull.setLoadMoreState(REFRESHING);
+        mLoadMoreTicket = nextTicket();
+        mLoadMoreToken = new LoadToken(mLoadMoreTicket);
+        mScrollTracker.onLoadMoreStarted(now);
+        mCallback.onLoadMoreStarted(mLoadMoreTicket, mLoadMoreToken);
+        return mLoadMoreTicket;
+    }
+
+    /**
+     * 自动重试的时间已到，仍处于失败状态时重新加载
+     *
+     * @param now 当前时间，单位：毫秒
+     */
+    public void retryLoadMore(long now) {
+        if (mLoadMoreFailed && mCanLoadMore && mPull.getLoadMoreState() != REFRESHING) {
+            startLoadMore(now);
+        }
+    }
+
+    /**
+     * 结束正在进行的下拉刷新
+     *
+     * @return 是否结束了正在进行的刷新
+     */
+    public boolean completeRefresh() {
+        if (mPull.getRefreshState() != REFRESHING) {
+            return false;
+        }
+        finishRefresh(true);
+        return true;
+    }
+
+    /**
+     * 结束指定凭证对应的下拉刷新
+     *
+     * @param ticket 开始刷新时得到的凭证
+     * @return 是否结束了正在进行的刷新，凭证已过期时返回false
+     */
+    public boolean completeRefresh(int ticket) {
+        if (ticket == NO_TICKET || ticket != mRefreshTicket) {
+            return false;
+        }
+        finishRefresh(true);
+        return true;
+    }
+
+    /**
+     * 结束正在进行的上拉加载
+     *
+     * @param now 当前时间，单位：毫秒
+     * @return 是否结束了正在进行的加载
+     */
+    public boolean completeLoadMore(long now) {
+        if (mPull.getLoadMoreState() != REFRESHING) {
+            return false;
+        }
+        finishLoadMore(true, now);
+        return true;
+    }
+
+    /**
+     * 结束指定凭证对应的上拉加载
+     *
+     * @param ticket 开始加载时得到的凭证
+     * @param now    当前时间，单位：毫秒
+     * @return 是否结束了正在进行的加载，凭证已过期时返回false
+     */
+    public boolean completeLoadMore(int ticket, long now) {
+        if (ticket == NO_TICKET || ticket != mLoadMoreTicket) {
+            return false;
+        }
+        finishLoadMore(true, now);
+        return true;
+    }
+
+    /**
+     * 正在进行的上拉加载失败
+     *
+     * @return 是否结束了正在进行的加载
+     */
+    public boolean failLoadMore() {
+        if (mPull.getLoadMoreState() != REFRESHING) {
+            return false;
+        }
+        fail();
+        return true;
+    }
+
+    /**
+     * 指定凭证对应的上拉加载失败
+     *
+     * @param ticket 开始加载时得到的凭证
+     * @return 是否结束了正在进行的加载，凭证已过期时返回false
+     */
+    public boolean failLoadMore(int ticket) {
+        if (ticket == NO_TICKET || ticket != mLoadMoreTicket) {
+            return false;
+        }
+        fail();
+        return true;
+    }
+
+    /**
+     * 恢复保存的失败状态，不安排自动重试
+     */
+    public void restoreLoadMoreFailed() {
+        if (mPull.getLoadMoreState() == DONE) {
+            mLoadMoreFailed = true;
+            mPull.setLoadMoreState(LOAD_FAILED);
+            mCallback.onFooterStateChanged();
+        }
+    }
+
+    /**
+     * 取消正在进行的下拉刷新
+     *
+     * @param reason 取消原因，见{@link LoadToken}
+     */
+    public void cancelRefresh(int reason) {
+        if (mPull.getRefreshState() != REFRESHING) {
+            return;
+        }
+        LoadToken token = mRefreshToken;
+        finishRefresh(false);
+        if (token != null) {
+            token.cancel(reason);
+        }
+    }
+
+    /**
+     * 取消正在进行的上拉加载
+     *
+     * @param reason 取消原因，见{@link LoadToken}
+     */
+    public void cancelLoadMore(int reason) {
+        if (mPull.getLoadMoreState() != REFRESHING) {
+            return;
+        }
+        LoadToken token = mLoadMoreToken;
+        finishLoadMore(false, 0);
+        if (token != null) {
+            token.cancel(reason);
+        }
+    }
+
+    /**
+     * @return 正在进行的下拉刷新的凭证，可在任意线程调用
+     */
+    public int getRefreshTicket() {
+        return mRefreshTicket;
+    }
+
+    /**
+     * @return 正在进行的上拉加载的凭证，可在任意线程调用
+     */
+    public int getLoadMoreTicket() {
+        return mLoadMoreTicket;
+    }
+
+    /**
+     * @return 正在进行的下拉刷新的取消标记
+     */
+    public LoadToken getRefreshToken() {
+        return mRefreshToken;
+    }
+
+    /**
+     * @return 正在进行的上拉加载的取消标记
+     */
+    public LoadToken getLoadMoreToken() {
+        return mLoadMoreToken;
+    }
+
+    /**
+     * @return 是否正在下拉刷新
+     */
+    public boolean isRefreshing() {
+        return mPull.getRefreshState() == REFRESHING;
+    }
+
+    /**
+     * @return 是否正在上拉加载
+     */
+    public boolean isLoadingMore() {
+        return mPull.getLoadMoreState() == REFRESHING;
+    }
+
+    /**
+     * @return 上拉加载是否处于失败状态
+     */
+    public boolean isLoadMoreFailed() {
+        return mLoadMoreFailed;
+    }
+
+    private int nextTicket() {
+        mLastTicket++;
+        if (mLastTicket == NO_TICKET) {
+            mLastTicket++;
+        }
+        return mLastTicket;
+    }
+
+    private void finishRefresh(boolean completed) {
+        mRefreshTicket = NO_TICKET;
+        mRefreshToken = null;
+        mPull.setRefreshState(DONE);
+        mCallback.onRefreshFinished(completed);
+        if (completed && mLoadMoreFailed) {
+            // 刷新后数据已重新加载，清除上拉加载的失败状态
+            mLoadMoreFailed = false;
+            mRetryBackoff.reset();
+            int state = mPull.getLoadMoreState();
+            if (state == LOAD_FAILED) {
+                mPull.setLoadMoreState(DONE);
+                mCallback.onFooterStateChanged();
+            } else if (state != REFRESHING && state != DONE) {
+                // 正在上拉，松手时不再恢复为失败状态
+                mPull.clearRaiseFromFailed();
+            }
+        }
+    }
+
+    private void finishLoadMore(boolean completed, long now) {
+        if (completed) {
+            mScrollTracker.onLoadMoreCompleted(now);
+            mRetryBackoff.reset();
+        }
+        clearLoadMore();
+        mPull.setLoadMoreState(DONE);
+        mCallback.onLoadMoreFinished(completed);
+    }
+
+    /**
+     * 作废当前上拉加载的凭证及取消标记
+     */
+    private void clearLoadMore() {
+        mLoadMoreTicket = NO_TICKET;
+        mLoadMoreToken = null;
+    }
+
+    private void fail() {
+        clearLoadMore();
+        mLoadMoreFailed = true;
+        // 直接进入失败状态，底部信息栏只更新一次
+        mPull.setLoadMoreState(LOAD_FAILED);
+        mCallback.onLoadMoreFinished(false);
+        if (!mAutoLoadEnabled) {
+            return;
+        }
+        if (mRetryBackoff.canRetry()) {
+            long delay = mRetryBackoff.nextDelay();
+            mCallback.onRetryScheduled(mRetryBackoff.getAttempt(), delay);
+        } else {
+            mCallback.onRetriesExhausted(mRetryBackoff.getAttempt());
+        }
+    }
+}
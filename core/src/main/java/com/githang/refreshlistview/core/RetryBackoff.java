@@ -0,0 +1,114 @@
+package com.githang.refreshlistview.core;
+
+import java.util.Random;
+
+/**
+ * 加载失败后自动重试的指数退避.
+ *
+ * 第n次重试的基础间隔为 初始间隔 * 2^(n-1)，不超过最大间隔，实际间隔在基础间隔的一半到基础间隔之间随机取值，
+ * 避免大量客户端在同一时刻重试. 超过最大重试次数后不再自动重试，成功后需调用{@link #reset()}.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class RetryBackoff {
+
+    /**
+     * 默认的初始间隔，单位：毫秒
+     */
+    public static final long DEFAULT_INITIAL_DELAY = 1000;
+
+    /**
+     * 默认的最大间隔，单位：毫秒
+     */
+    public static final long DEFAULT_MAX_DELAY = 30000;
+
+    /**
+     * 默认的最大重试次数
+     */
+    public static final int DEFAULT_MAX_RETRIES = 5;
+
+    private final Random mRandom;
+
+    private long mInitialDelay = DEFAULT_INITIAL_DELAY;
+
+    private long mMaxDelay = DEFAULT_MAX_DELAY;
+
+    private int mMaxRetries = DEFAULT_MAX_RETRIES;
+
+    /**
+     * 已进行的重试次数
+     */
+    private int mAttempt;
+
+    public RetryBackoff() {
+        this(new Random());
+    }
+
+    /**
+     * @param random 随机数生成器，可传入固定种子的实例以得到确定的结果
+     */
+    public RetryBackoff(Random random) {
+        mRandom = random;
+    }
+
+    /**
+     * 设置重试间隔
+     *
+     * @param initialDelay 第一次重试的基础间隔，单位：毫秒
+     * @param maxDelay     最大的基础间隔，单位：毫秒
+     */
+    public void setDelays(long initialDelay, long maxDelay) {
+        if (initialDelay <= 0 || maxDelay < initialDelay) {
+            throw new IllegalArgumentException("重试间隔不合法");
+        }
+        mInitialDelay = initialDelay;
+        mMaxDelay = maxDelay;
+    }
+
+    /**
+     * @param maxRetries 最大的自动重试次数，为0时不自动重试
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("重试次数不可小于0");
+        }
+        mMaxRetries = maxRetries;
+    }
+
+    /**
+     * @return 是否还可以自动重试
+     */
+    public boolean canRetry() {
+        return mAttempt < mMaxRetries;
+    }
+
+    /**
+     * 计算下一次重试的间隔，并将重试次数加1
+     *
+     * @return 重试间隔，单位：毫秒
+     */
+    public long nextDelay() {
+        long base = mInitialDelay;
+        for (int i = 0; i < mAttempt && base < mMaxDelay; i++) {
+            base <<= 1;
+        }
+        base = Math.min(base, mMaxDelay);
+        mAttempt++;
+        long half = base / 2;
+        return half + (long) (mRandom.nextDouble() * (base - half));
+    }
+
+    /**
+     * @return 已进行的重试次数
+     */
+    public int getAttempt() {
+        return mAttempt;
+    }
+
+    /**
+     * 重置重试次数，在加载成功后调用
+     */
+    public void reset() {
+        mAttempt = 0;
+    }
+}
@@ -0,0 +1,158 @@
+package com.githang.refreshlistview.core;
+
+/**
+ * 根据列表的滑动位置判断是否需要自动加载更多.
+ *
+ * 支持固定的预加载距离，以及根据滑动速度和最近几次加载的耗时自适应调整的预加载距离.
+ * 不依赖Android的View，时间由调用方传入. 所有方法均不分配对象.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class ScrollTracker {
+
+    /**
+     * 预加载距离，即距离列表末尾还剩多少条数据时开始自动加载
+     */
+    private int mPrefetchDistance;
+
+    /**
+     * 是否根据滑动速度及加载耗时自适应调整预加载距离
+     */
+    private boolean mAdaptivePrefetchEnabled;
+
+    /**
+     * 上次onScroll时第一个可见条目的序号
+     */
+    private int mLastFirstItem;
+
+    /**
+     * 上次第一个可见条目变化的时间
+     */
+    private long mLastScrollTime;
+
+    /**
+     * 向下滑动的速度，单位：条/毫秒
+     */
+    private float mScrollSpeed;
+
+    /**
+     * 本次上拉加载的开始时间
+     */
+    private long mLoadMoreStartTime;
+
+    /**
+     * 最近几次上拉加载的平均耗时，单位：毫秒
+     */
+    private long mAverageLoadMoreDuration;
+
+    /**
+     * @param distance 距离列表末尾还剩多少条数据时开始加载
+     */
+    public void setPrefetchDistance(int distance) {
+        if (distance < 0) {
+            throw new IllegalArgumentException("预加载距离不可小于0");
+        }
+        mPrefetchDistance = distance;
+    }
+
+    /**
+     * @param enabled 是否根据滑动速度及加载耗时自适应调整预加载距离
+     */
+    public void setAdaptivePrefetchEnabled(boolean enabled) {
+        mAdaptivePrefetchEnabled = enabled;
+    }
+
+    /**
+     * 滑动停止
+     */
+    public void onScrollIdle() {
+        mScrollSpeed = 0;
+        // 重新开始滑动时以第一次onScroll为起点，不把停止的时间计入速度
+        mLastScrollTime = 0;
+    }
+
+    /**
+     * 列表滑动，根据第一个可见条目的变化估算向下滑动的速度
+     *
+     * @param firstVisibleItem 第一个可见条目的序号
+     * @param scrolling        是否正在滑动
+     * @param now              当前时间，单位：毫秒
+     */
+    public void onScroll(int firstVisibleItem, boolean scrolling, long now) {
+        if (firstVisibleItem == mLastFirstItem && mLastScrollTime != 0) {
+            // 条目较高时会在同一个条目内滑动多帧，此时不能当作速度为0，等到条目变化时按整段时间计算
+            return;
+        }
+        long elapsed = now - mLastScrollTime;
+        if (scrolling && mLastScrollTime > 0 && elapsed > 0) {
+            float speed = Math.max(0, firstVisibleItem - mLastFirstItem) / (float) elapsed;
+            // 简单平滑，避免单次抖动造成过大的误差
+            mScrollSpeed = (mScrollSpeed + speed) / 2;
+        }
+        mLastFirstItem = firstVisibleItem;
+        mLastScrollTime = now;
+    }
+
+    /**
+     * 判断是否已进入预加载距离
+     *
+     * @param firstVisibleItem 第一个可见条目的序号
+     * @param visibleItemCount 可见条目数
+     * @param totalItemCount   总条目数，包括顶部及底部信息栏
+     * @param footerCount      底部信息栏的个数
+     * @return 是否需要开始加载
+     */
+    public boolean shouldLoadMore(int firstVisibleItem, int visibleItemCount, int totalItemCount,
+                                  int footerCount) {
+        // 剩余未展示的数据条数，不包括底部信息栏
+        int remaining = totalItemCount - footerCount - (firstVisibleItem + visibleItemCount);
+        return remaining <= getEffectivePrefetchDistance();
+    }
+
+    /**
+     * 获取实际的预加载距离. 自适应模式下为按当前速度在一次加载的耗时内会滑过的条目数
+     *
+     * @return 预加载距离
+     */
+    public int getEffectivePrefetchDistance() {
+        if (!mAdaptivePrefetchEnabled || mAverageLoadMoreDuration <= 0) {
+            return mPrefetchDistance;
+        }
+        int adaptive = (int) Math.ceil(mScrollSpeed * mAverageLoadMoreDuration);
+        return Math.max(mPrefetchDistance, adaptive);
+    }
+
+    /**
+     * 开始上拉加载
+     *
+     * @param now 当前时间，单位：毫秒
+     */
+    public void onLoadMoreStarted(long now) {
+        mLoadMoreStartTime = now;
+    }
+
+    /**
+     * 上拉加载完成，记录本次耗时
+     *
+     * @param now 当前时间，单位：毫秒
+     */
+    public void onLoadMoreCompleted(long now) {
+        long duration = now - mLoadMoreStartTime;
+        mAverageLoadMoreDuration = mAverageLoadMoreDuration <= 0 ? duration
+                : (mAverageLoadMoreDuration * 3 + duration) / 4;
+    }
+
+    /**
+     * @return 向下滑动的速度，单位：条/毫秒
+     */
+    public float getScrollSpeed() {
+        return mScrollSpeed;
+    }
+
+    /**
+     * @return 最近几次上拉加载的平均耗时，单位：毫秒
+     */
+    public long getAverageLoadMoreDuration() {
+        return mAverageLoadMoreDuration;
+    }
+}
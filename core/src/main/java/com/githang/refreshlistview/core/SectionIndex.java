@@ -0,0 +1,184 @@
+package com.githang.refreshlistview.core;
+
+/**
+ * 分组索引，记录每个分组的标题及起始序号，用于快速滑动.
+ *
+ * 相邻且分组标题相同的条目属于同一分组. 对象创建后不再修改，可在线程间传递；
+ * {@link #append(String[], int)}在末尾追加一页条目并返回新的索引，只处理新增的条目.
+ * 没有新增分组时新索引与原索引共用分组数组，不分配新的数组，{@link #getSections()}返回同一个对象.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public final class SectionIndex {
+
+    /**
+     * 分组标题为null时使用的标题
+     */
+    public static final String NULL_SECTION = "#";
+
+    /**
+     * 空索引
+     */
+    public static final SectionIndex EMPTY = new SectionIndex(new String[0], new int[0], 0, 0);
+
+    /**
+     * 分组标题，长度可能大于分组数，多出的部分为追加时预留
+     */
+    private final String[] mSections;
+
+    /**
+     * 每个分组的起始序号，与mSections一一对应
+     */
+    private final int[] mStarts;
+
+    private final int mSectionCount;
+
+    /**
+     * 已建立索引的条目数
+     */
+    private final int mCount;
+
+    /**
+     * 返回给快速滑动的分组标题，分组未变化时保持为同一个对象
+     */
+    private final String[] mPublicSections;
+
+    private SectionIndex(String[] sections, int[] starts, int sectionCount, int count) {
+        this(sections, starts, sectionCount, count, copyOf(sections, sectionCount));
+    }
+
+    private SectionIndex(String[] sections, int[] starts, int sectionCount, int count,
+                         String[] publicSections) {
+        mSections = sections;
+        mStarts = starts;
+        mSectionCount = sectionCount;
+        mCount = count;
+        mPublicSections = publicSections;
+    }
+
+    /**
+     * 在末尾追加条目
+     *
+     * @param keys   新增条目的分组标题
+     * @param length 新增的条目数，取keys的前length个
+     * @return 追加后的索引，length为0时返回自身
+     */
+    public SectionIndex append(String[] keys, int length) {
+        if (length < 0 || length > keys.length) {
+            throw new IllegalArgumentException("length不合法: " + length);
+        }
+        if (length == 0) {
+            return this;
+        }
+        String[] sections = mSections;
+        int[] starts = mStarts;
+        int sectionCount = mSectionCount;
+        String last = sectionCount > 0 ? sections[sectionCount - 1] : null;
+        for (int i = 0; i < length; i++) {
+            String key = keys[i] != null ? keys[i] : NULL_SECTION;
+            if (key.equals(last)) {
+                continue;
+            }
+            if (sections == mSections || sectionCount == sections.length) {
+                // 原数组可能被其他索引共用，有新分组时复制后再写入
+                int capacity = Math.max(sectionCount + (sectionCount >> 1), sectionCount + 4);
+                sections = copyOf(sections, capacity, sectionCount);
+                starts = copyOf(starts, capacity, sectionCount);
+            }
+            sections[sectionCount] = key;
+            starts[sectionCount] = mCount + i;
+            sectionCount++;
+            last = key;
+        }
+        if (sectionCount == mSectionCount) {
+            return new SectionIndex(mSections, mStarts, sectionCount, mCount + length,
+                    mPublicSections);
+        }
+        return new SectionIndex(sections, starts, sectionCount, mCount + length);
+    }
+
+    /**
+     * @return 已建立索引的条目数
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return 分组数
+     */
+    public int getSectionCount() {
+        return mSectionCount;
+    }
+
+    /**
+     * @return 分组标题，不可修改，分组未变化时总是返回同一个对象
+     */
+    public String[] getSections() {
+        return mPublicSections;
+    }
+
+    /**
+     * @param other 另一个索引
+     * @return 两个索引的分组标题是否相同，此时可直接替换而不需要通知快速滑动重新获取分组
+     */
+    public boolean hasSameSections(SectionIndex other) {
+        return other != null && other.mPublicSections == mPublicSections;
+    }
+
+    /**
+     * @param section 分组序号，超出范围时取最近的分组
+     * @return 分组的起始序号，没有分组时返回0
+     */
+    public int getPositionForSection(int section) {
+        if (mSectionCount == 0) {
+            return 0;
+        }
+        if (section < 0) {
+            section = 0;
+        } else if (section >= mSectionCount) {
+            section = mSectionCount - 1;
+        }
+        return mStarts[section];
+    }
+
+    /**
+     * @param position 条目序号，超出已建立索引的范围时取最近的分组
+     * @return 条目所在的分组序号，没有分组时返回0
+     */
+    public int getSectionForPosition(int position) {
+        int low = 0;
+        int high = mSectionCount - 1;
+        if (high <= 0 || position <= 0) {
+            return 0;
+        }
+        // 查找最后一个起始序号不大于position的分组
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mStarts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static String[] copyOf(String[] array, int length) {
+        String[] copy = new String[length];
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+
+    private static String[] copyOf(String[] array, int capacity, int length) {
+        String[] copy = new String[capacity];
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+
+    private static int[] copyOf(int[] array, int capacity, int length) {
+        int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+}
@@ -0,0 +1,277 @@
+package com.githang.refreshlistview.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link DiskPageCache}的测试，使用临时目录
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class DiskPageCacheTest {
+
+    private static final DiskPageCache.Codec<String> CODEC = new DiskPageCache.Codec<String>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    /**
+     * 写入一部分后失败的读写
+     */
+    private static final DiskPageCache.Codec<String> FAILING_CODEC = new DiskPageCache.Codec<String>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            out.writeUTF(value);
+            throw new IOException("写入中断");
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("page-cache", "");
+        assertTrue(mDirectory.delete());
+        assertTrue(mDirectory.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(mDirectory);
+    }
+
+    @Test
+    public void putAndGet() throws IOException {
+        DiskPageCache cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        cache.put("page-1", "hello", CODEC, 100);
+        DiskPageCache.Entry<String> entry = cache.get("page-1", CODEC);
+        assertNotNull(entry);
+        assertEquals("hello", entry.value);
+        assertEquals(100, entry.timestamp);
+        assertNull(cache.get("page-2", CODEC));
+    }
+
+    @Test
+    public void putOverwrites() throws IOException {
+        DiskPageCache cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        cache.put("page-1", "old", CODEC, 100);
+        long oldSize = cache.size();
+        cache.put("page-1", "new value", CODEC, 200);
+        assertEquals(1, cache.entryCount());
+        assertEquals(oldSize + "new value".length() - "old".length(), cache.size());
+        DiskPageCache.Entry<String> entry = cache.get("page-1", CODEC);
+        assertEquals("new value", entry.value);
+        assertEquals(200, entry.timestamp);
+    }
+
+    @Test
+    public void reopenKeepsEntries() throws IOException {
+        new DiskPageCache(mDirectory, 1024 * 1024, 10).put("page-1", "hello", CODEC, 100);
+        DiskPageCache cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        assertEquals(1, cache.entryCount());
+        assertEquals("hello", cache.get("page-1", CODEC).value);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedByEntryCount() throws IOException {
+        DiskPageCache cache = new DiskPageCache(mDirectory, 1024 * 1024, 3);
+        cache.put("a", "1", CODEC, 0);
+        cache.put("b", "2", CODEC, 0);
+        cache.put("c", "3", CODEC, 0);
+        // 访问a后，b成为最久未使用的条目
+        assertNotNull(cache.get("a", CODEC));
+        cache.put("d", "4", CODEC, 0);
+        assertEquals(3, cache.entryCount());
+        assertNull(cache.get("b", CODEC));
+        assertNotNull(cache.get("a", CODEC));
+        assertNotNull(cache.get("c", CODEC));
+        assertNotNull(cache.get("d", CODEC));
+        assertEquals(3, countFiles(".page"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBySize() throws IOException {
+        DiskPageCache probe = new DiskPageCache(new File(mDirectory, "probe"), 1024 * 1024, 10);
+        probe.put("a", value(100), CODEC, 0);
+        long entrySize = probe.size();
+
+        DiskPageCache cache = new DiskPageCache(mDirectory, entrySize * 2 + entrySize / 2, 100);
+        cache.put("a", value(100), CODEC, 0);
+        cache.put("b", value(100), CODEC, 0);
+        assertNotNull(cache.get("a", CODEC));
+        cache.put("c", value(100), CODEC, 0);
+        assertEquals(2, cache.entryCount());
+        assertTrue(cache.size() <= entrySize * 2 + entrySize / 2);
+        assertNull(cache.get("b", CODEC));
+        assertNotNull(cache.get("a", CODEC));
+        assertNotNull(cache.get("c", CODEC));
+    }
+
+    @Test
+    public void oversizedEntryIsNotKept() throws IOException {
+        DiskPageCache cache = new DiskPageCache(mDirectory, 64, 10);
+        cache.put("a", value(1000), CODEC, 0);
+        assertEquals(0, cache.entryCount());
+        assertEquals(0, cache.size());
+        assertEquals(0, countFiles(".page"));
+    }
+
+    @Test
+    public void failedWriteKeepsOldEntry() throws IOException {
+        DiskPageCache cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        cache.put("page-1", "old", CODEC, 100);
+        long size = cache.size();
+        try {
+            cache.put("page-1", "new", FAILING_CODEC, 200);
+            fail();
+        } catch (IOException expected) {
+            // 预期的异常
+        }
+        assertEquals(0, countFiles(".tmp"));
+        assertEquals(size, cache.size());
+        DiskPageCache.Entry<String> entry = cache.get("page-1", CODEC);
+        assertEquals("old", entry.value);
+        assertEquals(100, entry.timestamp);
+    }
+
+    @Test
+    public void leftoverTempFileIsIgnored() throws IOException {
+        new DiskPageCache(mDirectory, 1024 * 1024, 10).put("page-1", "hello", CODEC, 100);
+        // 模拟进程在写临时文件时中断
+        File temp = new File(mDirectory, findFile(".page").getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        out.write(new byte[]{1, 2, 3});
+        out.close();
+
+        DiskPageCache cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        assertEquals(1, cache.entryCount());
+        assertEquals("hello", cache.get("page-1", CODEC).value);
+        assertFalse(temp.exists());
+    }
+
+    @Test
+    public void truncatedFileIsRemoved() throws IOException {
+        DiskPageCache cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        cache.put("page-1", "hello", CODEC, 100);
+        File file = findFile(".page");
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 2);
+        raf.close();
+
+        cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        assertNull(cache.get("page-1", CODEC));
+        assertEquals(0, cache.entryCount());
+        assertEquals(0, cache.size());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void versionMismatchIsRemoved() throws IOException {
+        DiskPageCache cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        cache.put("page-1", "hello", CODEC, 100);
+        File file = findFile(".page");
+        // 版本位于魔数之后
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(4);
+        raf.writeByte(99);
+        raf.close();
+
+        assertNull(cache.get("page-1", CODEC));
+        assertEquals(0, cache.entryCount());
+        assertFalse(file.exists());
+        cache.put("page-1", "again", CODEC, 200);
+        assertEquals("again", cache.get("page-1", CODEC).value);
+    }
+
+    @Test
+    public void garbageFileIsRemoved() throws IOException {
+        DiskPageCache cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        cache.put("page-1", "hello", CODEC, 100);
+        File file = findFile(".page");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("not a page".getBytes("UTF-8"));
+        out.close();
+
+        cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        assertNull(cache.get("page-1", CODEC));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void removeAndClear() throws IOException {
+        DiskPageCache cache = new DiskPageCache(mDirectory, 1024 * 1024, 10);
+        cache.put("a", "1", CODEC, 0);
+        cache.put("b", "2", CODEC, 0);
+        cache.remove("a");
+        assertNull(cache.get("a", CODEC));
+        assertEquals(1, cache.entryCount());
+        cache.clear();
+        assertEquals(0, cache.entryCount());
+        assertEquals(0, cache.size());
+        assertEquals(0, countFiles(".page"));
+    }
+
+    private static String value(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append('x');
+        }
+        return sb.toString();
+    }
+
+    private int countFiles(String suffix) {
+        int count = 0;
+        for (File file : mDirectory.listFiles()) {
+            if (file.getName().endsWith(suffix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private File findFile(String suffix) {
+        for (File file : mDirectory.listFiles()) {
+            if (file.getName().endsWith(suffix)) {
+                return file;
+            }
+        }
+        throw new AssertionError("没有找到" + suffix + "文件");
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
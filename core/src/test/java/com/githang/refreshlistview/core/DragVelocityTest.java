@@ -0,0 +1,106 @@
+package com.githang.refreshlistview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link DragVelocity}的测试
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class DragVelocityTest {
+
+    private static final float DELTA = 0.01f;
+
+    private DragVelocity mVelocity;
+
+    @Before
+    public void setUp() {
+        mVelocity = new DragVelocity();
+    }
+
+    @Test
+    public void notEnoughSamples() {
+        assertEquals(0, mVelocity.getVelocity(), 0);
+        mVelocity.addSample(100, 1000);
+        assertEquals(0, mVelocity.getVelocity(), 0);
+    }
+
+    @Test
+    public void constantSpeedDown() {
+        // 每16毫秒移动32像素，即2000像素/秒
+        for (int i = 0; i < 6; i++) {
+            mVelocity.addSample(100 + i * 32, 1000 + i * 16);
+        }
+        assertEquals(2000, mVelocity.getVelocity(), DELTA);
+    }
+
+    @Test
+    public void constantSpeedUp() {
+        for (int i = 0; i < 6; i++) {
+            mVelocity.addSample(500 - i * 8, 1000 + i * 16);
+        }
+        assertEquals(-500, mVelocity.getVelocity(), DELTA);
+    }
+
+    @Test
+    public void onlyRecentSamplesCount() {
+        // 先停留，最后100毫秒内以1000像素/秒移动，更早的采样不参与计算
+        long time = 1000;
+        for (int i = 0; i < 10; i++) {
+            mVelocity.addSample(0, time);
+            time += 10;
+        }
+        for (int i = 1; i <= 10; i++) {
+            mVelocity.addSample(i * 10, time);
+            time += 10;
+        }
+        assertEquals(1000, mVelocity.getVelocity(), DELTA);
+    }
+
+    @Test
+    public void stalePreviousSamplesAreIgnored() {
+        // 两次采样间隔超过计算范围，只剩一个有效采样
+        mVelocity.addSample(0, 1000);
+        mVelocity.addSample(500, 1200);
+        assertEquals(0, mVelocity.getVelocity(), 0);
+    }
+
+    @Test
+    public void sameTimestamp() {
+        mVelocity.addSample(0, 1000);
+        mVelocity.addSample(50, 1000);
+        assertEquals(0, mVelocity.getVelocity(), 0);
+    }
+
+    @Test
+    public void historyWrapsAround() {
+        // 超过保存的采样个数后覆盖最早的采样
+        for (int i = 0; i < 50; i++) {
+            mVelocity.addSample(i * 5, 1000 + i * 4);
+        }
+        assertEquals(1250, mVelocity.getVelocity(), DELTA);
+    }
+
+    @Test
+    public void fitSmoothsJitter() {
+        // 1000像素/秒，位置交替偏移±2像素
+        for (int i = 0; i < 8; i++) {
+            mVelocity.addSample(i * 10 + ((i & 1) == 0 ? 2 : -2), 1000 + i * 10);
+        }
+        assertEquals(1000, mVelocity.getVelocity(), 100);
+    }
+
+    @Test
+    public void resetClearsSamples() {
+        mVelocity.addSample(0, 1000);
+        mVelocity.addSample(100, 1050);
+        mVelocity.reset();
+        assertEquals(0, mVelocity.getVelocity(), 0);
+        mVelocity.addSample(0, 2000);
+        mVelocity.addSample(-20, 2010);
+        assertEquals(-2000, mVelocity.getVelocity(), DELTA);
+    }
+}
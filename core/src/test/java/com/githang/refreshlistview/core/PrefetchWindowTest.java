@@ -0,0 +1,150 @@
+package com.githang.refreshlistview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link PrefetchWindow}的测试
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class PrefetchWindowTest {
+
+    private static final int VISIBLE = 10;
+
+    private static final int TOTAL = 100;
+
+    private PrefetchWindow mWindow;
+
+    private RecordingCallback mCallback;
+
+    @Before
+    public void setUp() {
+        mWindow = new PrefetchWindow();
+        // 速度为0.125条/毫秒时窗口为10条
+        mWindow.setLookahead(80);
+        mCallback = new RecordingCallback();
+    }
+
+    @Test
+    public void idleUsesMinimumWindow() {
+        scroll(0, false, 0);
+        assertCalls("+10-12");
+        // 位置未变化时不重复通知
+        mCallback.calls.clear();
+        scroll(0, false, 100);
+        assertCalls();
+    }
+
+    @Test
+    public void windowGrowsWithSpeed() {
+        scroll(0, true, 0);
+        assertCalls("+10-12");
+        mCallback.calls.clear();
+        scroll(8, true, 32);
+        assertEquals(0.125f, mWindow.getSpeed(), 0);
+        // 原来的范围已进入可见区域，不取消
+        assertCalls("+18-28");
+    }
+
+    @Test
+    public void windowIsCappedAtMaximum() {
+        scroll(0, true, 0);
+        scroll(50, true, 10);
+        assertCalls("+10-12", "-10-12", "+60-80");
+    }
+
+    @Test
+    public void reversingCancelsStaleRange() {
+        scroll(0, true, 0);
+        scroll(8, true, 32);
+        mCallback.calls.clear();
+        scroll(4, true, 64);
+        assertFalse(mWindow.isForward());
+        assertCalls("-18-28", "+0-4");
+    }
+
+    @Test
+    public void stoppingShrinksWindow() {
+        scroll(0, true, 0);
+        scroll(8, true, 32);
+        scroll(4, true, 64);
+        mCallback.calls.clear();
+        scroll(4, false, 200);
+        assertEquals(0, mWindow.getSpeed(), 0);
+        assertCalls("-0-2");
+        assertEquals(2, mWindow.getStart());
+        assertEquals(4, mWindow.getEnd());
+    }
+
+    @Test
+    public void overlappingWindowOnlyNotifiesDifference() {
+        scroll(0, false, 0);
+        mWindow.setWindowSize(4, 4);
+        mWindow.onScroll(1, VISIBLE, TOTAL, false, 10, mCallback);
+        assertCalls("+10-12", "+12-15");
+    }
+
+    @Test
+    public void windowIsClampedToItemCount() {
+        mWindow.onScroll(TOTAL - VISIBLE, VISIBLE, TOTAL, false, 0, mCallback);
+        assertCalls();
+        mWindow.onScroll(TOTAL - VISIBLE - 1, VISIBLE, TOTAL, false, 10, mCallback);
+        assertFalse(mWindow.isForward());
+        assertCalls("+87-89");
+    }
+
+    @Test
+    public void resetCancelsNotifiedRange() {
+        scroll(0, false, 0);
+        mWindow.reset(mCallback);
+        assertCalls("+10-12", "-10-12");
+        assertEquals(mWindow.getStart(), mWindow.getEnd());
+        // 重置后重新通知
+        scroll(0, false, 10);
+        assertCalls("+10-12", "-10-12", "+10-12");
+    }
+
+    @Test
+    public void resetWithoutCallback() {
+        scroll(0, false, 0);
+        mWindow.reset(null);
+        assertCalls("+10-12");
+        assertTrue(mWindow.isForward());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidWindowSize() {
+        mWindow.setWindowSize(5, 4);
+    }
+
+    private void scroll(int firstVisible, boolean scrolling, long now) {
+        mWindow.onScroll(firstVisible, VISIBLE, TOTAL, scrolling, now, mCallback);
+    }
+
+    private void assertCalls(String... calls) {
+        assertEquals(Arrays.asList(calls), mCallback.calls);
+    }
+
+    private static class RecordingCallback implements PrefetchWindow.Callback {
+        final List<String> calls = new ArrayList<String>();
+
+        @Override
+        public void onPrefetch(int start, int end) {
+            calls.add("+" + start + "-" + end);
+        }
+
+        @Override
+        public void onCancelPrefetch(int start, int end) {
+            calls.add("-" + start + "-" + end);
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.githang.refreshlistview.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 以随机的事件序列驱动{@link RefreshController}，每个事件后检查凭证、状态及回调的不变式.
+ * 失败信息中带有种子及步数，可用于复现
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class RefreshControllerFuzzTest {
+
+    private static final int SEEDS = 200;
+
+    private static final int STEPS = 2000;
+
+    private static final int HEADER_HEIGHT = 60;
+
+    private static final int FOOTER_HEIGHT = 40;
+
+    private static final int MAX_RETRIES = 3;
+
+    private static final int TOTAL = 100;
+
+    private static final int VISIBLE = 10;
+
+    private static final int START_REFRESH = 0;
+    private static final int START_LOAD_MORE = 1;
+    private static final int COMPLETE_REFRESH = 2;
+    private static final int COMPLETE_LOAD_MORE = 3;
+    private static final int FAIL_LOAD_MORE = 4;
+    private static final int CANCEL_REFRESH = 5;
+    private static final int CANCEL_LOAD_MORE = 6;
+    private static final int RETRY = 7;
+    private static final int SCROLL = 8;
+    private static final int SCROLL_STATE = 9;
+    private static final int DOWN = 10;
+    private static final int MOVE = 11;
+    private static final int UP = 12;
+    private static final int CAN_LOAD_MORE = 13;
+    private static final int EVENTS = 14;
+
+    @Test
+    public void parallel() {
+        run(RefreshController.POLICY_PARALLEL);
+    }
+
+    @Test
+    public void refreshSupersedesLoadMore() {
+        run(RefreshController.POLICY_REFRESH_SUPERSEDES_LOAD_MORE);
+    }
+
+    @Test
+    public void exclusive() {
+        run(RefreshController.POLICY_EXCLUSIVE);
+    }
+
+    private void run(int policy) {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            new Run(policy, seed).execute();
+        }
+    }
+
+    /**
+     * 一次随机的事件序列
+     */
+    private static class Run implements RefreshController.Callback {
+        private final int mPolicy;
+        private final long mSeed;
+        private final Random mRandom;
+        private final RefreshController mController;
+        private final PullStateMachine mPull;
+
+        private int mStep;
+        private long mNow;
+        private int mLastIssuedTicket;
+        private int mOldTicket = RefreshController.NO_TICKET;
+
+        private int mRefreshStarted;
+        private int mRefreshFinished;
+        private int mLoadMoreStarted;
+        private int mLoadMoreFinished;
+
+        private boolean mRetryPending;
+        private boolean mDragging;
+        private int mTouchY;
+        private boolean mAtTop;
+        private boolean mAtBottom;
+
+        Run(int policy, long seed) {
+            mPolicy = policy;
+            mSeed = seed;
+            mRandom = new Random(seed);
+            mController = new RefreshController(this);
+            mController.setLoadPolicy(policy);
+            mController.setAutoLoadEnabled(true);
+            mController.getScrollTracker().setPrefetchDistance(5);
+            mController.getRetryBackoff().setMaxRetries(MAX_RETRIES);
+            mPull = mController.getPullStateMachine();
+            mPull.setHeaderHeight(HEADER_HEIGHT);
+            mPull.setFooterHeight(FOOTER_HEIGHT);
+        }
+
+        void execute() {
+            for (mStep = 0; mStep < STEPS; mStep++) {
+                mNow += 1 + mRandom.nextInt(100);
+                step(mRandom.nextInt(EVENTS));
+                checkInvariants();
+            }
+        }
+
+        private void step(int event) {
+            LoadToken refreshToken = mController.getRefreshToken();
+            LoadToken loadMoreToken = mController.getLoadMoreToken();
+            boolean failed = mController.isLoadMoreFailed();
+            int loadMoreStarted = mLoadMoreStarted;
+            boolean cancelled = false;
+            switch (event) {
+                case START_REFRESH:
+                    startRefresh();
+                    break;
+                case START_LOAD_MORE:
+                    startLoadMore();
+                    break;
+                case COMPLETE_REFRESH:
+                    completeRefresh();
+                    break;
+                case COMPLETE_LOAD_MORE:
+                    completeLoadMore(false);
+                    break;
+                case FAIL_LOAD_MORE:
+                    completeLoadMore(true);
+                    break;
+                case CANCEL_REFRESH:
+                    mController.cancelRefresh(LoadToken.REASON_TIMEOUT);
+                    cancelled = true;
+                    break;
+                case CANCEL_LOAD_MORE:
+                    mController.cancelLoadMore(LoadToken.REASON_TIMEOUT);
+                    cancelled = true;
+                    break;
+                case RETRY:
+                    // 大多数时候模拟到时的重试，偶尔模拟过时的重试
+                    if (mRetryPending || mRandom.nextInt(10) == 0) {
+                        mRetryPending = false;
+                        mController.retryLoadMore(mNow);
+                    }
+                    break;
+                case SCROLL:
+                    int first = mRandom.nextInt(TOTAL - VISIBLE + 1);
+                    mController.onScroll(first, VISIBLE, TOTAL, 1, mRandom.nextBoolean(), mNow);
+                    assertNoAutoLoad(failed, loadMoreStarted, "滑动");
+                    break;
+                case SCROLL_STATE:
+                    mController.onScrollStateChanged(mRandom.nextBoolean(), mRandom.nextBoolean(),
+                            mNow);
+                    assertNoAutoLoad(failed, loadMoreStarted, "滑动状态变化");
+                    break;
+                case DOWN:
+                    if (!mDragging) {
+                        mDragging = true;
+                        mTouchY = 1000;
+                        mAtTop = mRandom.nextBoolean();
+                        mAtBottom = !mAtTop || mRandom.nextBoolean();
+                        mPull.onDown(mTouchY);
+                    }
+                    break;
+                case MOVE:
+                    if (mDragging) {
+                        mTouchY += mRandom.nextInt(FOOTER_HEIGHT * 8 + 1) - FOOTER_HEIGHT * 4;
+                        apply(mPull.onMove(mTouchY, mAtTop, mAtBottom, true,
+                                mController.canLoadMore()));
+                    }
+                    break;
+                case UP:
+                    if (mDragging) {
+                        mDragging = false;
+                        apply(mPull.onUp(mTouchY, true, mAtBottom && mController.canLoadMore()));
+                    }
+                    break;
+                case CAN_LOAD_MORE:
+                    mController.setCanLoadMore(mRandom.nextInt(4) != 0);
+                    break;
+                default:
+                    break;
+            }
+            checkEndedToken(refreshToken, mController.getRefreshToken(), cancelled
+                    && event == CANCEL_REFRESH);
+            boolean superseded = mPolicy == RefreshController.POLICY_REFRESH_SUPERSEDES_LOAD_MORE
+                    && mController.isRefreshing() && refreshToken == null;
+            checkEndedToken(loadMoreToken, mController.getLoadMoreToken(),
+                    (cancelled && event == CANCEL_LOAD_MORE) || superseded);
+        }
+
+        private void startRefresh() {
+            boolean wasRefreshing = mController.isRefreshing();
+            int current = mController.getRefreshTicket();
+            int ticket = mController.startRefresh();
+            if (wasRefreshing) {
+                check("刷新中再次开始应返回当前的凭证", ticket == current);
+            } else if (ticket != RefreshController.NO_TICKET) {
+                check("新的凭证应大于之前发放的凭证", ticket == mLastIssuedTicket);
+            }
+        }
+
+        private void startLoadMore() {
+            boolean wasLoading = mController.isLoadingMore();
+            int current = mController.getLoadMoreTicket();
+            int ticket = mController.startLoadMore(mNow);
+            if (wasLoading) {
+                check("加载中再次开始应返回当前的凭证", ticket == current);
+            } else if (ticket != RefreshController.NO_TICKET) {
+                check("新的凭证应大于之前发放的凭证", ticket == mLastIssuedTicket);
+            }
+        }
+
+        private void completeRefresh() {
+            int current = mController.getRefreshTicket();
+            int ticket = pickTicket(current);
+            boolean completed = mController.completeRefresh(ticket);
+            check("凭证有效时才能结束刷新",
+                    completed == (ticket != RefreshController.NO_TICKET && ticket == current));
+        }
+
+        private void completeLoadMore(boolean failure) {
+            int current = mController.getLoadMoreTicket();
+            int ticket = pickTicket(current);
+            boolean completed = failure ? mController.failLoadMore(ticket)
+                    : mController.completeLoadMore(ticket, mNow);
+            check("凭证有效时才能结束加载",
+                    completed == (ticket != RefreshController.NO_TICKET && ticket == current));
+            if (completed && failure) {
+                check("失败后应处于失败状态", mController.isLoadMoreFailed());
+            }
+        }
+
+        /**
+         * 随机选择当前的凭证、已过期的凭证或无效的凭证
+         */
+        private int pickTicket(int current) {
+            int which = mRandom.nextInt(4);
+            if (which == 0) {
+                return mOldTicket;
+            }
+            if (which == 1) {
+                return RefreshController.NO_TICKET;
+            }
+            return current;
+        }
+
+        /**
+         * 模拟控件处理手势状态机的结果
+         */
+        private void apply(int result) {
+            if ((result & PullStateMachine.START_REFRESH) != 0) {
+                startRefresh();
+            }
+            if ((result & PullStateMachine.START_LOAD_MORE) != 0) {
+                startLoadMore();
+            }
+        }
+
+        private void assertNoAutoLoad(boolean failed, int loadMoreStarted, String event) {
+            if (failed) {
+                check(event + "不应绕过退避重新加载", mLoadMoreStarted == loadMoreStarted);
+            }
+            if (!mController.canLoadMore()) {
+                check(event + "在不可加载时开始了加载", mLoadMoreStarted == loadMoreStarted);
+            }
+        }
+
+        /**
+         * 本次事件结束的操作，只有被取消时其取消标记才被取消
+         */
+        private void checkEndedToken(LoadToken before, LoadToken after, boolean cancelled) {
+            if (before == null || before == after) {
+                return;
+            }
+            if (mOldTicket < before.getTicket()) {
+                mOldTicket = before.getTicket();
+            }
+            check("结束的取消标记状态不正确: 应" + (cancelled ? "" : "未") + "被取消",
+                    before.isCancelled() == cancelled);
+        }
+
+        private void checkInvariants() {
+            boolean refreshing = mController.isRefreshing();
+            boolean loading = mController.isLoadingMore();
+            int refreshTicket = mController.getRefreshTicket();
+            int loadMoreTicket = mController.getLoadMoreTicket();
+            LoadToken refreshToken = mController.getRefreshToken();
+            LoadToken loadMoreToken = mController.getLoadMoreToken();
+
+            check("刷新状态与凭证不一致",
+                    refreshing == (refreshTicket != RefreshController.NO_TICKET));
+            check("刷新状态与取消标记不一致", refreshing == (refreshToken != null));
+            check("加载状态与凭证不一致",
+                    loading == (loadMoreTicket != RefreshController.NO_TICKET));
+            check("加载状态与取消标记不一致", loading == (loadMoreToken != null));
+            if (refreshToken != null) {
+                check("刷新的取消标记与凭证不一致", refreshToken.getTicket() == refreshTicket);
+                check("进行中的刷新已被取消", !refreshToken.isCancelled());
+            }
+            if (loadMoreToken != null) {
+                check("加载的取消标记与凭证不一致", loadMoreToken.getTicket() == loadMoreTicket);
+                check("进行中的加载已被取消", !loadMoreToken.isCancelled());
+            }
+            if (refreshing && loading) {
+                check("刷新与加载的凭证相同", refreshTicket != loadMoreTicket);
+                check("加载策略不允许同时刷新及加载",
+                        mPolicy == RefreshController.POLICY_PARALLEL);
+            }
+            check("刷新的开始及结束回调不成对",
+                    mRefreshStarted - mRefreshFinished == (refreshing ? 1 : 0));
+            check("加载的开始及结束回调不成对",
+                    mLoadMoreStarted - mLoadMoreFinished == (loading ? 1 : 0));
+
+            boolean failed = mController.isLoadMoreFailed();
+            int state = mPull.getLoadMoreState();
+            check("加载中不应处于失败状态", !(failed && loading));
+            check("进行中的加载与底部状态不一致", loading == (state == PullStateMachine.REFRESHING));
+            check("刷新状态与顶部状态不一致",
+                    refreshing == (mPull.getRefreshState() == PullStateMachine.REFRESHING));
+            if (!mDragging) {
+                check("松手后底部仍处于拖动状态", state != PullStateMachine.RAISE_TO_REFRESH
+                        && state != PullStateMachine.RELEASE_RAISE_TO_REFRESH);
+                check("失败状态与底部状态不一致", failed == (state == PullStateMachine.LOAD_FAILED));
+            } else if (failed) {
+                check("拖动中失败状态被改变", state == PullStateMachine.LOAD_FAILED
+                        || state == PullStateMachine.RAISE_TO_REFRESH
+                        || state == PullStateMachine.RELEASE_RAISE_TO_REFRESH);
+            }
+        }
+
+        private void check(String message, boolean condition) {
+            if (!condition) {
+                fail("policy=" + mPolicy + ", seed=" + mSeed + ", step=" + mStep + ": " + message);
+            }
+        }
+
+        @Override
+        public void onHeaderStateChanged() {
+        }
+
+        @Override
+        public void onFooterStateChanged() {
+        }
+
+        @Override
+        public void onRefreshStarted(int ticket, LoadToken token) {
+            check("凭证应递增", ticket > mLastIssuedTicket);
+            mLastIssuedTicket = ticket;
+            mRefreshStarted++;
+        }
+
+        @Override
+        public void onRefreshFinished(boolean completed) {
+            mRefreshFinished++;
+            if (completed) {
+                // 与控件相同，刷新完成后不再需要自动重试
+                mRetryPending = false;
+            }
+        }
+
+        @Override
+        public void onLoadMoreStarted(int ticket, LoadToken token) {
+            check("凭证应递增", ticket > mLastIssuedTicket);
+            mLastIssuedTicket = ticket;
+            mLoadMoreStarted++;
+            mRetryPending = false;
+        }
+
+        @Override
+        public void onLoadMoreFinished(boolean completed) {
+            mLoadMoreFinished++;
+        }
+
+        @Override
+        public void onRetryScheduled(int attempt, long delay) {
+            check("重试次数超过上限", attempt >= 1 && attempt <= MAX_RETRIES);
+            check("重试间隔应大于0", delay > 0);
+            mRetryPending = true;
+        }
+
+        @Override
+        public void onRetriesExhausted(int attempts) {
+            assertEquals(MAX_RETRIES, attempts);
+        }
+    }
+}
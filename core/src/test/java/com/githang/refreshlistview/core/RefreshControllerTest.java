@@ -0,0 +1,230 @@
+package com.githang.refreshlistview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link RefreshController}的测试
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class RefreshControllerTest {
+
+    private static final int FOOTER_HEIGHT = 40;
+
+    private static final int TOTAL = 100;
+
+    private static final int VISIBLE = 10;
+
+    private RecordingCallback mCallback;
+
+    private RefreshController mController;
+
+    private PullStateMachine mPull;
+
+    @Before
+    public void setUp() {
+        mCallback = new RecordingCallback();
+        mController = new RefreshController(mCallback);
+        mCallback.pull = mController.getPullStateMachine();
+        mController.setAutoLoadEnabled(true);
+        mController.getScrollTracker().setPrefetchDistance(5);
+        mPull = mController.getPullStateMachine();
+        mPull.setHeaderHeight(60);
+        mPull.setFooterHeight(FOOTER_HEIGHT);
+    }
+
+    @Test
+    public void autoLoadNearEnd() {
+        mController.onScroll(0, VISIBLE, TOTAL, 1, true, 100);
+        assertEquals(0, mCallback.loadMoreStarted);
+        mController.onScroll(TOTAL - VISIBLE - 3, VISIBLE, TOTAL, 1, true, 200);
+        assertEquals(1, mCallback.loadMoreStarted);
+        assertTrue(mController.isLoadingMore());
+    }
+
+    @Test
+    public void failureBlocksAutoLoadUntilRetry() {
+        failOnce();
+        scrollNearEnd(1000);
+        assertEquals(1, mCallback.loadMoreStarted);
+        assertEquals(1, mCallback.retriesScheduled);
+        mController.retryLoadMore(2000);
+        assertEquals(2, mCallback.loadMoreStarted);
+    }
+
+    @Test
+    public void shortDragFromFailedKeepsFailure() {
+        failOnce();
+        // 在底部向上拖动一小段后松手，未达到界限
+        mPull.onDown(500);
+        mPull.onMove(480, false, true, true, true);
+        assertEquals(PullStateMachine.RAISE_TO_REFRESH, mPull.getLoadMoreState());
+        int result = mPull.onUp(480, true, true);
+        assertEquals(0, result & PullStateMachine.START_LOAD_MORE);
+        assertEquals(PullStateMachine.LOAD_FAILED, mPull.getLoadMoreState());
+        assertTrue(mController.isLoadMoreFailed());
+
+        // 松手后的滑动不能绕过退避立即加载
+        scrollNearEnd(1000);
+        assertEquals(1, mCallback.loadMoreStarted);
+        mController.onScrollStateChanged(true, true, 1100);
+        assertEquals(1, mCallback.loadMoreStarted);
+    }
+
+    @Test
+    public void dragBackToStartFromFailedKeepsFailure() {
+        failOnce();
+        mPull.onDown(500);
+        mPull.onMove(480, false, true, true, true);
+        // 拖回起点时重置拖动中的状态
+        mPull.onMove(500, false, true, true, true);
+        assertEquals(PullStateMachine.LOAD_FAILED, mPull.getLoadMoreState());
+        assertTrue(mController.isLoadMoreFailed());
+    }
+
+    @Test
+    public void gestureStateDoesNotClearFailure() {
+        failOnce();
+        // 即使手势把底部状态改为完成，控制器仍记录失败
+        mPull.setLoadMoreState(PullStateMachine.DONE);
+        scrollNearEnd(1000);
+        assertEquals(1, mCallback.loadMoreStarted);
+        assertTrue(mController.isLoadMoreFailed());
+    }
+
+    @Test
+    public void longDragFromFailedRetries() {
+        failOnce();
+        int boundary = FOOTER_HEIGHT * 3;
+        mPull.onDown(1000);
+        mPull.onMove(1000 - boundary * 2 - 10, false, true, true, true);
+        int result = mPull.onUp(1000 - boundary * 2 - 10, true, true);
+        assertTrue((result & PullStateMachine.START_LOAD_MORE) != 0);
+        mController.startLoadMore(2000);
+        assertEquals(2, mCallback.loadMoreStarted);
+        assertFalse(mController.isLoadMoreFailed());
+    }
+
+    @Test
+    public void refreshClearsFailure() {
+        failOnce();
+        mController.startRefresh();
+        assertTrue(mController.completeRefresh());
+        assertFalse(mController.isLoadMoreFailed());
+        assertEquals(PullStateMachine.DONE, mPull.getLoadMoreState());
+        scrollNearEnd(1000);
+        assertEquals(2, mCallback.loadMoreStarted);
+    }
+
+    @Test
+    public void refreshDuringDragFromFailedClearsFailure() {
+        failOnce();
+        mController.startRefresh();
+        mPull.onDown(500);
+        mPull.onMove(480, false, true, true, true);
+        // 上拉过程中刷新完成，松手后不应恢复已清除的失败状态
+        assertTrue(mController.completeRefresh());
+        mPull.onUp(480, true, true);
+        assertFalse(mController.isLoadMoreFailed());
+        assertEquals(PullStateMachine.DONE, mPull.getLoadMoreState());
+    }
+
+    @Test
+    public void releaseAwayFromFooterEndsDrag() {
+        mPull.onDown(500);
+        mPull.onMove(480, false, true, true, true);
+        assertEquals(PullStateMachine.RAISE_TO_REFRESH, mPull.getLoadMoreState());
+        // 松手时底部信息栏已不可见
+        int result = mPull.onUp(480, true, false);
+        assertTrue((result & PullStateMachine.FOOTER_STATE_CHANGED) != 0);
+        assertEquals(PullStateMachine.DONE, mPull.getLoadMoreState());
+    }
+
+    @Test
+    public void staleTicketIsIgnored() {
+        int first = mController.startRefresh();
+        mController.cancelRefresh(LoadToken.REASON_DETACHED);
+        int second = mController.startRefresh();
+        assertFalse(first == second);
+        assertFalse(mController.completeRefresh(first));
+        assertTrue(mController.isRefreshing());
+        assertTrue(mController.completeRefresh(second));
+    }
+
+    @Test
+    public void failureUpdatesFooterOnce() {
+        int ticket = mController.startLoadMore(0);
+        mCallback.footerUpdates = 0;
+        assertTrue(mController.failLoadMore(ticket));
+        assertEquals(1, mCallback.footerUpdates);
+        assertEquals(PullStateMachine.LOAD_FAILED, mCallback.finishedFooterState);
+        assertEquals(PullStateMachine.LOAD_FAILED, mPull.getLoadMoreState());
+    }
+
+    private void failOnce() {
+        int ticket = mController.startLoadMore(0);
+        assertTrue(mController.failLoadMore(ticket));
+        assertTrue(mController.isLoadMoreFailed());
+        assertEquals(PullStateMachine.LOAD_FAILED, mPull.getLoadMoreState());
+    }
+
+    private void scrollNearEnd(long now) {
+        mController.onScroll(TOTAL - VISIBLE - 4, VISIBLE, TOTAL, 1, true, now);
+        mController.onScroll(TOTAL - VISIBLE - 1, VISIBLE, TOTAL, 1, true, now + 16);
+    }
+
+    private static class RecordingCallback implements RefreshController.Callback {
+        int refreshStarted;
+        int loadMoreStarted;
+        int retriesScheduled;
+        /**
+         * 底部信息栏按状态更新的次数，状态变化及加载结束时各更新一次
+         */
+        int footerUpdates;
+        int finishedFooterState = -1;
+        PullStateMachine pull;
+
+        @Override
+        public void onHeaderStateChanged() {
+        }
+
+        @Override
+        public void onFooterStateChanged() {
+            footerUpdates++;
+        }
+
+        @Override
+        public void onRefreshStarted(int ticket, LoadToken token) {
+            refreshStarted++;
+        }
+
+        @Override
+        public void onRefreshFinished(boolean completed) {
+        }
+
+        @Override
+        public void onLoadMoreStarted(int ticket, LoadToken token) {
+            loadMoreStarted++;
+        }
+
+        @Override
+        public void onLoadMoreFinished(boolean completed) {
+            footerUpdates++;
+            finishedFooterState = pull.getLoadMoreState();
+        }
+
+        @Override
+        public void onRetryScheduled(int attempt, long delay) {
+            retriesScheduled++;
+        }
+
+        @Override
+        public void onRetriesExhausted(int attempts) {
+        }
+    }
+}
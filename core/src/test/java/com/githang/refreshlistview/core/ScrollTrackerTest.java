@@ -0,0 +1,96 @@
+package com.githang.refreshlistview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ScrollTracker}的测试
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class ScrollTrackerTest {
+
+    private static final long FRAME = 16;
+
+    private ScrollTracker mTracker;
+
+    private long mTime;
+
+    @Before
+    public void setUp() {
+        mTracker = new ScrollTracker();
+        mTracker.setPrefetchDistance(2);
+        mTracker.setAdaptivePrefetchEnabled(true);
+        mTracker.onLoadMoreStarted(1000);
+        mTracker.onLoadMoreCompleted(1300);
+        mTime = 2000;
+    }
+
+    @Test
+    public void fixedDistance() {
+        mTracker.setAdaptivePrefetchEnabled(false);
+        assertFalse(mTracker.shouldLoadMore(0, 10, 14, 1));
+        assertTrue(mTracker.shouldLoadMore(1, 10, 14, 1));
+    }
+
+    @Test
+    public void tallRowsKeepSpeed() {
+        // 每个条目滑过需要约10帧，速度约为0.00625条/毫秒
+        scroll(50, 10);
+        assertEquals(1 / (10f * FRAME), mTracker.getScrollSpeed(), 0.001f);
+        assertEquals(2, mTracker.getEffectivePrefetchDistance());
+        // 耗时更长的加载需要更大的预加载距离
+        mTracker.onLoadMoreStarted(0);
+        mTracker.onLoadMoreCompleted(3000);
+        mTracker.onLoadMoreStarted(0);
+        mTracker.onLoadMoreCompleted(3000);
+        mTracker.onLoadMoreStarted(0);
+        mTracker.onLoadMoreCompleted(3000);
+        int distance = mTracker.getEffectivePrefetchDistance();
+        assertTrue("distance=" + distance, distance >= 10 && distance <= 20);
+    }
+
+    @Test
+    public void shortRowsSpeed() {
+        // 每帧滑过2个条目
+        for (int i = 0; i < 30; i++) {
+            mTracker.onScroll(i * 2, true, mTime);
+            mTime += FRAME;
+        }
+        assertEquals(2f / FRAME, mTracker.getScrollSpeed(), 0.001f);
+        assertEquals(38, mTracker.getEffectivePrefetchDistance());
+    }
+
+    @Test
+    public void idleResetsSpeed() {
+        scroll(20, 4);
+        assertTrue(mTracker.getScrollSpeed() > 0);
+        mTracker.onScrollIdle();
+        assertEquals(0, mTracker.getScrollSpeed(), 0);
+        // 停止一段时间后重新滑动，停止的时间不计入速度
+        mTime += 10000;
+        int first = 20;
+        for (int i = 0; i < 40; i++) {
+            mTracker.onScroll(first + i / 4, true, mTime);
+            mTime += FRAME;
+        }
+        assertEquals(1 / (4f * FRAME), mTracker.getScrollSpeed(), 0.002f);
+    }
+
+    /**
+     * 从第0条开始滑动
+     *
+     * @param items          滑过的条目数
+     * @param framesPerItem  每个条目滑过的帧数
+     */
+    private void scroll(int items, int framesPerItem) {
+        for (int i = 0; i < items * framesPerItem; i++) {
+            mTracker.onScroll(i / framesPerItem, true, mTime);
+            mTime += FRAME;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.githang.refreshlistview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SectionIndex}的测试
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class SectionIndexTest {
+
+    @Test
+    public void emptyIndex() {
+        SectionIndex index = SectionIndex.EMPTY;
+        assertEquals(0, index.getCount());
+        assertEquals(0, index.getSectionCount());
+        assertEquals(0, index.getSections().length);
+        assertEquals(0, index.getSectionForPosition(0));
+        assertEquals(0, index.getSectionForPosition(10));
+        assertEquals(0, index.getPositionForSection(0));
+        assertEquals(0, index.getPositionForSection(3));
+    }
+
+    @Test
+    public void singleSection() {
+        SectionIndex index = SectionIndex.EMPTY.append(new String[]{"A", "A", "A"}, 3);
+        assertEquals(3, index.getCount());
+        assertArrayEquals(new String[]{"A"}, index.getSections());
+        assertEquals(0, index.getSectionForPosition(2));
+        assertEquals(0, index.getSectionForPosition(100));
+        assertEquals(0, index.getPositionForSection(-1));
+        assertEquals(0, index.getPositionForSection(5));
+    }
+
+    @Test
+    public void sectionForPosition() {
+        SectionIndex index = SectionIndex.EMPTY.append(
+                new String[]{"A", "A", "B", "C", "C", "C", "D"}, 7);
+        assertArrayEquals(new String[]{"A", "B", "C", "D"}, index.getSections());
+        int[] expected = {0, 0, 1, 2, 2, 2, 3};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("position " + i, expected[i], index.getSectionForPosition(i));
+        }
+        assertEquals(0, index.getSectionForPosition(-1));
+        assertEquals(2, index.getPositionForSection(1));
+        assertEquals(3, index.getPositionForSection(2));
+        assertEquals(6, index.getPositionForSection(3));
+    }
+
+    @Test
+    public void positionBeyondCount() {
+        SectionIndex index = SectionIndex.EMPTY.append(new String[]{"A", "B", "C"}, 3);
+        assertEquals(2, index.getSectionForPosition(3));
+        assertEquals(2, index.getSectionForPosition(Integer.MAX_VALUE));
+        assertEquals(2, index.getPositionForSection(10));
+    }
+
+    @Test
+    public void nullKey() {
+        SectionIndex index = SectionIndex.EMPTY.append(new String[]{null, null, "A"}, 3);
+        assertArrayEquals(new String[]{SectionIndex.NULL_SECTION, "A"}, index.getSections());
+        // null与NULL_SECTION属于同一分组
+        index = SectionIndex.EMPTY.append(new String[]{SectionIndex.NULL_SECTION, null}, 2);
+        assertEquals(1, index.getSectionCount());
+    }
+
+    @Test
+    public void appendOnlyReadsLength() {
+        SectionIndex index = SectionIndex.EMPTY.append(new String[]{"A", "B", "C"}, 2);
+        assertEquals(2, index.getCount());
+        assertArrayEquals(new String[]{"A", "B"}, index.getSections());
+        assertSame(index, index.append(new String[]{"X"}, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendRejectsLengthBeyondKeys() {
+        SectionIndex.EMPTY.append(new String[]{"A"}, 2);
+    }
+
+    @Test
+    public void appendContinuesLastSection() {
+        SectionIndex first = SectionIndex.EMPTY.append(new String[]{"A", "B"}, 2);
+        SectionIndex second = first.append(new String[]{"B", "C"}, 2);
+        assertArrayEquals(new String[]{"A", "B", "C"}, second.getSections());
+        assertEquals(1, second.getSectionForPosition(2));
+        assertEquals(3, second.getPositionForSection(2));
+    }
+
+    @Test
+    public void appendToSharedIndex() {
+        SectionIndex base = SectionIndex.EMPTY.append(new String[]{"A", "B"}, 2);
+        // 不新增分组的追加与base共用分组数组
+        SectionIndex same = base.append(new String[]{"B"}, 1);
+        SectionIndex left = same.append(new String[]{"C", "C"}, 2);
+        SectionIndex right = same.append(new String[]{"D"}, 1);
+
+        assertArrayEquals(new String[]{"A", "B"}, base.getSections());
+        assertArrayEquals(new String[]{"A", "B"}, same.getSections());
+        assertArrayEquals(new String[]{"A", "B", "C"}, left.getSections());
+        assertArrayEquals(new String[]{"A", "B", "D"}, right.getSections());
+        assertEquals(3, left.getPositionForSection(2));
+        assertEquals(3, right.getPositionForSection(2));
+        assertEquals(1, base.getSectionForPosition(100));
+        assertEquals(1, same.getSectionForPosition(100));
+    }
+
+    @Test
+    public void manyAppends() {
+        SectionIndex index = SectionIndex.EMPTY;
+        for (int i = 0; i < 100; i++) {
+            index = index.append(new String[]{"S" + i, "S" + i}, 2);
+        }
+        assertEquals(200, index.getCount());
+        assertEquals(100, index.getSectionCount());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 2, index.getPositionForSection(i));
+            assertEquals(i, index.getSectionForPosition(i * 2 + 1));
+        }
+    }
+
+    @Test
+    public void sameSectionsWithoutNewSection() {
+        SectionIndex base = SectionIndex.EMPTY.append(new String[]{"A", "B"}, 2);
+        SectionIndex grown = base.append(new String[]{"B", "B"}, 2);
+        assertTrue(base.hasSameSections(grown));
+        assertSame(base.getSections(), grown.getSections());
+        assertEquals(4, grown.getCount());
+
+        SectionIndex changed = grown.append(new String[]{"C"}, 1);
+        assertFalse(grown.hasSameSections(changed));
+        assertFalse(base.hasSameSections(null));
+    }
+
+    @Test
+    public void sameSectionsIsIdentityNotEquality() {
+        // 内容相同但分别建立的索引需要通知快速滑动重新获取分组
+        SectionIndex first = SectionIndex.EMPTY.append(new String[]{"A"}, 1);
+        SectionIndex second = SectionIndex.EMPTY.append(new String[]{"A"}, 1);
+        assertFalse(first.hasSameSections(second));
+    }
+}
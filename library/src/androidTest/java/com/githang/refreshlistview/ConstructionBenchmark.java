@@ -0,0 +1,139 @@
+package com.githang.refreshlistview;
+
+import android.content.Context;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.util.Log;
+import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+
+import com.githang.refreshlistview.core.PullStateMachine;
+
+/**
+ * 测量{@link RefreshListView}的构造耗时及分配的内存，与普通ListView及立即创建全部子控件的情况对比.
+ * 结果输出到日志：adb logcat -s ConstructionBenchmark
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class ConstructionBenchmark extends InstrumentationTestCase {
+
+    private static final String TAG = "ConstructionBenchmark";
+
+    private static final int WARM_UP = 20;
+
+    private static final int ITERATIONS = 200;
+
+    /**
+     * 构造一个列表
+     */
+    private interface Factory {
+        View create(Context context);
+    }
+
+    private Context mContext;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = getInstrumentation().getTargetContext();
+    }
+
+    @UiThreadTest
+    public void testConstruction() {
+        Result plain = measure(new Factory() {
+            @Override
+            public View create(Context context) {
+                return new ListView(context);
+            }
+        });
+        Result lazy = measure(new Factory() {
+            @Override
+            public View create(Context context) {
+                return new RefreshListView(context);
+            }
+        });
+        Result eager = measure(new Factory() {
+            @Override
+            public View create(Context context) {
+                // 立即创建指示器、底部进度及没有更多数据的提示，相当于延迟加载之前的构造
+                RefreshListView listView = new RefreshListView(context);
+                listView.setRefreshIndicator(new RefreshIndicatorView(context));
+                listView.setNoMoreData(true);
+                listView.setNoMoreData(false);
+                return listView;
+            }
+        });
+        Log.i(TAG, "ListView:            " + plain);
+        Log.i(TAG, "RefreshListView:     " + lazy);
+        Log.i(TAG, "RefreshListView全部: " + eager);
+        assertTrue("延迟加载后分配的内存应少于立即创建: " + lazy + " / " + eager,
+                lazy.bytes < eager.bytes);
+    }
+
+    /**
+     * 指示器创建前顶部信息栏应按默认高度隐藏，下拉少量距离不会进入松手刷新状态
+     */
+    @UiThreadTest
+    public void testHeaderHeightBeforeIndicator() {
+        RefreshListView listView = new RefreshListView(mContext);
+        String[] items = new String[30];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = "item " + i;
+        }
+        listView.setAdapter(new ArrayAdapter<String>(mContext,
+                android.R.layout.simple_list_item_1, items));
+        listView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        listView.layout(0, 0, 480, 800);
+        assertEquals("顶部信息栏应隐藏", 0, listView.getChildAt(0).getHeight());
+
+        PullStateMachine pull = listView.getPullStateMachine();
+        pull.onDown(100);
+        pull.onMove(110, true, false, true, true);
+        assertEquals(PullStateMachine.PULL_TO_REFRESH, pull.getRefreshState());
+        int headerHeight = mContext.getResources()
+                .getDimensionPixelSize(R.dimen.refresh_listview_header_height);
+        pull.onMove(100 + headerHeight * 2 + 2, true, false, true, true);
+        assertEquals(PullStateMachine.RELEASE_TO_REFRESH, pull.getRefreshState());
+    }
+
+    private Result measure(Factory factory) {
+        for (int i = 0; i < WARM_UP; i++) {
+            factory.create(mContext);
+        }
+        Runtime.getRuntime().gc();
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            factory.create(mContext);
+        }
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        Result result = new Result(elapsed / ITERATIONS,
+                Debug.getThreadAllocSize() / ITERATIONS,
+                Debug.getThreadAllocCount() / ITERATIONS);
+        Debug.stopAllocCounting();
+        return result;
+    }
+
+    private static class Result {
+        final long nanos;
+        final long bytes;
+        final long objects;
+
+        Result(long nanos, long bytes, long objects) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+            this.objects = objects;
+        }
+
+        @Override
+        public String toString() {
+            return (nanos / 1000) + "us, " + bytes + " bytes, " + objects + " objects";
+        }
+    }
+}
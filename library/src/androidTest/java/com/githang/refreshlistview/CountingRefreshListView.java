@@ -0,0 +1,74 @@
+package com.githang.refreshlistview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+
+/**
+ * 统计布局请求、布局次数、绘制次数及完成回调次数的列表
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class CountingRefreshListView extends RefreshListView {
+
+    private int mLayoutRequests;
+
+    private int mLayouts;
+
+    private int mDraws;
+
+    private int mRefreshCompletes;
+
+    public CountingRefreshListView(Context context) {
+        super(context);
+    }
+
+    @Override
+    public void requestLayout() {
+        mLayoutRequests++;
+        super.requestLayout();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        mLayouts++;
+        super.onLayout(changed, l, t, r, b);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        mDraws++;
+        super.dispatchDraw(canvas);
+    }
+
+    @Override
+    public void onRefreshComplete() {
+        mRefreshCompletes++;
+        super.onRefreshComplete();
+    }
+
+    /**
+     * 清零所有计数
+     */
+    public void resetCounts() {
+        mLayoutRequests = 0;
+        mLayouts = 0;
+        mDraws = 0;
+        mRefreshCompletes = 0;
+    }
+
+    public int getLayoutRequests() {
+        return mLayoutRequests;
+    }
+
+    public int getLayouts() {
+        return mLayouts;
+    }
+
+    public int getDraws() {
+        return mDraws;
+    }
+
+    public int getRefreshCompletes() {
+        return mRefreshCompletes;
+    }
+}
@@ -0,0 +1,81 @@
+package com.githang.refreshlistview;
+
+import android.os.Debug;
+import android.widget.ArrayAdapter;
+
+/**
+ * 连续多次通知数据变化时的内存分配及完成回调次数
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class DataSetBurstTest extends ListTestCase {
+
+    private static final int BURST = 1000;
+
+    private int mAllocCount;
+
+    private int mAllocSize;
+
+    /**
+     * 预热后，同一帧内的多次通知不应分配任何对象，完成回调只调用一次
+     */
+    public void testBurstAllocations() {
+        setUpList(true, 50);
+        // 预热，使延迟创建的对象在统计前创建
+        notifyBurst(mAdapter, 10);
+        waitForFrames(2);
+        resetCounts();
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Debug.startAllocCounting();
+                Debug.resetThreadAllocCount();
+                Debug.resetThreadAllocSize();
+                for (int i = 0; i < BURST; i++) {
+                    mAdapter.notifyDataSetChanged();
+                }
+                mAllocCount = Debug.getThreadAllocCount();
+                mAllocSize = Debug.getThreadAllocSize();
+                Debug.stopAllocCounting();
+            }
+        });
+        // 适配器及列表的观察者按序号遍历，请求布局及合并到下一帧的处理均不分配对象
+        assertEquals("通知过程中分配了对象: " + mAllocSize + " bytes", 0, mAllocCount);
+
+        waitForFrames(2);
+        assertEquals("同一帧内的变化应只处理一次", 1, mListView.getRefreshCompletes());
+    }
+
+    /**
+     * 更换适配器后，旧适配器的通知不应再触发处理
+     */
+    public void testOldAdapterIsUnregistered() {
+        setUpList(true, 50);
+        final ArrayAdapter<String> oldAdapter = mAdapter;
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mListView.setAdapter(new ArrayAdapter<String>(getActivity(),
+                        android.R.layout.simple_list_item_1, new String[]{"a", "b"}));
+            }
+        });
+        waitForFrames(2);
+        resetCounts();
+
+        notifyBurst(oldAdapter, BURST);
+        waitForFrames(2);
+        assertEquals(0, mListView.getRefreshCompletes());
+    }
+
+    private void notifyBurst(final ArrayAdapter<String> adapter, final int times) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < times; i++) {
+                    adapter.notifyDataSetChanged();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,227 @@
+package com.githang.refreshlistview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.ContextThemeWrapper;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+/**
+ * 对比扁平的{@link RefreshIndicatorView}与原来多层布局的顶部信息栏在状态变化时的测量、布局及绘制耗时.
+ * 结果输出到日志：adb logcat -s HeaderBenchmark
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class HeaderBenchmark extends InstrumentationTestCase {
+
+    private static final String TAG = "HeaderBenchmark";
+
+    private static final int WARM_UP = 40;
+
+    private static final int ITERATIONS = 400;
+
+    /**
+     * 依次切换的状态，与下拉刷新一次的顺序相同
+     */
+    private static final int[] STATES = {
+            RefreshIndicator.STATE_PULL_TO_REFRESH,
+            RefreshIndicator.STATE_RELEASE_TO_REFRESH,
+            RefreshIndicator.STATE_REFRESHING,
+            RefreshIndicator.STATE_DONE
+    };
+
+    /**
+     * 按状态更新顶部信息栏
+     */
+    private interface Header {
+        View getView();
+
+        void setState(int state);
+    }
+
+    private Context mContext;
+
+    private int mWidthSpec;
+
+    private int mHeightSpec;
+
+    private Canvas mCanvas;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = new ContextThemeWrapper(getInstrumentation().getTargetContext(),
+                R.style.AppTheme);
+        int width = mContext.getResources().getDisplayMetrics().widthPixels;
+        int height = mContext.getResources()
+                .getDimensionPixelSize(R.dimen.refresh_listview_header_height);
+        mWidthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+        mHeightSpec = View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY);
+        mCanvas = new Canvas(Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+    }
+
+    @UiThreadTest
+    public void testStateChanges() {
+        Result nested = measure(new NestedHeader(mContext));
+        final RefreshIndicatorView indicator = new RefreshIndicatorView(mContext);
+        indicator.setArrowAnimationEnabled(false);
+        indicator.setLastUpdateTime(mContext.getString(R.string.update_time, "12:00"));
+        Result flat = measure(new Header() {
+            @Override
+            public View getView() {
+                return indicator;
+            }
+
+            @Override
+            public void setState(int state) {
+                indicator.onStateChanged(state);
+            }
+        });
+        Log.i(TAG, "多层布局: " + nested);
+        Log.i(TAG, "扁平控件: " + flat);
+        assertEquals("状态变化不应重新布局", 0, flat.layouts);
+        assertTrue("多层布局的状态变化应触发布局", nested.layouts > 0);
+        assertTrue("扁平控件的测量及布局耗时应少于多层布局: " + flat + " / " + nested,
+                flat.layoutNanos < nested.layoutNanos);
+    }
+
+    private Result measure(Header header) {
+        View view = header.getView();
+        view.measure(mWidthSpec, mHeightSpec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        for (int i = 0; i < WARM_UP; i++) {
+            update(header, i, null);
+        }
+        Result result = new Result();
+        for (int i = 0; i < ITERATIONS; i++) {
+            update(header, i, result);
+        }
+        return result;
+    }
+
+    /**
+     * 切换一次状态，并像列表绘制一帧那样按需测量、布局后绘制
+     */
+    private void update(Header header, int index, Result result) {
+        View view = header.getView();
+        long start = SystemClock.elapsedRealtimeNanos();
+        header.setState(STATES[index % STATES.length]);
+        boolean layout = view.isLayoutRequested();
+        if (layout) {
+            view.measure(mWidthSpec, mHeightSpec);
+            view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        }
+        long laidOut = SystemClock.elapsedRealtimeNanos();
+        view.draw(mCanvas);
+        long drawn = SystemClock.elapsedRealtimeNanos();
+        if (result != null) {
+            result.layouts += layout ? 1 : 0;
+            result.layoutNanos += laidOut - start;
+            result.drawNanos += drawn - laidOut;
+        }
+    }
+
+    /**
+     * 原来的顶部信息栏：箭头及进度叠放在FrameLayout中，提示及更新时间在竖直的LinearLayout中
+     */
+    private static class NestedHeader implements Header {
+        private final LinearLayout mRoot;
+        private final ImageView mArrow;
+        private final ProgressBar mProgress;
+        private final TextView mTip;
+
+        NestedHeader(Context context) {
+            int iconSize = dp(context, 24);
+            int textColor = context.getResources().getColor(R.color.refresh_text_color);
+
+            mRoot = new LinearLayout(context);
+            mRoot.setGravity(Gravity.CENTER);
+
+            FrameLayout icons = new FrameLayout(context);
+            LinearLayout.LayoutParams iconsParams = new LinearLayout.LayoutParams(
+                    ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            iconsParams.rightMargin = dp(context, 8);
+            mRoot.addView(icons, iconsParams);
+
+            mArrow = new ImageView(context);
+            mArrow.setImageResource(R.drawable.listview_loading);
+            icons.addView(mArrow, new FrameLayout.LayoutParams(iconSize, iconSize));
+
+            mProgress = new ProgressBar(context);
+            mProgress.setIndeterminateDrawable(
+                    context.getResources().getDrawable(R.drawable.listview_progress));
+            mProgress.setVisibility(View.GONE);
+            icons.addView(mProgress, new FrameLayout.LayoutParams(iconSize, iconSize));
+
+            LinearLayout texts = new LinearLayout(context);
+            texts.setOrientation(LinearLayout.VERTICAL);
+            texts.setGravity(Gravity.CENTER);
+            mRoot.addView(texts, new LinearLayout.LayoutParams(
+                    ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT));
+
+            mTip = new TextView(context);
+            mTip.setTextColor(textColor);
+            mTip.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
+            texts.addView(mTip);
+
+            TextView time = new TextView(context);
+            time.setTextColor(textColor);
+            time.setTextSize(TypedValue.COMPLEX_UNIT_SP, 12);
+            time.setText(context.getString(R.string.update_time, "12:00"));
+            texts.addView(time);
+        }
+
+        @Override
+        public View getView() {
+            return mRoot;
+        }
+
+        @Override
+        public void setState(int state) {
+            // 与原来的changeHeaderViewByState相同，切换图标的可见性并修改提示文字
+            boolean refreshing = state == RefreshIndicator.STATE_REFRESHING;
+            mArrow.setVisibility(refreshing ? View.GONE : View.VISIBLE);
+            mProgress.setVisibility(refreshing ? View.VISIBLE : View.GONE);
+            int tip;
+            if (state == RefreshIndicator.STATE_RELEASE_TO_REFRESH) {
+                tip = R.string.release_to_refresh;
+            } else if (refreshing) {
+                tip = R.string.loading_very_hard;
+            } else if (state == RefreshIndicator.STATE_DONE) {
+                tip = R.string.loading_finished;
+            } else {
+                tip = R.string.pull_to_refresh;
+            }
+            mTip.setText(tip);
+        }
+
+        private static int dp(Context context, int value) {
+            return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value,
+                    context.getResources().getDisplayMetrics());
+        }
+    }
+
+    private static class Result {
+        int layouts;
+        long layoutNanos;
+        long drawNanos;
+
+        @Override
+        public String toString() {
+            return "布局" + layouts + "次, 状态变化及布局" + (layoutNanos / ITERATIONS) + "ns, 绘制"
+                    + (drawNanos / ITERATIONS) + "ns";
+        }
+    }
+}
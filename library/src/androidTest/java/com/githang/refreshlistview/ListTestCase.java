@@ -0,0 +1,164 @@
+package com.githang.refreshlistview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.FrameLayout;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在真实窗口中测试{@link RefreshListView}的基类，提供创建列表、模拟拖动及等待帧的方法
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+public abstract class ListTestCase extends ActivityInstrumentationTestCase2<TestActivity> {
+
+    protected CountingRefreshListView mListView;
+
+    protected ArrayAdapter<String> mAdapter;
+
+    private float mTouchX;
+
+    private float mTouchY;
+
+    private float mListTop;
+
+    private long mDownTime;
+
+    private long mEventTime;
+
+    public ListTestCase() {
+        super(TestActivity.class);
+    }
+
+    /**
+     * 创建列表并放到界面上，等待指示器在空闲时创建完毕
+     *
+     * @param offsetDrag 是否通过绘制偏移展示拖动效果
+     * @param rows       数据条数
+     */
+    protected void setUpList(final boolean offsetDrag, final int rows) {
+        final TestActivity activity = getActivity();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                String[] items = new String[rows];
+                for (int i = 0; i < rows; i++) {
+                    items[i] = "item " + i;
+                }
+                mAdapter = new ArrayAdapter<String>(activity,
+                        android.R.layout.simple_list_item_1, items);
+                mListView = new CountingRefreshListView(activity);
+                mListView.setOffsetDragEnabled(offsetDrag);
+                mListView.setAdapter(mAdapter);
+                activity.getContainer().addView(mListView, new FrameLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+        waitForFrames(3);
+        getInstrumentation().waitForIdleSync();
+    }
+
+    /**
+     * 在主线程中清零列表的计数
+     */
+    protected void resetCounts() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mListView.resetCounts();
+            }
+        });
+    }
+
+    /**
+     * 在列表上按下
+     *
+     * @param y 按下的位置，相对于列表顶部
+     */
+    protected void down(float y) {
+        int[] location = new int[2];
+        mListView.getLocationOnScreen(location);
+        mTouchX = location[0] + mListView.getWidth() / 2f;
+        mListTop = location[1];
+        mDownTime = SystemClock.uptimeMillis();
+        mEventTime = mDownTime;
+        mTouchY = y;
+        send(MotionEvent.ACTION_DOWN);
+    }
+
+    /**
+     * 从当前位置拖动到指定位置，每个移动事件间隔一帧
+     *
+     * @param y     结束位置，相对于列表顶部
+     * @param steps 移动事件的个数
+     */
+    protected void moveTo(float y, int steps) {
+        float from = mTouchY;
+        for (int i = 1; i <= steps; i++) {
+            mEventTime += 16;
+            mTouchY = from + (y - from) * i / steps;
+            send(MotionEvent.ACTION_MOVE);
+        }
+    }
+
+    /**
+     * 在当前位置松手
+     */
+    protected void up() {
+        mEventTime += 16;
+        send(MotionEvent.ACTION_UP);
+    }
+
+    private void send(int action) {
+        MotionEvent event = MotionEvent.obtain(mDownTime, mEventTime, action,
+                mTouchX, mListTop + mTouchY, 0);
+        getInstrumentation().sendPointerSync(event);
+        event.recycle();
+    }
+
+    /**
+     * 等待指定的帧数
+     *
+     * @param frames 帧数
+     */
+    protected void waitForFrames(final int frames) {
+        final CountDownLatch latch = new CountDownLatch(frames);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        latch.countDown();
+                        if (latch.getCount() > 0) {
+                            Choreographer.getInstance().postFrameCallback(this);
+                        }
+                    }
+                });
+            }
+        });
+        try {
+            assertTrue("等待绘制超时", latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return 顶部信息栏的默认高度
+     */
+    protected int getHeaderHeight() {
+        return getActivity().getResources()
+                .getDimensionPixelSize(R.dimen.refresh_listview_header_height);
+    }
+}
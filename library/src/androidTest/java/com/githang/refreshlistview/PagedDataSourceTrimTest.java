@@ -0,0 +1,62 @@
+package com.githang.refreshlistview;
+
+import android.content.ComponentCallbacks2;
+
+import junit.framework.TestCase;
+
+/**
+ * 内存等级与窗口分页数的对应关系
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class PagedDataSourceTrimTest extends TestCase {
+
+    private static final int WINDOW = 8;
+
+    public void testModerateKeepsWindow() {
+        assertEquals(WINDOW, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE, WINDOW));
+    }
+
+    public void testRunningLowHalvesWindow() {
+        assertEquals(WINDOW / 2, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, WINDOW));
+        // 减半后不小于最小值
+        assertEquals(2, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, 3));
+    }
+
+    public void testRunningCriticalShrinksToMinimum() {
+        assertEquals(2, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL, WINDOW));
+    }
+
+    /**
+     * 切到后台只是可见性变化，不应缩小窗口
+     */
+    public void testUiHiddenKeepsWindow() {
+        assertEquals(WINDOW, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN, WINDOW));
+    }
+
+    public void testBackgroundShrinksToMinimum() {
+        assertEquals(2, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_BACKGROUND, WINDOW));
+        assertEquals(2, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_MODERATE, WINDOW));
+        assertEquals(2, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_COMPLETE, WINDOW));
+    }
+
+    public void testNeverGrowsWindow() {
+        assertEquals(1, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_COMPLETE, 1));
+        assertEquals(1, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, 1));
+    }
+
+    public void testUnlimitedWindowUnchanged() {
+        assertEquals(0, PagedDataSource.getTrimmedWindowSize(
+                ComponentCallbacks2.TRIM_MEMORY_COMPLETE, 0));
+    }
+}
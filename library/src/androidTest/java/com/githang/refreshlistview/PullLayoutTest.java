@@ -0,0 +1,51 @@
+package com.githang.refreshlistview;
+
+import com.githang.refreshlistview.core.PullStateMachine;
+
+/**
+ * 统计下拉过程中的布局请求及布局次数
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class PullLayoutTest extends ListTestCase {
+
+    /**
+     * 通过绘制偏移展示拖动时，拖动过程中不应请求布局
+     */
+    public void testOffsetDragDoesNotLayout() {
+        setUpList(true, 50);
+        resetCounts();
+
+        int headerHeight = getHeaderHeight();
+        down(headerHeight);
+        moveTo(headerHeight * 5, 20);
+        waitForFrames(2);
+
+        assertEquals(PullStateMachine.RELEASE_TO_REFRESH,
+                mListView.getPullStateMachine().getRefreshState());
+        assertEquals("拖动中请求了布局", 0, mListView.getLayoutRequests());
+        assertEquals("拖动中进行了布局", 0, mListView.getLayouts());
+        up();
+    }
+
+    /**
+     * 通过内边距展示拖动时每帧都会布局，作为对照
+     */
+    public void testPaddingDragLayoutsEveryFrame() {
+        setUpList(false, 50);
+        resetCounts();
+
+        int headerHeight = getHeaderHeight();
+        down(headerHeight);
+        moveTo(headerHeight * 5, 20);
+        waitForFrames(2);
+
+        assertEquals(PullStateMachine.RELEASE_TO_REFRESH,
+                mListView.getPullStateMachine().getRefreshState());
+        assertTrue("拖动中应通过布局改变内边距", mListView.getLayouts() > 0);
+        // 每帧最多合并为一次布局
+        assertTrue("布局次数多于移动事件: " + mListView.getLayouts(),
+                mListView.getLayouts() <= 20);
+        up();
+    }
+}
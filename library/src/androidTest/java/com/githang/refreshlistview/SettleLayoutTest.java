@@ -0,0 +1,34 @@
+package com.githang.refreshlistview;
+
+import com.githang.refreshlistview.core.PullStateMachine;
+
+/**
+ * 统计松手后回弹过程中的布局次数
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class SettleLayoutTest extends ListTestCase {
+
+    /**
+     * 回弹通过绘制偏移完成，每帧重绘但只在松手时布局一次
+     */
+    public void testSettleDoesNotLayoutPerFrame() {
+        setUpList(true, 50);
+        int headerHeight = getHeaderHeight();
+        down(headerHeight);
+        moveTo(headerHeight * 2.5f, 10);
+        waitForFrames(2);
+        assertEquals(PullStateMachine.PULL_TO_REFRESH,
+                mListView.getPullStateMachine().getRefreshState());
+
+        resetCounts();
+        up();
+        // 回弹最长350毫秒
+        waitForFrames(30);
+
+        assertEquals(PullStateMachine.DONE, mListView.getPullStateMachine().getRefreshState());
+        assertTrue("回弹的帧数过少: " + mListView.getDraws(), mListView.getDraws() > 5);
+        assertTrue("回弹中每帧都进行了布局: " + mListView.getLayouts(),
+                mListView.getLayouts() <= 2);
+    }
+}
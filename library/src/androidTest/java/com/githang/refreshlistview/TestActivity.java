@@ -0,0 +1,29 @@
+package com.githang.refreshlistview;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.FrameLayout;
+
+/**
+ * 承载被测列表的界面
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class TestActivity extends Activity {
+
+    private FrameLayout mContainer;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mContainer = new FrameLayout(this);
+        setContentView(mContainer);
+    }
+
+    /**
+     * @return 放置被测列表的容器
+     */
+    public FrameLayout getContainer() {
+        return mContainer;
+    }
+}
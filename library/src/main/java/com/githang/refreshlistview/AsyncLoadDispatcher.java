@@ -0,0 +1,263 @@
+package com.githang.refreshlistview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.view.ViewCompat;
+
+import com.githang.refreshlistview.core.LoadToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将{@link RefreshListView.OnAsyncLoadListener}的加载分发到后台线程，并将结果在主线程按帧批量应用.
+ *
+ * 同一帧内完成的多个结果在下一帧一起交给监听应用，应用后以对应的凭证结束刷新或加载；
+ * 凭证已过期或已被取消的结果直接丢弃.
+ *
+ * @param <R> 加载结果的类型
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+class AsyncLoadDispatcher<R> {
+
+    /**
+     * 默认线程池的线程数
+     */
+    private static final int DEFAULT_POOL_SIZE = 2;
+
+    /**
+     * 默认线程池的等待队列长度，超出后拒绝新的加载
+     */
+    private static final int DEFAULT_QUEUE_SIZE = 16;
+
+    /**
+     * 默认线程池的空闲线程存活时间，单位：秒
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static Executor sDefaultExecutor;
+
+    private static Handler sMainHandler;
+
+    private final RefreshListView mHost;
+
+    private final RefreshListView.OnAsyncLoadListener<R> mListener;
+
+    private Executor mExecutor;
+
+    /**
+     * 后台线程完成、等待应用的结果，需持有锁访问
+     */
+    private List<Result<R>> mPending = new ArrayList<Result<R>>();
+
+    /**
+     * 主线程正在应用的结果，与mPending交换使用，避免每帧分配
+     */
+    private List<Result<R>> mApplying = new ArrayList<Result<R>>();
+
+    /**
+     * 是否已安排应用结果，需持有锁访问
+     */
+    private boolean mFlushScheduled;
+
+    /**
+     * 在主线程中安排到下一帧应用结果
+     */
+    private final Runnable mScheduleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            ViewCompat.postOnAnimation(mHost, mFlushRunnable);
+        }
+    };
+
+    /**
+     * 应用这一帧之前完成的所有结果
+     */
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    AsyncLoadDispatcher(RefreshListView host, RefreshListView.OnAsyncLoadListener<R> listener,
+                        Executor executor) {
+        mHost = host;
+        mListener = listener;
+        mExecutor = executor;
+    }
+
+    /**
+     * @param executor 执行加载的线程池，为null时使用默认的有界线程池
+     */
+    void setExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * 在后台线程开始加载，需在主线程调用
+     *
+     * @param refresh 是否为下拉刷新
+     * @param token   本次刷新或加载的取消标记
+     */
+    void dispatch(final boolean refresh, final LoadToken token) {
+        Executor executor = mExecutor != null ? mExecutor : getDefaultExecutor();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    load(refresh, token);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 线程池已满，按加载失败处理
+            enqueue(new Result<R>(refresh, token, null, e));
+        }
+    }
+
+    /**
+     * 执行加载，在后台线程调用
+     */
+    private void load(boolean refresh, LoadToken token) {
+        if (token.isCancelled()) {
+            return;
+        }
+        R value = null;
+        Exception error = null;
+        try {
+            value = refresh ? mListener.onLoadRefresh(token) : mListener.onLoadMore(token);
+        } catch (Exception e) {
+            error = e;
+        }
+        if (!token.isCancelled()) {
+            enqueue(new Result<R>(refresh, token, value, error));
+        }
+    }
+
+    private void enqueue(Result<R> result) {
+        synchronized (this) {
+            mPending.add(result);
+            if (mFlushScheduled) {
+                return;
+            }
+            mFlushScheduled = true;
+        }
+        getMainHandler().post(mScheduleRunnable);
+    }
+
+    /**
+     * 应用已完成的结果，在主线程调用
+     */
+    private void flush() {
+        List<Result<R>> results;
+        synchronized (this) {
+            results = mPending;
+            mPending = mApplying;
+            mApplying = results;
+            mFlushScheduled = false;
+        }
+        for (int i = 0, size = results.size(); i < size; i++) {
+            apply(results.get(i));
+        }
+        results.clear();
+    }
+
+    private void apply(Result<R> result) {
+        LoadToken token = result.token;
+        int ticket = token.getTicket();
+        if (token.isCancelled()) {
+            return;
+        }
+        if (result.refresh) {
+            if (ticket != mHost.getRefreshTicket()) {
+                return;
+            }
+            if (result.error != null) {
+                mListener.onLoadError(true, result.error);
+            } else {
+                mListener.onRefreshResult(result.value);
+            }
+            mHost.onRefreshComplete(ticket);
+        } else {
+            if (ticket != mHost.getLoadMoreTicket()) {
+                return;
+            }
+            if (result.error != null) {
+                mListener.onLoadError(false, result.error);
+                mHost.onLoadMoreFailed(ticket);
+            } else {
+                mListener.onLoadMoreResult(result.value);
+                mHost.onLoadMoreComplete(ticket);
+            }
+        }
+    }
+
+    /**
+     * @return 是否在主线程
+     */
+    static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    /**
+     * 在主线程执行
+     *
+     * @param runnable 需要执行的任务
+     */
+    static void runOnMainThread(Runnable runnable) {
+        getMainHandler().post(runnable);
+    }
+
+    private static Handler getMainHandler() {
+        synchronized (AsyncLoadDispatcher.class) {
+            if (sMainHandler == null) {
+                sMainHandler = new Handler(Looper.getMainLooper());
+            }
+            return sMainHandler;
+        }
+    }
+
+    private static Executor getDefaultExecutor() {
+        synchronized (AsyncLoadDispatcher.class) {
+            if (sDefaultExecutor == null) {
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_POOL_SIZE,
+                        DEFAULT_POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(DEFAULT_QUEUE_SIZE),
+                        new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                Thread thread = new Thread(r, "RefreshListView-load");
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                executor.allowCoreThreadTimeOut(true);
+                sDefaultExecutor = executor;
+            }
+            return sDefaultExecutor;
+        }
+    }
+
+    /**
+     * 一次加载的结果
+     */
+    private static class Result<R> {
+        final boolean refresh;
+        final LoadToken token;
+        final R value;
+        final Exception error;
+
+        Result(boolean refresh, LoadToken token, R value, Exception error) {
+            this.refresh = refresh;
+            this.token = token;
+            this.value = value;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.githang.refreshlistview;
+
+import android.widget.SectionIndexer;
+
+import com.githang.refreshlistview.core.SectionIndex;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在后台线程逐页建立分组索引的{@link SectionIndexer}，配合{@link RefreshListView#setSectionIndexer(AsyncSectionIndexer)}
+ * 实现快速滑动.
+ *
+ * 下拉刷新后调用{@link #reset(List)}重新建立，上拉加载后调用{@link #append(List)}只为新的一页建立索引.
+ * 分组标题由{@link SectionKeyer}在后台线程计算，结果在主线程生效；生效前仍使用原来的索引，
+ * 超出索引范围的条目归入最后一个分组. 序号均为适配器中的序号，不包括列表的顶部及底部信息栏.
+ *
+ * @param <T> 条目的类型
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class AsyncSectionIndexer<T> implements SectionIndexer {
+
+    /**
+     * 计算条目的分组标题，在后台线程调用
+     *
+     * @param <T> 条目的类型
+     */
+    public interface SectionKeyer<T> {
+        /**
+         * @param item 条目
+         * @return 条目的分组标题，相邻且标题相同的条目属于同一分组
+         */
+        String getSectionKey(T item);
+    }
+
+    /**
+     * 索引在主线程生效的回调
+     */
+    interface OnIndexChangedListener {
+        /**
+         * @param sectionsChanged 分组标题是否发生变化
+         */
+        void onIndexChanged(boolean sectionsChanged);
+    }
+
+    /**
+     * 所有索引共用的后台线程，任务按提交顺序执行
+     */
+    private static Executor sExecutor;
+
+    private final SectionKeyer<T> mKeyer;
+
+    private OnIndexChangedListener mListener;
+
+    /**
+     * 主线程使用的索引
+     */
+    private SectionIndex mIndex = SectionIndex.EMPTY;
+
+    /**
+     * 后台线程正在建立的索引，只在后台线程访问
+     */
+    private SectionIndex mBuilding = SectionIndex.EMPTY;
+
+    /**
+     * 每次重置后递增，丢弃重置前提交的结果，只在主线程访问
+     */
+    private int mGeneration;
+
+    /**
+     * @param keyer 计算条目的分组标题
+     */
+    public AsyncSectionIndexer(SectionKeyer<T> keyer) {
+        if (keyer == null) {
+            throw new IllegalArgumentException("keyer不可为null");
+        }
+        mKeyer = keyer;
+    }
+
+    void setOnIndexChangedListener(OnIndexChangedListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 重新建立索引，需在主线程调用
+     *
+     * @param items 适配器的全部条目，调用时复制，之后可以修改
+     */
+    public void reset(List<? extends T> items) {
+        mGeneration++;
+        submit(items.toArray(), true);
+    }
+
+    /**
+     * 为追加到末尾的条目建立索引，需在主线程调用
+     *
+     * @param items 新追加的条目，调用时复制，之后可以修改
+     */
+    public void append(List<? extends T> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        submit(items.toArray(), false);
+    }
+
+    /**
+     * @return 当前生效的索引
+     */
+    public SectionIndex getIndex() {
+        return mIndex;
+    }
+
+    @Override
+    public Object[] getSections() {
+        return mIndex.getSections();
+    }
+
+    @Override
+    public int getPositionForSection(int section) {
+        return mIndex.getPositionForSection(section);
+    }
+
+    @Override
+    public int getSectionForPosition(int position) {
+        return mIndex.getSectionForPosition(position);
+    }
+
+    private void submit(final Object[] items, final boolean reset) {
+        final int generation = mGeneration;
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final SectionIndex index = build(items, reset);
+                AsyncLoadDispatcher.runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        publish(index, generation);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 在后台线程建立索引
+     */
+    @SuppressWarnings("unchecked")
+    private SectionIndex build(Object[] items, boolean reset) {
+        String[] keys = new String[items.length];
+        for (int i = 0; i < items.length; i++) {
+            keys[i] = mKeyer.getSectionKey((T) items[i]);
+        }
+        SectionIndex base = reset ? SectionIndex.EMPTY : mBuilding;
+        mBuilding = base.append(keys, keys.length);
+        return mBuilding;
+    }
+
+    private void publish(SectionIndex index, int generation) {
+        if (generation != mGeneration) {
+            return;
+        }
+        boolean sectionsChanged = !index.hasSameSections(mIndex);
+        mIndex = index;
+        if (mListener != null) {
+            mListener.onIndexChanged(sectionsChanged);
+        }
+    }
+
+    private static Executor getExecutor() {
+        synchronized (AsyncSectionIndexer.class) {
+            if (sExecutor == null) {
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "RefreshListView-index");
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }
+                });
+                executor.allowCoreThreadTimeOut(true);
+                sExecutor = executor;
+            }
+            return sExecutor;
+        }
+    }
+}
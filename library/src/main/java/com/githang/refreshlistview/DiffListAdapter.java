@@ -0,0 +1,244 @@
+package com.githang.refreshlistview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.BaseAdapter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 在后台线程比较新旧数据的适配器.
+ *
+ * 通过{@link #submitList(List)}提交新数据后，在后台线程按稳定ID及内容比较新旧数据：
+ * 数据没有变化时不做处理；只有条目内容变化时只重新绑定可见的变化条目；
+ * 有条目增删或移动时才调用{@link #notifyDataSetChanged()}. 比较时先按稳定ID匹配首尾相同的部分，
+ * 刷新时在顶部插入、加载时在底部追加等只有一段发生增删的情况，会把增删的位置告诉列表，
+ * 列表据此直接计算第一个可见条目的新位置. 提交的数据不可再被修改.
+ *
+ * @param <T> 条目数据
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public abstract class DiffListAdapter<T> extends BaseAdapter {
+
+    /**
+     * 默认的比较线程
+     */
+    private static ExecutorService sDefaultExecutor;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 当前展示的数据
+     */
+    private List<T> mItems = Collections.emptyList();
+
+    /**
+     * 提交的版本，用于丢弃过期的比较结果
+     */
+    private int mGeneration;
+
+    /**
+     * 执行比较的线程池
+     */
+    private Executor mDiffExecutor;
+
+    /**
+     * 用于局部重新绑定条目的列表
+     */
+    private RefreshListView mListView;
+
+    /**
+     * 获取条目的稳定ID，同一条数据在新旧列表中的ID必须相同
+     *
+     * @param item 条目数据
+     * @return 稳定ID
+     */
+    protected abstract long getStableId(T item);
+
+    /**
+     * 判断同一ID的新旧条目内容是否相同，默认使用equals比较
+     *
+     * @param oldItem 旧条目
+     * @param newItem 新条目
+     * @return 内容是否相同
+     */
+    protected boolean areContentsTheSame(T oldItem, T newItem) {
+        return oldItem == null ? newItem == null : oldItem.equals(newItem);
+    }
+
+    /**
+     * 设置展示本适配器的列表，设置后内容变化的条目可在不重新布局的情况下重新绑定
+     *
+     * @param listView 列表
+     */
+    public void attachTo(RefreshListView listView) {
+        mListView = listView;
+    }
+
+    /**
+     * 设置执行比较的线程池，默认使用一个共享的后台线程
+     *
+     * @param executor 线程池
+     */
+    public void setDiffExecutor(Executor executor) {
+        mDiffExecutor = executor;
+    }
+
+    /**
+     * 提交新的数据，比较在后台线程进行，结果在主线程应用
+     *
+     * @param newItems 新的数据，提交后不可再被修改
+     */
+    public void submitList(List<T> newItems) {
+        final List<T> oldItems = mItems;
+        final List<T> items = newItems == null ? Collections.<T>emptyList() : newItems;
+        final int generation = ++mGeneration;
+        getDiffExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Diff diff = diff(oldItems, items);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            apply(items, diff);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 比较新旧数据. 先按稳定ID匹配首尾相同的部分，中间不同的部分视为一段增删，
+     * 首尾相同的部分再按内容比较
+     *
+     * @param oldItems 旧数据
+     * @param newItems 新数据
+     * @return 比较结果
+     */
+    private Diff diff(List<T> oldItems, List<T> newItems) {
+        int oldSize = oldItems.size();
+        int newSize = newItems.size();
+        int minSize = Math.min(oldSize, newSize);
+        int prefix = 0;
+        while (prefix < minSize
+                && getStableId(oldItems.get(prefix)) == getStableId(newItems.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < minSize - prefix && getStableId(oldItems.get(oldSize - 1 - suffix))
+                == getStableId(newItems.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+        int[] changed = new int[prefix + suffix];
+        int count = 0;
+        for (int i = 0; i < prefix; i++) {
+            if (!areContentsTheSame(oldItems.get(i), newItems.get(i))) {
+                changed[count++] = i;
+            }
+        }
+        for (int i = suffix; i > 0; i--) {
+            if (!areContentsTheSame(oldItems.get(oldSize - i), newItems.get(newSize - i))) {
+                changed[count++] = newSize - i;
+            }
+        }
+        return new Diff(prefix, oldSize - prefix - suffix, newSize - prefix - suffix,
+                changed, count);
+    }
+
+    /**
+     * 在主线程应用比较结果
+     *
+     * @param items 新数据
+     * @param diff  比较结果
+     */
+    private void apply(List<T> items, Diff diff) {
+        mItems = items;
+        if (diff.removed == 0 && diff.inserted == 0) {
+            if (diff.changedCount == 0) {
+                return;
+            }
+            if (mListView != null && mListView.rebindItems(diff.changed, diff.changedCount)) {
+                return;
+            }
+        } else if (mListView != null) {
+            // 增删范围以外的条目可以直接计算新位置
+            mListView.setPendingItemShift(diff.position, diff.removed, diff.inserted);
+        }
+        notifyDataSetChanged();
+    }
+
+    private Executor getDiffExecutor() {
+        if (mDiffExecutor != null) {
+            return mDiffExecutor;
+        }
+        synchronized (DiffListAdapter.class) {
+            if (sDefaultExecutor == null) {
+                sDefaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "RefreshListView-diff");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return sDefaultExecutor;
+        }
+    }
+
+    /**
+     * @return 当前展示的数据
+     */
+    public List<T> getItems() {
+        return mItems;
+    }
+
+    @Override
+    public int getCount() {
+        return mItems.size();
+    }
+
+    @Override
+    public T getItem(int position) {
+        return mItems.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getStableId(mItems.get(position));
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    /**
+     * 比较结果：在position处删除removed条旧数据并插入inserted条新数据，其余条目的ID不变
+     */
+    private static class Diff {
+        final int position;
+        final int removed;
+        final int inserted;
+        /**
+         * ID不变但内容变化的条目在新数据中的序号
+         */
+        final int[] changed;
+        final int changedCount;
+
+        Diff(int position, int removed, int inserted, int[] changed, int changedCount) {
+            this.position = position;
+            this.removed = removed;
+            this.inserted = inserted;
+            this.changed = changed;
+            this.changedCount = changedCount;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.githang.refreshlistview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * 统计一段时间内的帧数及丢帧数，仅在Android 4.1及以上可用.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class FrameMonitor implements Choreographer.FrameCallback {
+
+    /**
+     * 统计结果回调
+     */
+    interface Callback {
+        /**
+         * 统计结束
+         *
+         * @param frames        期间绘制的帧数
+         * @param droppedFrames 期间丢失的帧数
+         */
+        void onFrameStats(int frames, int droppedFrames);
+    }
+
+    private final Callback mCallback;
+
+    /**
+     * 每帧的间隔，单位：纳秒
+     */
+    private final long mFrameIntervalNanos;
+
+    private boolean mRunning;
+
+    private long mLastFrameTimeNanos;
+
+    private int mFrames;
+
+    private int mDroppedFrames;
+
+    /**
+     * 构造方法
+     *
+     * @param refreshRate 屏幕刷新率
+     * @param callback    统计结果回调
+     */
+    FrameMonitor(float refreshRate, Callback callback) {
+        mFrameIntervalNanos = (long) (1000000000L / (refreshRate > 0 ? refreshRate : 60));
+        mCallback = callback;
+    }
+
+    /**
+     * 开始统计，已在统计中时不做处理
+     */
+    void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mLastFrameTimeNanos = 0;
+        mFrames = 0;
+        mDroppedFrames = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * 结束统计并回调结果
+     */
+    void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+        mCallback.onFrameStats(mFrames, mDroppedFrames);
+    }
+
+    /**
+     * @return 是否正在统计
+     */
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameTimeNanos > 0) {
+            long skipped = (frameTimeNanos - mLastFrameTimeNanos) / mFrameIntervalNanos - 1;
+            if (skipped > 0) {
+                mDroppedFrames += skipped;
+            }
+        }
+        mFrames++;
+        mLastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
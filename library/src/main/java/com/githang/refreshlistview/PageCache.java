@@ -0,0 +1,93 @@
+package com.githang.refreshlistview;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按最近最少使用(LRU)淘汰的内存分页缓存.
+ *
+ * @param <K> 分页的键
+ * @param <V> 分页数据
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class PageCache<K, V> {
+
+    /**
+     * 缓存的分页，按访问顺序排列
+     */
+    private final LinkedHashMap<K, V> mPages;
+
+    /**
+     * 最多缓存的分页数
+     */
+    private int mMaxPages;
+
+    /**
+     * 构造方法
+     *
+     * @param maxPages 最多缓存的分页数
+     */
+    public PageCache(int maxPages) {
+        if (maxPages < 1) {
+            throw new IllegalArgumentException("缓存的分页数不可小于1");
+        }
+        mMaxPages = maxPages;
+        mPages = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > mMaxPages;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存的分页
+     *
+     * @param key 分页的键
+     * @return 分页数据，未缓存时返回null
+     */
+    public V get(K key) {
+        return mPages.get(key);
+    }
+
+    /**
+     * 缓存分页，超出容量时淘汰最久未使用的分页
+     *
+     * @param key  分页的键
+     * @param page 分页数据
+     */
+    public void put(K key, V page) {
+        mPages.put(key, page);
+    }
+
+    /**
+     * 移除缓存的分页
+     *
+     * @param key 分页的键
+     * @return 被移除的分页数据
+     */
+    public V remove(K key) {
+        return mPages.remove(key);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        mPages.clear();
+    }
+
+    /**
+     * @return 当前缓存的分页数
+     */
+    public int size() {
+        return mPages.size();
+    }
+
+    /**
+     * @return 最多缓存的分页数
+     */
+    public int getMaxPages() {
+        return mMaxPages;
+    }
+}
@@ -0,0 +1,1102 @@
+package com.githang.refreshlistview;
+
+import android.content.ComponentCallbacks2;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+import com.githang.refreshlistview.core.DiskPageCache;
+import com.githang.refreshlistview.core.LoadToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 基于{@link RefreshListView}的分页数据源.
+ *
+ * 负责按页的键加载数据、缓存最近使用的分页，并保证同一个键同时只有一个请求在进行，
+ * 避免自动加载、松手加载及点击底部信息栏同时触发时重复请求同一页.
+ * 列表取消刷新或加载（超时、移除、替换适配器或被新的刷新取代）时，对应的请求也会被取消，
+ * 加载方可通过{@link Callback#isCancelled()}或{@link Callback#setOnCancelListener(OnCancelListener)}提前停止.
+ * 数据加载完成后会通知绑定的适配器刷新.
+ *
+ * 通过{@link #setWindowSize(int)}可开启窗口模式：内存中只保留可见区域附近的若干页，
+ * 远离可见区域的分页会被移出，向上滑回顶部或下拉时再通过顶部信息栏重新加载，
+ * 移出及重新加载时保持列表的滑动位置不变.
+ *
+ * 通过{@link #setDiskCache(DiskPageCache, PageCodec)}可将加载的分页保存到磁盘，
+ * 冷启动时调用{@link #restoreFromDisk()}先展示上次的数据，再在后台刷新.
+ * 设置了磁盘缓存时，列表的状态中会附带窗口第一页的键及页数，进程被回收后恢复时从磁盘读取这些分页，不重新请求.
+ *
+ * @param <K> 分页的键，如页码或服务端返回的游标
+ * @param <T> 条目数据
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public abstract class PagedDataSource<K, T> implements RefreshListView.OnRefreshLoadListener {
+
+    /**
+     * 默认每页条数
+     */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * 默认缓存的分页数
+     */
+    public static final int DEFAULT_MAX_CACHED_PAGES = 8;
+
+    /**
+     * 内存紧张时窗口最多保留的分页数
+     */
+    private static final int MIN_WINDOW_SIZE = 2;
+
+    /**
+     * 加载类型-下拉刷新
+     */
+    private static final int LOAD_REFRESH = 0;
+
+    /**
+     * 加载类型-加载下一页
+     */
+    private static final int LOAD_NEXT = 1;
+
+    /**
+     * 加载类型-窗口模式下加载已移出的上一页
+     */
+    private static final int LOAD_PREVIOUS = 2;
+
+    /**
+     * 保存的状态-窗口第一页的键
+     */
+    private static final String STATE_WINDOW_KEY = "com.githang.refreshlistview.window_key";
+
+    /**
+     * 保存的状态-窗口的分页数
+     */
+    private static final String STATE_WINDOW_PAGES = "com.githang.refreshlistview.window_pages";
+
+    /**
+     * 默认的磁盘读写线程
+     */
+    private static ExecutorService sDiskExecutor;
+
+    /**
+     * 每页条数
+     */
+    private final int mPageSize;
+
+    /**
+     * 分页缓存
+     */
+    private final PageCache<K, Page<K, T>> mPageCache;
+
+    /**
+     * 正在请求中的分页
+     */
+    private final Map<K, Callback<K, T>> mInFlight = new HashMap<K, Callback<K, T>>();
+
+    /**
+     * 当前在内存中的条目，即窗口内各分页的条目
+     */
+    private final List<T> mItems = new ArrayList<T>();
+
+    /**
+     * 当前在内存中的分页，按顺序排列
+     */
+    private final List<Page<K, T>> mWindow = new ArrayList<Page<K, T>>();
+
+    /**
+     * 自第一页起已加载过的所有分页的键，按顺序排列，用于重新加载移出窗口的分页
+     */
+    private final List<K> mKeys = new ArrayList<K>();
+
+    /**
+     * 窗口内第一页在{@link #mKeys}中的序号
+     */
+    private int mWindowStart;
+
+    /**
+     * 已加载过的最后一页的下一页的键，为null时表示没有更多数据
+     */
+    private K mLastNextKey;
+
+    /**
+     * 窗口最多保留的分页数，为0时不限制
+     */
+    private int mWindowSize;
+
+    /**
+     * 设置的窗口分页数，内存紧张时缩小的窗口在刷新后恢复为该值
+     */
+    private int mConfiguredWindowSize;
+
+    /**
+     * 快速滑动的分组索引，为null时不建立
+     */
+    private AsyncSectionIndexer<T> mSectionIndexer;
+
+    /**
+     * 窗口模式下，滑动到顶部附近时自动加载已移出的上一页
+     */
+    private final RefreshListView.OnPrefetchListener mPrefetchListener =
+            new RefreshListView.OnPrefetchListener() {
+                @Override
+                public void onPrefetch(int start, int end) {
+                    if (start == 0 && hasPrevious() && mListView != null
+                            && !isLoading(mKeys.get(mWindowStart - 1))) {
+                        // 通过顶部信息栏加载，复用下拉刷新的状态及凭证
+                        mListView.triggerRefresh();
+                    }
+                }
+
+                @Override
+                public void onCancelPrefetch(int start, int end) {
+                }
+            };
+
+    /**
+     * 数据的版本，每次刷新时递增，用于丢弃刷新前发出的请求的结果
+     */
+    private int mGeneration;
+
+    private RefreshListView mListView;
+
+    private BaseAdapter mAdapter;
+
+    /**
+     * 磁盘缓存，为null时不保存到磁盘
+     */
+    private DiskPageCache mDiskCache;
+
+    /**
+     * 分页在磁盘缓存中的读写
+     */
+    private DiskPageCache.Codec<Page<K, T>> mDiskCodec;
+
+    /**
+     * 分页的键及条目的读写，保存状态时用于写入分页的键
+     */
+    private PageCodec<K, T> mPageCodec;
+
+    /**
+     * 从磁盘恢复的版本，只展示最近一次恢复的结果
+     */
+    private int mRestoreVersion;
+
+    /**
+     * 随列表的状态保存窗口第一页的键及页数
+     */
+    private final RefreshListView.OnSaveStateListener mSaveStateListener =
+            new RefreshListView.OnSaveStateListener() {
+                @Override
+                public void onSaveState(Bundle state) {
+                    if (mPageCodec == null || mWindow.isEmpty()) {
+                        return;
+                    }
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    try {
+                        mPageCodec.writeKey(new DataOutputStream(bytes), mWindow.get(0).key);
+                    } catch (IOException e) {
+                        return;
+                    }
+                    state.putByteArray(STATE_WINDOW_KEY, bytes.toByteArray());
+                    state.putInt(STATE_WINDOW_PAGES, mWindow.size());
+                }
+
+                @Override
+                public void onRestoreState(Bundle state) {
+                    byte[] bytes = state.getByteArray(STATE_WINDOW_KEY);
+                    int pages = state.getInt(STATE_WINDOW_PAGES);
+                    if (mPageCodec == null || bytes == null || pages <= 0) {
+                        return;
+                    }
+                    K key;
+                    try {
+                        key = mPageCodec.readKey(new DataInputStream(new ByteArrayInputStream(bytes)));
+                    } catch (IOException e) {
+                        return;
+                    }
+                    restoreFromDisk(key, pages, false);
+                }
+            };
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 使用默认的每页条数及缓存页数构造
+     */
+    public PagedDataSource() {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_MAX_CACHED_PAGES);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param pageSize       每页条数
+     * @param maxCachedPages 最多缓存的分页数
+     */
+    public PagedDataSource(int pageSize, int maxCachedPages) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("每页条数不可小于1");
+        }
+        mPageSize = pageSize;
+        mPageCache = new PageCache<K, Page<K, T>>(maxCachedPages);
+    }
+
+    /**
+     * 绑定列表及适配器，数据源将作为列表的刷新监听，并按凭证结束刷新及加载
+     *
+     * @param listView 列表
+     * @param adapter  展示本数据源数据的适配器
+     */
+    public void bind(RefreshListView listView, BaseAdapter adapter) {
+        mListView = listView;
+        mAdapter = adapter;
+        listView.setOnRefreshLoadListener(this);
+        listView.setCompleteOnDataChanged(false);
+        listView.setOnSaveStateListener(mSaveStateListener);
+        if (mWindowSize > 0) {
+            listView.setInternalPrefetchListener(mPrefetchListener);
+        }
+        if (mSectionIndexer != null) {
+            listView.setSectionIndexer(mSectionIndexer);
+        }
+    }
+
+    /**
+     * 设置快速滑动的分组索引，并开启列表的快速滑动. 加载下一页时只为新的一页建立索引，
+     * 刷新或窗口变化时重新建立，均在后台线程进行
+     *
+     * @param indexer 分组索引，为null时关闭
+     */
+    public void setSectionIndexer(AsyncSectionIndexer<T> indexer) {
+        mSectionIndexer = indexer;
+        if (mListView != null) {
+            mListView.setSectionIndexer(indexer);
+        }
+        if (indexer != null && !mItems.isEmpty()) {
+            indexer.reset(mItems);
+        }
+    }
+
+    /**
+     * 设置窗口模式下内存中最多保留的分页数，为0时关闭窗口模式. 需在{@link #bind(RefreshListView, BaseAdapter)}之前调用.
+     * 窗口模式下通过列表内部的预取监听在滑回顶部时自动加载已移出的分页，不影响应用设置的预取监听；
+     * 存在已移出的上一页时，下拉刷新会加载上一页而不是重新加载第一页
+     *
+     * @param pages 最多保留的分页数，为0时不限制
+     */
+    public void setWindowSize(int pages) {
+        if (pages < 0) {
+            throw new IllegalArgumentException("窗口分页数不可小于0");
+        }
+        mConfiguredWindowSize = pages;
+        mWindowSize = pages;
+    }
+
+    /**
+     * 设置磁盘缓存，之后从网络加载的分页都会在后台保存到磁盘
+     *
+     * @param cache 磁盘缓存，为null时不保存
+     * @param codec 分页的键及条目的读写
+     */
+    public void setDiskCache(DiskPageCache cache, final PageCodec<K, T> codec) {
+        mDiskCache = cache;
+        mPageCodec = codec;
+        mDiskCodec = cache == null ? null : new DiskPageCache.Codec<Page<K, T>>() {
+            @Override
+            public void write(DataOutput out, Page<K, T> page) throws IOException {
+                codec.writeKey(out, page.key);
+                out.writeBoolean(page.nextKey != null);
+                if (page.nextKey != null) {
+                    codec.writeKey(out, page.nextKey);
+                }
+                out.writeInt(page.items.size());
+                for (T item : page.items) {
+                    codec.writeItem(out, item);
+                }
+            }
+
+            @Override
+            public Page<K, T> read(DataInput in) throws IOException {
+                K key = codec.readKey(in);
+                K nextKey = in.readBoolean() ? codec.readKey(in) : null;
+                int count = in.readInt();
+                if (count < 0) {
+                    throw new IOException("条目数错误: " + count);
+                }
+                List<T> items = new ArrayList<T>(count);
+                for (int i = 0; i < count; i++) {
+                    items.add(codec.readItem(in));
+                }
+                return new Page<K, T>(key, items, nextKey);
+            }
+        };
+    }
+
+    /**
+     * 在后台读取磁盘缓存中自第一页起连续的分页并立即展示，列表的更新时间显示为缓存的写入时间，
+     * 之后触发下拉刷新重新验证. 已有数据或读取前已开始刷新时丢弃缓存的数据
+     */
+    public void restoreFromDisk() {
+        restoreFromDisk(getInitialKey(),
+                mWindowSize > 0 ? mWindowSize : mPageCache.getMaxPages(), true);
+    }
+
+    /**
+     * 在后台读取磁盘缓存中自指定的键起连续的分页并展示
+     *
+     * @param initialKey 第一页的键
+     * @param maxPages   最多读取的分页数
+     * @param revalidate 展示后是否触发下拉刷新重新验证，为false时只在缓存中没有数据时刷新
+     */
+    private void restoreFromDisk(final K initialKey, final int maxPages, final boolean revalidate) {
+        if (mDiskCache == null) {
+            return;
+        }
+        final DiskPageCache cache = mDiskCache;
+        final DiskPageCache.Codec<Page<K, T>> codec = mDiskCodec;
+        final int generation = mGeneration;
+        final int version = ++mRestoreVersion;
+        getDiskExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Page<K, T>> pages = new ArrayList<Page<K, T>>();
+                long timestamp = 0;
+                K key = initialKey;
+                while (key != null && pages.size() < maxPages) {
+                    DiskPageCache.Entry<Page<K, T>> entry = cache.get(String.valueOf(key), codec);
+                    if (entry == null) {
+                        break;
+                    }
+                    if (pages.isEmpty()) {
+                        timestamp = entry.timestamp;
+                    }
+                    pages.add(entry.value);
+                    key = entry.value.nextKey;
+                }
+                final long cachedTime = timestamp;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (version == mRestoreVersion) {
+                            onRestored(pages, cachedTime, generation, revalidate);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 展示从磁盘读取的分页，已移出窗口的分页不恢复，下拉时从第一页刷新
+     *
+     * @param pages      连续的分页
+     * @param timestamp  第一页的写入时间
+     * @param generation 开始读取时的数据版本
+     * @param revalidate 是否触发下拉刷新重新验证
+     */
+    private void onRestored(List<Page<K, T>> pages, long timestamp, int generation,
+                            boolean revalidate) {
+        if (generation != mGeneration || !mItems.isEmpty() || !mInFlight.isEmpty()) {
+            return;
+        }
+        if (!pages.isEmpty()) {
+            mKeys.clear();
+            mWindow.clear();
+            mWindowStart = 0;
+            for (Page<K, T> page : pages) {
+                mKeys.add(page.key);
+                mWindow.add(page);
+                mItems.addAll(page.items);
+            }
+            mLastNextKey = pages.get(pages.size() - 1).nextKey;
+            updateSectionIndex(null);
+            notifyChanged(0);
+            if (mListView != null) {
+                mListView.setRefreshTime(timestamp);
+            }
+        }
+        if (mListView != null && (revalidate || pages.isEmpty())) {
+            mListView.triggerRefresh();
+        }
+    }
+
+    /**
+     * 在后台将从网络加载的分页保存到磁盘
+     *
+     * @param page 分页数据
+     */
+    private void saveToDisk(final Page<K, T> page) {
+        if (mDiskCache == null) {
+            return;
+        }
+        final DiskPageCache cache = mDiskCache;
+        final DiskPageCache.Codec<Page<K, T>> codec = mDiskCodec;
+        final long timestamp = System.currentTimeMillis();
+        getDiskExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    cache.put(String.valueOf(page.key), page, codec, timestamp);
+                } catch (IOException e) {
+                    // 缓存写入失败不影响展示
+                }
+            }
+        });
+    }
+
+    private static Executor getDiskExecutor() {
+        synchronized (PagedDataSource.class) {
+            if (sDiskExecutor == null) {
+                sDiskExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "RefreshListView-disk");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return sDiskExecutor;
+        }
+    }
+
+    /**
+     * 系统内存紧张时调用，清空分页缓存并缩小窗口，需由Activity或Application转发.
+     * 界面不可见（{@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN}）不代表内存紧张，只清空分页缓存
+     *
+     * @param level {@link ComponentCallbacks2}中的内存等级
+     */
+    public void onTrimMemory(int level) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return;
+        }
+        mPageCache.clear();
+        int windowSize = getTrimmedWindowSize(level, mWindowSize);
+        if (windowSize != mWindowSize) {
+            mWindowSize = windowSize;
+            trimWindow();
+        }
+    }
+
+    /**
+     * 计算内存紧张时窗口保留的分页数：运行中内存较低时减半，内存严重不足或进程已进入后台时缩小到最小值，
+     * 其余等级不变. 不会大于原来的分页数
+     *
+     * @param level      {@link ComponentCallbacks2}中的内存等级
+     * @param windowSize 当前窗口的分页数，为0时表示不限制
+     * @return 缩小后窗口的分页数
+     */
+    static int getTrimmedWindowSize(int level, int windowSize) {
+        if (windowSize == 0 || level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            return windowSize;
+        }
+        if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return Math.min(windowSize, Math.max(MIN_WINDOW_SIZE, windowSize / 2));
+        }
+        return Math.min(windowSize, MIN_WINDOW_SIZE);
+    }
+
+    /**
+     * 第一页的键
+     *
+     * @return 第一页的键
+     */
+    protected abstract K getInitialKey();
+
+    /**
+     * 加载一页数据，完成后需在主线程调用callback的对应方法
+     *
+     * @param key      分页的键
+     * @param pageSize 每页条数
+     * @param callback 加载结果回调
+     */
+    protected abstract void loadPage(K key, int pageSize, Callback<K, T> callback);
+
+    @Override
+    public void onRefresh(ListView v) {
+        int ticket = getTicket(v, true);
+        LoadToken token = getToken(v, true);
+        if (hasPrevious()) {
+            requestPage(mKeys.get(mWindowStart - 1), LOAD_PREVIOUS, ticket, token);
+            return;
+        }
+        mGeneration++;
+        // 刷新前发出的请求结果都将被丢弃，通知加载方提前停止
+        List<Callback<K, T>> stale = new ArrayList<Callback<K, T>>(mInFlight.values());
+        mInFlight.clear();
+        for (Callback<K, T> callback : stale) {
+            callback.cancel();
+        }
+        mPageCache.clear();
+        requestPage(getInitialKey(), LOAD_REFRESH, ticket, token);
+    }
+
+    @Override
+    public void onLoadMore(ListView v) {
+        int ticket = getTicket(v, false);
+        LoadToken token = getToken(v, false);
+        K nextKey = getNextKey();
+        if (nextKey == null) {
+            if (mItems.isEmpty()) {
+                requestPage(getInitialKey(), LOAD_NEXT, ticket, token);
+            } else if (mListView != null) {
+                mListView.onLoadMoreComplete(ticket);
+            }
+            return;
+        }
+        requestPage(nextKey, LOAD_NEXT, ticket, token);
+    }
+
+    /**
+     * @return 窗口之后下一页的键，没有更多数据时为null
+     */
+    private K getNextKey() {
+        int windowEnd = mWindowStart + mWindow.size();
+        return windowEnd < mKeys.size() ? mKeys.get(windowEnd) : mLastNextKey;
+    }
+
+    /**
+     * @return 窗口之前是否有已移出的分页
+     */
+    private boolean hasPrevious() {
+        return mWindowStart > 0;
+    }
+
+    /**
+     * 获取列表本次刷新或加载的凭证
+     *
+     * @param v       触发的列表
+     * @param refresh 是否为下拉刷新
+     * @return 凭证
+     */
+    private static int getTicket(ListView v, boolean refresh) {
+        if (!(v instanceof RefreshListView)) {
+            return RefreshListView.NO_TICKET;
+        }
+        RefreshListView listView = (RefreshListView) v;
+        return refresh ? listView.getRefreshTicket() : listView.getLoadMoreTicket();
+    }
+
+    /**
+     * 获取列表本次刷新或加载的取消标记
+     *
+     * @param v       触发的列表
+     * @param refresh 是否为下拉刷新
+     * @return 取消标记，不是{@link RefreshListView}时返回null
+     */
+    private static LoadToken getToken(ListView v, boolean refresh) {
+        if (!(v instanceof RefreshListView)) {
+            return null;
+        }
+        RefreshListView listView = (RefreshListView) v;
+        return refresh ? listView.getRefreshToken() : listView.getLoadMoreToken();
+    }
+
+    /**
+     * 请求指定的分页，已缓存时直接使用缓存，正在请求中时由该请求结束本次凭证
+     *
+     * @param key    分页的键
+     * @param type   加载类型
+     * @param ticket 列表本次刷新或加载的凭证
+     * @param token  列表本次刷新或加载的取消标记
+     */
+    private void requestPage(K key, int type, int ticket, LoadToken token) {
+        Page<K, T> cached = mPageCache.get(key);
+        if (cached != null) {
+            onPageLoaded(cached, type, ticket);
+            return;
+        }
+        Callback<K, T> inFlight = mInFlight.get(key);
+        if (inFlight != null) {
+            inFlight.mTicket = ticket;
+            inFlight.setToken(token);
+            return;
+        }
+        Callback<K, T> callback = new Callback<K, T>(this, key, type, ticket, mGeneration);
+        mInFlight.put(key, callback);
+        callback.setToken(token);
+        loadPage(key, mPageSize, callback);
+    }
+
+    /**
+     * 分页加载完成
+     *
+     * @param page   分页数据
+     * @param type   加载类型
+     * @param ticket 列表本次刷新或加载的凭证
+     * @param token  列表本次刷新或加载的取消标记
+     */
+    private void onPageLoaded(Page<K, T> page, int type, int ticket) {
+        mPageCache.put(page.key, page);
+        // 新增在可见区域之前的条目数，用于保持滑动位置
+        int shift = 0;
+        if (type == LOAD_REFRESH) {
+            mItems.clear();
+            mWindow.clear();
+            mKeys.clear();
+            mWindowStart = 0;
+            mWindowSize = mConfiguredWindowSize;
+            mKeys.add(page.key);
+            mWindow.add(page);
+            mItems.addAll(page.items);
+            mLastNextKey = page.nextKey;
+        } else if (type == LOAD_PREVIOUS) {
+            if (mWindowStart == 0 || !page.key.equals(mKeys.get(mWindowStart - 1))) {
+                // 窗口已变化，结果不再适用
+                complete(true, ticket);
+                return;
+            }
+            mWindowStart--;
+            mWindow.add(0, page);
+            mItems.addAll(0, page.items);
+            shift = page.items.size();
+            evictBack(shift);
+        } else {
+            int windowEnd = mWindowStart + mWindow.size();
+            if (windowEnd < mKeys.size()) {
+                if (!page.key.equals(mKeys.get(windowEnd))) {
+                    complete(false, ticket);
+                    return;
+                }
+            } else {
+                mKeys.add(page.key);
+                mLastNextKey = page.nextKey;
+            }
+            mWindow.add(page);
+            mItems.addAll(page.items);
+            shift = -evictFront();
+        }
+        // 只在末尾追加了一页时增量建立索引
+        updateSectionIndex(type == LOAD_NEXT && shift == 0 ? page : null);
+        notifyChanged(shift);
+        complete(type != LOAD_NEXT, ticket);
+    }
+
+    /**
+     * 内存紧张缩小窗口后，移出可见区域两侧多余的分页
+     */
+    private void trimWindow() {
+        int shift = -evictFront();
+        evictBack(shift);
+        updateSectionIndex(null);
+        notifyChanged(shift);
+    }
+
+    /**
+     * 更新分组索引
+     *
+     * @param appended 追加到末尾的分页，为null时重新建立
+     */
+    private void updateSectionIndex(Page<K, T> appended) {
+        if (mSectionIndexer == null) {
+            return;
+        }
+        if (appended != null) {
+            mSectionIndexer.append(appended.items);
+        } else {
+            mSectionIndexer.reset(mItems);
+        }
+    }
+
+    /**
+     * 从窗口前部移出已完全滑过的多余分页
+     *
+     * @return 移出的条目数
+     */
+    private int evictFront() {
+        if (mWindowSize == 0) {
+            return 0;
+        }
+        int first = getFirstVisibleItem();
+        int removed = 0;
+        while (mWindow.size() > mWindowSize) {
+            int size = mWindow.get(0).items.size();
+            if (removed + size > first) {
+                // 该页仍在可见区域内
+                break;
+            }
+            mWindow.remove(0);
+            mWindowStart++;
+            removed += size;
+        }
+        if (removed > 0) {
+            mItems.subList(0, removed).clear();
+        }
+        return removed;
+    }
+
+    /**
+     * 从窗口后部移出尚未滑到的多余分页
+     *
+     * @param shift 列表刷新前可见区域之前已新增的条目数
+     */
+    private void evictBack(int shift) {
+        if (mWindowSize == 0) {
+            return;
+        }
+        int last = getFirstVisibleItem() + shift + getVisibleItemCount();
+        while (mWindow.size() > mWindowSize) {
+            int size = mWindow.get(mWindow.size() - 1).items.size();
+            if (mItems.size() - size < last) {
+                break;
+            }
+            mWindow.remove(mWindow.size() - 1);
+            mItems.subList(mItems.size() - size, mItems.size()).clear();
+        }
+    }
+
+    /**
+     * @return 第一个可见条目在适配器中的序号
+     */
+    private int getFirstVisibleItem() {
+        if (mListView == null) {
+            return 0;
+        }
+        return Math.max(0, mListView.getFirstVisiblePosition() - mListView.getHeaderViewsCount());
+    }
+
+    /**
+     * @return 可见的条目数
+     */
+    private int getVisibleItemCount() {
+        return mListView == null ? 0 : mListView.getChildCount();
+    }
+
+    /**
+     * 通知数据变化，并在可见区域之前的条目数变化时保持滑动位置
+     *
+     * @param shift 可见区域之前新增的条目数，移除时为负数
+     */
+    private void notifyChanged(int shift) {
+        int position = 0;
+        int top = 0;
+        if (shift != 0 && mListView != null) {
+            position = mListView.getFirstVisiblePosition();
+            View child = mListView.getChildAt(0);
+            top = child == null ? 0 : child.getTop();
+        }
+        if (mListView != null) {
+            mListView.setNoMoreData(getNextKey() == null);
+        }
+        if (mAdapter != null) {
+            mAdapter.notifyDataSetChanged();
+        }
+        if (shift != 0 && mListView != null) {
+            mListView.setSelectionFromTop(Math.max(0, position + shift), top);
+        }
+    }
+
+    /**
+     * 分页加载失败
+     *
+     * @param key    分页的键
+     * @param type   加载类型
+     * @param ticket 列表本次刷新或加载的凭证
+     * @param error  失败原因
+     */
+    private void onPageFailed(K key, int type, int ticket, Throwable error) {
+        if (type == LOAD_NEXT && mListView != null) {
+            // 底部信息栏显示失败状态，由列表控制重试
+            mListView.onLoadMoreFailed(ticket);
+            return;
+        }
+        complete(type != LOAD_NEXT, ticket);
+    }
+
+    /**
+     * 结束列表的刷新或加载状态
+     *
+     * @param refresh 是否为顶部信息栏的刷新
+     * @param ticket  列表本次刷新或加载的凭证
+     */
+    private void complete(boolean refresh, int ticket) {
+        if (mListView == null) {
+            return;
+        }
+        if (refresh) {
+            mListView.onRefreshComplete(ticket);
+        } else {
+            mListView.onLoadMoreComplete(ticket);
+        }
+    }
+
+    /**
+     * @return 当前在内存中的条目数
+     */
+    public int getCount() {
+        return mItems.size();
+    }
+
+    /**
+     * @param position 条目序号
+     * @return 条目数据
+     */
+    public T getItem(int position) {
+        return mItems.get(position);
+    }
+
+    /**
+     * @return 当前在内存中的所有条目，不可修改
+     */
+    public List<T> getItems() {
+        return Collections.unmodifiableList(mItems);
+    }
+
+    /**
+     * @return 每页条数
+     */
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /**
+     * @return 是否还有更多数据
+     */
+    public boolean hasMore() {
+        return getNextKey() != null;
+    }
+
+    /**
+     * 判断分页是否正在请求中
+     *
+     * @param key 分页的键
+     * @return 是否正在请求中
+     */
+    public boolean isLoading(K key) {
+        return mInFlight.containsKey(key);
+    }
+
+    /**
+     * 分页请求被取消的回调监听
+     */
+    public interface OnCancelListener {
+        /**
+         * 请求已被取消，结果将被丢弃
+         */
+        void onCancel();
+    }
+
+    /**
+     * 分页保存到磁盘缓存时，键及条目的读写
+     *
+     * @param <K> 分页的键
+     * @param <T> 条目数据
+     */
+    public interface PageCodec<K, T> {
+        /**
+         * 写入分页的键
+         *
+         * @param out 输出
+         * @param key 分页的键
+         * @throws IOException 写入失败
+         */
+        void writeKey(DataOutput out, K key) throws IOException;
+
+        /**
+         * 读取分页的键
+         *
+         * @param in 输入
+         * @return 分页的键
+         * @throws IOException 读取失败
+         */
+        K readKey(DataInput in) throws IOException;
+
+        /**
+         * 写入条目
+         *
+         * @param out  输出
+         * @param item 条目数据
+         * @throws IOException 写入失败
+         */
+        void writeItem(DataOutput out, T item) throws IOException;
+
+        /**
+         * 读取条目
+         *
+         * @param in 输入
+         * @return 条目数据
+         * @throws IOException 读取失败
+         */
+        T readItem(DataInput in) throws IOException;
+    }
+
+    /**
+     * 一页数据
+     *
+     * @param <K> 分页的键
+     * @param <T> 条目数据
+     */
+    public static class Page<K, T> {
+        /**
+         * 本页的键
+         */
+        public final K key;
+        /**
+         * 本页的条目
+         */
+        public final List<T> items;
+        /**
+         * 下一页的键，没有更多数据时为null
+         */
+        public final K nextKey;
+
+        public Page(K key, List<T> items, K nextKey) {
+            this.key = key;
+            this.items = items;
+            this.nextKey = nextKey;
+        }
+    }
+
+    /**
+     * 分页加载结果回调，每个回调只生效一次
+     *
+     * @param <K> 分页的键
+     * @param <T> 条目数据
+     */
+    public static class Callback<K, T> {
+        private final PagedDataSource<K, T> mSource;
+        private final K mKey;
+        private final int mType;
+        private int mTicket;
+        private final int mGeneration;
+        private boolean mDone;
+        private volatile boolean mCancelled;
+        private LoadToken mToken;
+        private OnCancelListener mOnCancelListener;
+
+        /**
+         * 列表取消刷新或加载时取消本次请求
+         */
+        private final LoadToken.OnCancelListener mTokenListener = new LoadToken.OnCancelListener() {
+            @Override
+            public void onCancel(LoadToken token, int reason) {
+                cancel();
+            }
+        };
+
+        Callback(PagedDataSource<K, T> source, K key, int type, int ticket, int generation) {
+            mSource = source;
+            mKey = key;
+            mType = type;
+            mTicket = ticket;
+            mGeneration = generation;
+        }
+
+        /**
+         * 加载成功
+         *
+         * @param items   本页的条目
+         * @param nextKey 下一页的键，没有更多数据时传null
+         */
+        public void onResult(List<T> items, K nextKey) {
+            if (!finish()) {
+                return;
+            }
+            Page<K, T> page = new Page<K, T>(mKey, items, nextKey);
+            mSource.onPageLoaded(page, mType, mTicket);
+            mSource.saveToDisk(page);
+        }
+
+        /**
+         * 加载失败
+         *
+         * @param error 失败原因
+         */
+        public void onError(Throwable error) {
+            if (!finish()) {
+                return;
+            }
+            mSource.onPageFailed(mKey, mType, mTicket, error);
+        }
+
+        /**
+         * 判断本次请求是否已被取消，可在后台线程调用，已取消时可提前停止加载
+         *
+         * @return 是否已被取消
+         */
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * 设置取消的回调监听，已被取消时立即回调. 需在主线程调用
+         *
+         * @param listener 监听
+         */
+        public void setOnCancelListener(OnCancelListener listener) {
+            mOnCancelListener = listener;
+            if (mCancelled && listener != null) {
+                listener.onCancel();
+            }
+        }
+
+        /**
+         * 更新对应的列表取消标记，请求被合并时以最新的为准
+         *
+         * @param token 取消标记，可为null
+         */
+        private void setToken(LoadToken token) {
+            if (mToken != null) {
+                mToken.removeOnCancelListener(mTokenListener);
+            }
+            mToken = token;
+            if (token != null) {
+                token.addOnCancelListener(mTokenListener);
+            }
+        }
+
+        /**
+         * 取消本次请求，之后的结果将被丢弃
+         */
+        private void cancel() {
+            if (mDone) {
+                return;
+            }
+            mDone = true;
+            mCancelled = true;
+            if (mSource.mInFlight.get(mKey) == this) {
+                mSource.mInFlight.remove(mKey);
+            }
+            if (mOnCancelListener != null) {
+                mOnCancelListener.onCancel();
+            }
+        }
+
+        /**
+         * 结束本次请求
+         *
+         * @return 结果是否仍然有效
+         */
+        private boolean finish() {
+            if (mDone) {
+                return false;
+            }
+            mDone = true;
+            setToken(null);
+            if (mGeneration != mSource.mGeneration) {
+                return false;
+            }
+            mSource.mInFlight.remove(mKey);
+            return true;
+        }
+    }
+}
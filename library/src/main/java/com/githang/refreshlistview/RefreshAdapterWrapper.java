@@ -0,0 +1,273 @@
+package com.githang.refreshlistview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+/**
+ * 为{@link RefreshRecyclerView}的适配器加上顶部及底部信息栏.
+ *
+ * 顶部信息栏固定在第一个位置，底部信息栏固定在最后一个位置，其余位置及数据变化的通知均转发给被包装的适配器.
+ * 信息栏各只有一个实例，放在各自ViewHolder的容器中，绑定时移到当前的容器，
+ * 不会直接从RecyclerView中移除子控件，不影响RecyclerView对子控件的管理及动画.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+class RefreshAdapterWrapper extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    /**
+     * 顶部信息栏的条目类型
+     */
+    static final int TYPE_HEADER = Integer.MIN_VALUE;
+
+    /**
+     * 底部信息栏的条目类型
+     */
+    static final int TYPE_FOOTER = Integer.MIN_VALUE + 1;
+
+    /**
+     * 顶部信息栏的条目ID
+     */
+    private static final long ID_HEADER = Long.MIN_VALUE;
+
+    /**
+     * 底部信息栏的条目ID
+     */
+    private static final long ID_FOOTER = Long.MIN_VALUE + 1;
+
+    @SuppressWarnings("rawtypes")
+    private final RecyclerView.Adapter mAdapter;
+
+    private View mHeaderView;
+
+    private View mFooterView;
+
+    /**
+     * 将被包装的适配器的数据变化加上顶部信息栏的偏移后转发
+     */
+    private final RecyclerView.AdapterDataObserver mObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            notifyItemRangeChanged(positionStart + getHeaderCount(), itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            notifyItemRangeInserted(positionStart + getHeaderCount(), itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            notifyItemRangeRemoved(positionStart + getHeaderCount(), itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            int headerCount = getHeaderCount();
+            for (int i = 0; i < itemCount; i++) {
+                notifyItemMoved(fromPosition + headerCount + i, toPosition + headerCount + i);
+            }
+        }
+    };
+
+    /**
+     * @param adapter 被包装的适配器
+     */
+    RefreshAdapterWrapper(RecyclerView.Adapter<?> adapter) {
+        mAdapter = adapter;
+        setHasStableIds(adapter.hasStableIds());
+        adapter.registerAdapterDataObserver(mObserver);
+    }
+
+    /**
+     * 注销对被包装的适配器的监听，不再使用时调用
+     */
+    void release() {
+        mAdapter.unregisterAdapterDataObserver(mObserver);
+    }
+
+    /**
+     * @return 被包装的适配器
+     */
+    RecyclerView.Adapter<?> getWrappedAdapter() {
+        return mAdapter;
+    }
+
+    /**
+     * 设置顶部信息栏
+     *
+     * @param view 顶部信息栏，为null时移除
+     */
+    void setHeaderView(View view) {
+        if (view == mHeaderView) {
+            return;
+        }
+        boolean had = mHeaderView != null;
+        mHeaderView = view;
+        if (had && view == null) {
+            notifyItemRemoved(0);
+        } else if (!had) {
+            notifyItemInserted(0);
+        } else {
+            notifyItemChanged(0);
+        }
+    }
+
+    /**
+     * 设置底部信息栏
+     *
+     * @param view 底部信息栏，为null时移除
+     */
+    void setFooterView(View view) {
+        if (view == mFooterView) {
+            return;
+        }
+        boolean had = mFooterView != null;
+        int position = getHeaderCount() + mAdapter.getItemCount();
+        mFooterView = view;
+        if (had && view == null) {
+            notifyItemRemoved(position);
+        } else if (!had) {
+            notifyItemInserted(position);
+        } else {
+            notifyItemChanged(position);
+        }
+    }
+
+    /**
+     * @return 顶部信息栏的个数
+     */
+    int getHeaderCount() {
+        return mHeaderView == null ? 0 : 1;
+    }
+
+    /**
+     * @return 底部信息栏的个数
+     */
+    int getFooterCount() {
+        return mFooterView == null ? 0 : 1;
+    }
+
+    @Override
+    public int getItemCount() {
+        return getHeaderCount() + mAdapter.getItemCount() + getFooterCount();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        int headerCount = getHeaderCount();
+        if (position < headerCount) {
+            return TYPE_HEADER;
+        }
+        int count = mAdapter.getItemCount();
+        if (position - headerCount >= count) {
+            return TYPE_FOOTER;
+        }
+        return mAdapter.getItemViewType(position - headerCount);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        int headerCount = getHeaderCount();
+        if (position < headerCount) {
+            return ID_HEADER;
+        }
+        if (position - headerCount >= mAdapter.getItemCount()) {
+            return ID_FOOTER;
+        }
+        return mAdapter.getItemId(position - headerCount);
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        if (viewType == TYPE_HEADER || viewType == TYPE_FOOTER) {
+            return new FixedViewHolder(parent);
+        }
+        return mAdapter.onCreateViewHolder(parent, viewType);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        if (holder instanceof FixedViewHolder) {
+            ((FixedViewHolder) holder).bind(getItemViewType(position) == TYPE_HEADER
+                    ? mHeaderView : mFooterView);
+            return;
+        }
+        mAdapter.onBindViewHolder(holder, position - getHeaderCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        if (!(holder instanceof FixedViewHolder)) {
+            mAdapter.onViewRecycled(holder);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        if (!(holder instanceof FixedViewHolder)) {
+            mAdapter.onViewAttachedToWindow(holder);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        if (!(holder instanceof FixedViewHolder)) {
+            mAdapter.onViewDetachedFromWindow(holder);
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        mAdapter.onAttachedToRecyclerView(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        mAdapter.onDetachedFromRecyclerView(recyclerView);
+    }
+
+    /**
+     * 顶部及底部信息栏的ViewHolder
+     */
+    private static class FixedViewHolder extends RecyclerView.ViewHolder {
+        private final FrameLayout mContainer;
+
+        FixedViewHolder(ViewGroup parent) {
+            super(new FrameLayout(parent.getContext()));
+            mContainer = (FrameLayout) itemView;
+            mContainer.setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            // 顶部信息栏拖动时绘制在其布局范围之外
+            mContainer.setClipChildren(false);
+        }
+
+        /**
+         * 将信息栏移到本容器中. 信息栏原来所在的容器可能属于另一个ViewHolder，
+         * 只从该容器中移除，其ViewHolder仍由RecyclerView管理
+         *
+         * @param view 顶部或底部信息栏
+         */
+        void bind(View view) {
+            if (view.getParent() == mContainer) {
+                return;
+            }
+            if (view.getParent() instanceof ViewGroup) {
+                ((ViewGroup) view.getParent()).removeView(view);
+            }
+            mContainer.removeAllViews();
+            mContainer.addView(view, new FrameLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        }
+    }
+}
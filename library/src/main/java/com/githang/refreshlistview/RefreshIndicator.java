@@ -0,0 +1,63 @@
+package com.githang.refreshlistview;
+
+import android.view.View;
+
+import com.githang.refreshlistview.core.PullStateMachine;
+
+/**
+ * 下拉刷新的指示器，由{@link RefreshListView}根据下拉进度及状态驱动.
+ *
+ * 指示器的控件会被添加到顶部信息栏中，高度与顶部信息栏相同. 正在刷新但列表不在屏幕上时，
+ * 控件会被设为INVISIBLE，实现中的动画应随可见性停止.
+ * 默认实现为{@link RefreshIndicatorView}.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public interface RefreshIndicator {
+
+    /**
+     * 状态-下拉过界，松手即可刷新
+     */
+    int STATE_RELEASE_TO_REFRESH = PullStateMachine.RELEASE_TO_REFRESH;
+
+    /**
+     * 状态-下拉中
+     */
+    int STATE_PULL_TO_REFRESH = PullStateMachine.PULL_TO_REFRESH;
+
+    /**
+     * 状态-正在刷新
+     */
+    int STATE_REFRESHING = PullStateMachine.REFRESHING;
+
+    /**
+     * 状态-刷新完成或无动作
+     */
+    int STATE_DONE = PullStateMachine.DONE;
+
+    /**
+     * @return 指示器的控件
+     */
+    View getView();
+
+    /**
+     * 下拉刷新的状态变化
+     *
+     * @param state 新的状态
+     */
+    void onStateChanged(int state);
+
+    /**
+     * 下拉距离变化
+     *
+     * @param progress 下拉距离与顶部信息栏高度的比值，达到1时松手即可刷新
+     */
+    void onPull(float progress);
+
+    /**
+     * 设置上次更新的提示
+     *
+     * @param text 提示，为null时不显示
+     */
+    void setLastUpdateTime(CharSequence text);
+}
@@ -0,0 +1,403 @@
+package com.githang.refreshlistview;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * 默认的下拉刷新指示器，由一个控件直接绘制箭头、进度及提示文字.
+ *
+ * 替代原来由多层布局、ImageView、ProgressBar及两个TextView组成的顶部信息栏，
+ * 状态变化时只需重绘，不会重新测量及布局. 各状态的提示文字的排版结果会被缓存.
+ * 箭头及进度的图片和大小读取主题中的refresh_arrow及refresh_progress样式.
+ * 动画只在绘制时继续，可自行播放的进度图片在控件不可见、窗口隐藏或移出窗口时停止.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class RefreshIndicatorView extends View implements RefreshIndicator {
+
+    /**
+     * 图标与文字的间距，单位：dp
+     */
+    private static final int ICON_MARGIN = 8;
+
+    /**
+     * 默认的图标大小，单位：dp
+     */
+    private static final int DEFAULT_ICON_SIZE = 24;
+
+    /**
+     * 提示文字大小，单位：sp
+     */
+    private static final int TIP_TEXT_SIZE = 14;
+
+    /**
+     * 更新时间文字大小，单位：sp
+     */
+    private static final int TIME_TEXT_SIZE = 12;
+
+    /**
+     * 箭头翻转的时长，单位：毫秒
+     */
+    private static final long ARROW_DURATION = 250;
+
+    /**
+     * 箭头翻回的时长，单位：毫秒
+     */
+    private static final long ARROW_REVERSE_DURATION = 200;
+
+    /**
+     * 进度旋转一周期的时长，单位：毫秒
+     */
+    private static final long PROGRESS_PERIOD = 3000;
+
+    /**
+     * RotateDrawable等以level表示进度的最大值
+     */
+    private static final int MAX_LEVEL = 10000;
+
+    /**
+     * 样式中读取的属性，需按属性ID升序排列
+     */
+    private static final int[] ARROW_ATTRS = {
+            android.R.attr.layout_width, android.R.attr.layout_height, android.R.attr.src
+    };
+
+    private static final int[] PROGRESS_ATTRS = {
+            android.R.attr.layout_width, android.R.attr.layout_height,
+            android.R.attr.indeterminateDrawable
+    };
+
+    /**
+     * 各状态的提示文字资源
+     */
+    private static final int[] TIP_RES = {
+            R.string.release_to_refresh, R.string.pull_to_refresh,
+            R.string.loading_very_hard, R.string.loading_finished
+    };
+
+    private final Drawable mArrow;
+    private final int mArrowWidth;
+    private final int mArrowHeight;
+
+    private final Drawable mProgress;
+    private final int mProgressWidth;
+    private final int mProgressHeight;
+
+    private final int mIconMargin;
+    private final int mDefaultHeight;
+
+    private final TextPaint mTipPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+    private final TextPaint mTimePaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+
+    /**
+     * 各状态提示文字的排版缓存，下标为状态值
+     */
+    private final Layout[] mTipLayouts = new Layout[TIP_RES.length];
+
+    /**
+     * 更新时间的排版缓存，不显示时为null
+     */
+    private Layout mTimeLayout;
+
+    private int mState = STATE_DONE;
+
+    private boolean mArrowAnimationEnabled = true;
+
+    /**
+     * 箭头动画的起始角度
+     */
+    private float mArrowFromDegrees;
+
+    /**
+     * 箭头动画的结束角度
+     */
+    private float mArrowToDegrees;
+
+    /**
+     * 箭头动画的开始时间，没有动画时为0
+     */
+    private long mArrowStartTime;
+
+    private long mArrowDuration;
+
+    public RefreshIndicatorView(Context context) {
+        this(context, null);
+    }
+
+    public RefreshIndicatorView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        int defaultIconSize = (int) (DEFAULT_ICON_SIZE * density + 0.5f);
+        mIconMargin = (int) (ICON_MARGIN * density + 0.5f);
+        mDefaultHeight = getResources().getDimensionPixelSize(R.dimen.refresh_listview_header_height);
+
+        TypedArray arrow = obtainStyle(context, R.attr.refresh_arrow, ARROW_ATTRS);
+        Drawable arrowDrawable = arrow.getDrawable(2);
+        mArrow = arrowDrawable != null ? arrowDrawable
+                : getResources().getDrawable(R.drawable.listview_loading);
+        mArrowWidth = getIconSize(arrow, 0, mArrow.getIntrinsicWidth(), defaultIconSize);
+        mArrowHeight = getIconSize(arrow, 1, mArrow.getIntrinsicHeight(), defaultIconSize);
+        arrow.recycle();
+
+        TypedArray progress = obtainStyle(context, R.attr.refresh_progress, PROGRESS_ATTRS);
+        Drawable progressDrawable = progress.getDrawable(2);
+        mProgress = progressDrawable != null ? progressDrawable
+                : getResources().getDrawable(R.drawable.listview_progress);
+        mProgressWidth = getIconSize(progress, 0, mProgress.getIntrinsicWidth(), defaultIconSize);
+        mProgressHeight = getIconSize(progress, 1, mProgress.getIntrinsicHeight(), defaultIconSize);
+        progress.recycle();
+        mProgress.setCallback(this);
+
+        int color = getResources().getColor(R.color.refresh_text_color);
+        mTipPaint.setColor(color);
+        mTipPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP,
+                TIP_TEXT_SIZE, getResources().getDisplayMetrics()));
+        mTimePaint.setColor(color);
+        mTimePaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP,
+                TIME_TEXT_SIZE, getResources().getDisplayMetrics()));
+    }
+
+    /**
+     * 读取主题属性所指向的样式
+     */
+    private static TypedArray obtainStyle(Context context, int themeAttr, int[] attrs) {
+        TypedValue value = new TypedValue();
+        int style = context.getTheme().resolveAttribute(themeAttr, value, true)
+                ? value.resourceId : 0;
+        return context.obtainStyledAttributes(null, attrs, 0, style);
+    }
+
+    /**
+     * 读取样式中的宽高，为wrap_content或未设置时使用图片的大小
+     */
+    private static int getIconSize(TypedArray array, int index, int intrinsic, int defaultSize) {
+        int size = array.getLayoutDimension(index, ViewGroup.LayoutParams.WRAP_CONTENT);
+        if (size > 0) {
+            return size;
+        }
+        return intrinsic > 0 ? intrinsic : defaultSize;
+    }
+
+    /**
+     * 设置是否启用箭头的翻转动画
+     *
+     * @param enabled 是否启用
+     */
+    public void setArrowAnimationEnabled(boolean enabled) {
+        mArrowAnimationEnabled = enabled;
+    }
+
+    @Override
+    public View getView() {
+        return this;
+    }
+
+    @Override
+    public void onStateChanged(int state) {
+        int oldState = mState;
+        if (state == oldState) {
+            return;
+        }
+        mState = state;
+        if (state == STATE_RELEASE_TO_REFRESH) {
+            startArrowAnimation(0, -180, ARROW_DURATION);
+        } else if (state == STATE_PULL_TO_REFRESH && oldState == STATE_RELEASE_TO_REFRESH) {
+            startArrowAnimation(-180, 0, ARROW_REVERSE_DURATION);
+        } else {
+            mArrowStartTime = 0;
+            mArrowToDegrees = 0;
+        }
+        updateProgressAnimation();
+        invalidate();
+    }
+
+    @Override
+    public void onPull(float progress) {
+        // 默认指示器只在状态变化时更新
+    }
+
+    @Override
+    public void setLastUpdateTime(CharSequence text) {
+        if (text == null) {
+            if (mTimeLayout != null) {
+                mTimeLayout = null;
+                invalidate();
+            }
+            return;
+        }
+        if (mTimeLayout != null && text.equals(mTimeLayout.getText())) {
+            return;
+        }
+        mTimeLayout = createLayout(text, mTimePaint);
+        invalidate();
+    }
+
+    /**
+     * 正在刷新且可见时播放进度图片，否则停止
+     */
+    private void updateProgressAnimation() {
+        // 父类构造过程中也可能回调，此时mProgress尚未赋值
+        if (!(mProgress instanceof Animatable)) {
+            return;
+        }
+        Animatable progress = (Animatable) mProgress;
+        boolean running = mState == STATE_REFRESHING && isShown()
+                && getWindowVisibility() == VISIBLE;
+        if (running && !progress.isRunning()) {
+            progress.start();
+        } else if (!running && progress.isRunning()) {
+            progress.stop();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateProgressAnimation();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        if (mProgress instanceof Animatable) {
+            ((Animatable) mProgress).stop();
+        }
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateProgressAnimation();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateProgressAnimation();
+    }
+
+    private void startArrowAnimation(float from, float to, long duration) {
+        if (!mArrowAnimationEnabled) {
+            mArrowStartTime = 0;
+            mArrowToDegrees = 0;
+            return;
+        }
+        mArrowFromDegrees = from;
+        mArrowToDegrees = to;
+        mArrowDuration = duration;
+        mArrowStartTime = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * 获取指定状态的提示文字排版，首次使用时创建
+     */
+    private Layout getTipLayout(int state) {
+        if (state < 0 || state >= mTipLayouts.length) {
+            return null;
+        }
+        Layout layout = mTipLayouts[state];
+        if (layout == null) {
+            layout = createLayout(getResources().getText(TIP_RES[state]), mTipPaint);
+            mTipLayouts[state] = layout;
+        }
+        return layout;
+    }
+
+    private static Layout createLayout(CharSequence text, TextPaint paint) {
+        int width = (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+        return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1, 0, false);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(mDefaultHeight, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        Layout tip = getTipLayout(mState);
+        Layout time = mTimeLayout;
+        int textWidth = Math.max(tip == null ? 0 : tip.getWidth(), time == null ? 0 : time.getWidth());
+        int textHeight = (tip == null ? 0 : tip.getHeight()) + (time == null ? 0 : time.getHeight());
+        int iconWidth = Math.max(mArrowWidth, mProgressWidth);
+        int left = (getWidth() - iconWidth - mIconMargin - textWidth) / 2;
+        int centerY = getHeight() / 2;
+
+        if (mState == STATE_REFRESHING) {
+            drawProgress(canvas, left + (iconWidth - mProgressWidth) / 2, centerY);
+        } else if (mState != STATE_DONE) {
+            drawArrow(canvas, left + (iconWidth - mArrowWidth) / 2, centerY);
+        }
+
+        int textLeft = left + iconWidth + mIconMargin;
+        int top = centerY - textHeight / 2;
+        if (tip != null) {
+            drawLayout(canvas, tip, textLeft + (textWidth - tip.getWidth()) / 2, top);
+            top += tip.getHeight();
+        }
+        if (time != null) {
+            drawLayout(canvas, time, textLeft + (textWidth - time.getWidth()) / 2, top);
+        }
+    }
+
+    private void drawArrow(Canvas canvas, int left, int centerY) {
+        float degrees = mArrowToDegrees;
+        if (mArrowStartTime > 0) {
+            float fraction = (SystemClock.uptimeMillis() - mArrowStartTime) / (float) mArrowDuration;
+            if (fraction < 1) {
+                degrees = mArrowFromDegrees + (mArrowToDegrees - mArrowFromDegrees) * fraction;
+                ViewCompat.postInvalidateOnAnimation(this);
+            } else {
+                mArrowStartTime = 0;
+            }
+        }
+        int top = centerY - mArrowHeight / 2;
+        int saveCount = canvas.save();
+        canvas.rotate(degrees, left + mArrowWidth / 2f, centerY);
+        mArrow.setBounds(left, top, left + mArrowWidth, top + mArrowHeight);
+        mArrow.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private void drawProgress(Canvas canvas, int left, int centerY) {
+        int top = centerY - mProgressHeight / 2;
+        mProgress.setBounds(left, top, left + mProgressWidth, top + mProgressHeight);
+        if (mProgress instanceof Animatable) {
+            // 状态变化时尚未显示在屏幕上的，在首次绘制时开始
+            if (!((Animatable) mProgress).isRunning()) {
+                ((Animatable) mProgress).start();
+            }
+        } else {
+            // RotateDrawable等按level旋转
+            long elapsed = SystemClock.uptimeMillis() % PROGRESS_PERIOD;
+            mProgress.setLevel((int) (elapsed * MAX_LEVEL / PROGRESS_PERIOD));
+            ViewCompat.postInvalidateOnAnimation(this);
+        }
+        mProgress.draw(canvas);
+    }
+
+    private static void drawLayout(Canvas canvas, Layout layout, int left, int top) {
+        int saveCount = canvas.save();
+        canvas.translate(left, top);
+        layout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == mProgress || who == mArrow || super.verifyDrawable(who);
+    }
+}
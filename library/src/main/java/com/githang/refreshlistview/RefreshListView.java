@@ -1,22 +1,46 @@
 package com.githang.refreshlistview;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
-import android.os.Handler;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.support.v4.view.ViewCompat;
+import android.text.format.DateUtils;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.animation.LinearInterpolator;
-import android.view.animation.RotateAnimation;
+import android.view.ViewStub;
+import android.view.ViewTreeObserver;
+import android.view.WindowManager;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.AbsListView;
-import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.ListAdapter;
 import android.widget.ListView;
-import android.widget.ProgressBar;
 import android.widget.TextView;
 
+import com.githang.refreshlistview.core.DragVelocity;
+import com.githang.refreshlistview.core.LoadToken;
+import com.githang.refreshlistview.core.PrefetchWindow;
+import com.githang.refreshlistview.core.PullStateMachine;
+import com.githang.refreshlistview.core.RefreshController;
+import com.githang.refreshlistview.core.RetryBackoff;
+
+import java.util.concurrent.Executor;
+
 /**
  * 带有下拉刷新及上拉加载的ListView.
  *
@@ -25,40 +49,76 @@ import android.widget.TextView;
  *
  * @author 黄浩杭 (msdx.android[at]qq[dot]com)
  */
-public class RefreshListView extends ListView implements AbsListView.OnScrollListener {
+public class RefreshListView extends ListView implements AbsListView.OnScrollListener, Refreshable {
 
     /**
      * 控件状态-下拉过界
      */
-    private static final int RELEASE_TO_REFRESH = 0;
+    private static final int RELEASE_TO_REFRESH = PullStateMachine.RELEASE_TO_REFRESH;
     /**
      * 控件状态-下拉中
      */
-    private static final int PULL_TO_REFRESH = 1;
+    private static final int PULL_TO_REFRESH = PullStateMachine.PULL_TO_REFRESH;
     /**
      * 控件状态-正在加载
      */
-    private static final int REFRESHING = 2;
+    private static final int REFRESHING = PullStateMachine.REFRESHING;
 
     /**
      * 控件状态-加载完成||无需加载状态
      */
-    private static final int DONE = 3;
+    private static final int DONE = PullStateMachine.DONE;
 
     /**
      * 控件状态-上拉刷新
      */
-    private static final int RAISE_TO_REFRESH = 5;
+    private static final int RAISE_TO_REFRESH = PullStateMachine.RAISE_TO_REFRESH;
 
     /**
      * 控件状态-上拉时松手刷新
      */
-    private static final int RELEASE_RAISE_TO_REFRESH = 6;
+    private static final int RELEASE_RAISE_TO_REFRESH = PullStateMachine.RELEASE_RAISE_TO_REFRESH;
+
+    /**
+     * 控件状态-上拉加载失败
+     */
+    private static final int LOAD_FAILED = PullStateMachine.LOAD_FAILED;
+
+    /**
+     * 回弹动画的最小初速度，单位：dp/秒
+     */
+    static final int MIN_SETTLE_VELOCITY = 1500;
+
+    /**
+     * 回弹动画的最短时长，单位：毫秒
+     */
+    static final long MIN_SETTLE_DURATION = 120;
+
+    /**
+     * 回弹动画的最长时长，单位：毫秒
+     */
+    static final long MAX_SETTLE_DURATION = 350;
+
+    /**
+     * 加载策略-下拉刷新与上拉加载互不影响
+     */
+    public static final int LOAD_POLICY_PARALLEL = RefreshController.POLICY_PARALLEL;
+
+    /**
+     * 加载策略-开始下拉刷新时取消正在进行的上拉加载，刷新过程中不触发上拉加载
+     */
+    public static final int LOAD_POLICY_REFRESH_SUPERSEDES_LOAD_MORE =
+            RefreshController.POLICY_REFRESH_SUPERSEDES_LOAD_MORE;
 
     /**
-     * 滑动距离/提示信息高度 的比值
+     * 加载策略-同一时间只进行下拉刷新或上拉加载中的一个，另一个的触发将被忽略
      */
-    private static final int RATIO = 2;
+    public static final int LOAD_POLICY_EXCLUSIVE = RefreshController.POLICY_EXCLUSIVE;
+
+    /**
+     * 表示没有正在进行的加载的凭证
+     */
+    public static final int NO_TICKET = RefreshController.NO_TICKET;
 
     /**
      * 上下文
@@ -71,24 +131,50 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
     private View mRefreshView;
 
     /**
-     * 提示信息所在的文本控件
+     * 下拉刷新的指示器，首次需要展示时才创建
+     */
+    private RefreshIndicator mIndicator;
+
+    /**
+     * 顶部指示器的动画是否因不在屏幕上而暂停
+     */
+    private boolean mHeaderAnimationPaused;
+
+    /**
+     * 底部进度的动画是否因不在屏幕上而暂停
+     */
+    private boolean mFooterAnimationPaused;
+
+    /**
+     * 是否已附加到窗口
      */
-    private TextView mRefreshTextView;
+    private boolean mAttachedToWindow;
 
     /**
-     * 提示控件的时间显示文本控件
+     * 判断是否在屏幕上时使用，避免每次分配
      */
-    private TextView mRefreshTimeView;
+    private final Rect mVisibleRect = new Rect();
 
     /**
-     * 进度条
+     * 祖先控件滑动时（如ViewPager切换页面）重新判断指示器是否在屏幕上
      */
-    private ProgressBar mRefreshProgressBar;
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    updateIndicatorAnimations();
+                }
+            };
+
+    /**
+     * 是否显示上次更新时间
+     */
+    private boolean mUpdateTimeEnabled = true;
 
     /**
-     * 下拉箭头控件
+     * 上次更新时间的提示
      */
-    private ImageView mArrowImageView;
+    private CharSequence mRefreshTimeText;
 
     /**
      * 底部提示框
@@ -100,6 +186,26 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
      */
     private TextView mLoadMoreTextView;
 
+    /**
+     * 底部提示信息的原始文字，加载失败后恢复时使用
+     */
+    private CharSequence mLoadMoreText;
+
+    /**
+     * 自动重试的回调监听
+     */
+    private OnLoadMoreRetryListener mRetryListener;
+
+    /**
+     * 加载失败后的自动重试
+     */
+    private final Runnable mRetryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mController.retryLoadMore(SystemClock.uptimeMillis());
+        }
+    };
+
     /**
      * 没有更多数据的提示信息
      */
@@ -110,37 +216,162 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
      */
     private View mLoadMoreProgressView;
 
+    /**
+     * 没有更多数据的提示信息，提示控件加载前设置时暂存
+     */
+    private CharSequence mNoDataMsg;
+
     private boolean mNeedShowNoData;
 
     /**
-     * 当前状态
+     * 异步加载的分发
      */
-    private int mPullRefreshState;
+    private AsyncLoadDispatcher<?> mAsyncDispatcher;
 
     /**
-     * 下拉提示控件高度
+     * 异步加载所使用的线程池
      */
-    private int mHeaderHeight;
+    private Executor mLoadExecutor;
 
     /**
-     * 上拉提示控件高度
+     * 流程变化时更新界面及通知监听
      */
-    private int mFooterHeight;
+    private final RefreshController.Callback mControllerCallback = new RefreshController.Callback() {
+        @Override
+        public void onHeaderStateChanged() {
+            changeHeaderViewByState();
+        }
+
+        @Override
+        public void onFooterStateChanged() {
+            changeFooterViewByState();
+        }
+
+        @Override
+        public void onRefreshStarted(int ticket, LoadToken token) {
+            if (mLoadTimeout > 0) {
+                postDelayed(mRefreshTimeoutRunnable, mLoadTimeout);
+            }
+            mRefreshStartTime = SystemClock.uptimeMillis();
+            changeHeaderViewByState();
+            onPullToRefresh();
+        }
+
+        @Override
+        public void onRefreshFinished(boolean completed) {
+            boolean traced = beginTrace("RefreshListView#finishRefresh");
+            removeCallbacks(mRefreshTimeoutRunnable);
+            if (completed) {
+                // 刷新完成时会清除上拉加载的失败状态，不再需要自动重试
+                removeCallbacks(mRetryRunnable);
+            }
+            if (isInitRefresh) {
+                changeHeaderViewByState();
+            }
+            if (completed && mMetricsListener != null) {
+                mMetricsListener.onRefreshLatency(SystemClock.uptimeMillis() - mRefreshStartTime);
+            }
+            endTrace(traced);
+        }
+
+        @Override
+        public void onLoadMoreStarted(int ticket, LoadToken token) {
+            removeCallbacks(mRetryRunnable);
+            if (mLoadTimeout > 0) {
+                postDelayed(mLoadMoreTimeoutRunnable, mLoadTimeout);
+            }
+            mLoadMoreStartTime = SystemClock.uptimeMillis();
+            mFooterSpinnerShownTime = isFootBarWork ? mLoadMoreStartTime : 0;
+            mFooterSpinnerVisibleDuration = 0;
+            changeFooterViewByState();
+            onPullToLoadMore();
+        }
+
+        @Override
+        public void onLoadMoreFinished(boolean completed) {
+            boolean traced = beginTrace("RefreshListView#finishLoadMore");
+            long now = SystemClock.uptimeMillis();
+            removeCallbacks(mLoadMoreTimeoutRunnable);
+            if (isInitLoadMore) {
+                mLoadMoreView.setClickable(true);
+                changeFooterViewByState();
+            }
+            if (completed && mMetricsListener != null) {
+                if (mFooterSpinnerShownTime != 0) {
+                    mFooterSpinnerVisibleDuration += now - mFooterSpinnerShownTime;
+                    mFooterSpinnerShownTime = 0;
+                }
+                mMetricsListener.onLoadMoreLatency(now - mLoadMoreStartTime,
+                        mFooterSpinnerVisibleDuration);
+            }
+            endTrace(traced);
+        }
+
+        @Override
+        public void onRetryScheduled(int attempt, long delay) {
+            postDelayed(mRetryRunnable, delay);
+            if (mRetryListener != null) {
+                mRetryListener.onRetryScheduled(attempt, delay);
+            }
+        }
+
+        @Override
+        public void onRetriesExhausted(int attempts) {
+            if (mRetryListener != null) {
+                mRetryListener.onRetriesExhausted(attempts);
+            }
+        }
+    };
+
+    /**
+     * 刷新及加载的流程控制，包括凭证、加载策略、自动加载及失败重试
+     */
+    private final RefreshController mController = new RefreshController(mControllerCallback);
+
+    /**
+     * 下拉刷新及上拉加载的手势状态机
+     */
+    private final PullStateMachine mPull = mController.getPullStateMachine();
+
+    /**
+     * 刷新及加载的超时时间，单位：毫秒，为0时不超时
+     */
+    private long mLoadTimeout;
+
+    /**
+     * 下拉刷新超时
+     */
+    private final Runnable mRefreshTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mController.cancelRefresh(LoadToken.REASON_TIMEOUT);
+        }
+    };
+
+    /**
+     * 上拉加载超时
+     */
+    private final Runnable mLoadMoreTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mController.cancelLoadMore(LoadToken.REASON_TIMEOUT);
+        }
+    };
 
     /**
-     * 箭头翻转动画
+     * 数据变化时是否自动结束正在进行的刷新及加载
      */
-    private RotateAnimation animation;
+    private boolean mCompleteOnDataChanged = true;
 
     /**
-     * 下拉箭头翻转动画
+     * 下拉提示控件高度
      */
-    private RotateAnimation reverseAnimation;
+    private int mHeaderHeight;
 
     /**
-     * 下拉越界后是否有拖回界限内
+     * 上拉提示控件高度
      */
-    private boolean isBack;
+    private int mFooterHeight;
 
     /**
      * 第一个可见条目的序号
@@ -158,273 +389,1462 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
     private boolean isFootBarWork = true;
 
     /**
-     * 是否已开始记录事件位置
+     * 刷新时的回调监听
      */
-    private boolean isRecord;
+    private OnRefreshLoadListener mOnRefreshLoadListener;
 
     /**
-     * 触摸事件起始位置
+     * 与{@link RefreshRecyclerView}共用的刷新监听
      */
-    private int startY;
+    private RefreshLoadListener mRefreshLoadListener;
 
     /**
-     * 界限倍数
+     * 性能统计的回调监听，为null时不做任何统计
      */
-    private int raiseBoundary = 3;
+    private OnMetricsListener mMetricsListener;
 
     /**
-     * 刷新时的回调监听
+     * 手指按下的时间
      */
-    private OnRefreshLoadListener mOnRefreshLoadListener;
+    private long mTouchDownTime;
 
     /**
-     * 是否初始化头部信息栏
+     * 拖动速度的估算
      */
-    private boolean isInitRefresh;
+    private final DragVelocity mDragVelocity = new DragVelocity();
 
     /**
-     * 是否初始化底部信息栏
+     * 松手时的拖动速度，用于计算回弹动画的时长，单位：像素/秒
      */
-    private boolean isInitLoadMore;
+    private float mReleaseVelocity;
 
     /**
-     * 是否启用上拉加载
+     * 顶部及底部信息栏的回弹动画，只改变绘制偏移，不会重新布局
      */
-    private boolean mCanLoadMore = true;
+    private ValueAnimator mSettleAnimator;
 
     /**
-     * 箭头动画是否旋转
+     * 回弹开始时的绘制偏移
      */
-    private boolean mArrowAnimationEnabled = true;
+    private int mSettleStartOffset;
 
-    private boolean mAutoLoadEnabled;
+    /**
+     * 尚未应用到界面的手势结果标志
+     */
+    private int mPendingPullResult;
 
-    private int mPaddingTop;
-    private int mPaddingBottom;
+    /**
+     * 是否已安排在下一帧应用手势结果
+     */
+    private boolean mPullUpdatePending;
 
     /**
-     * 简单构造方法
-     *
-     * @param context 上下文
+     * 每帧最多应用一次手势结果，同一帧内的多次移动只更新一次界面
      */
-    public RefreshListView(Context context) {
-        super(context);
-        this.mContext = context;
-        if (isInEditMode()) {
-            return;
+    private final Runnable mPullUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mPullUpdatePending = false;
+            int result = mPendingPullResult;
+            mPendingPullResult = 0;
+            applyPullResult(result);
         }
-        initHeader();
-        initFooter();
-        isInitRefresh = true;
-        isInitLoadMore = true;
-        setOnScrollListener(this);
-    }
+    };
 
     /**
-     * 系统调用的构造方法 当在xml中配置本控件时调用
-     *
-     * @param context 上下文
-     * @param attrs   xml中配置的参数
+     * 本次下拉刷新的开始时间
      */
-    public RefreshListView(Context context, AttributeSet attrs) {
-        super(context, attrs);
-        this.mContext = context;
-        TypedArray array = context.obtainStyledAttributes(attrs,
-                R.styleable.RefreshListView);
-        isInitRefresh = array.getBoolean(
-                R.styleable.RefreshListView_init_header, true);
-        isInitLoadMore = array.getBoolean(
-                R.styleable.RefreshListView_init_footer, true);
-        if (isInEditMode()) {
-            return;
-        }
-        if (isInitRefresh) {
-            initHeader();
-        }
+    private long mRefreshStartTime;
 
-        if (isInitLoadMore) {
-            initFooter();
-        }
-        setOnScrollListener(this);
-        array.recycle();
-        mPaddingBottom = getPaddingTop();
-        mPaddingBottom = getPaddingBottom();
-    }
+    /**
+     * 本次上拉加载的开始时间
+     */
+    private long mLoadMoreStartTime;
 
     /**
-     * 设置刷新监听
-     *
-     * @param listener 刷新监听器
+     * 底部加载进度开始可见的时间，不可见时为0
      */
-    public void setOnRefreshLoadListener(OnRefreshLoadListener listener) {
-        this.mOnRefreshLoadListener = listener;
-    }
+    private long mFooterSpinnerShownTime;
 
     /**
-     * 设置上拉时触动加载更多的边界 默认为2倍底部信息栏高度
-     *
-     * @param boundary 界限值与底部信息栏的比值
+     * 本次上拉加载中底部加载进度累计可见的时长
      */
-    public void setLoadMoreBoundary(int boundary) {
-        if (boundary <= 1) {
-            throw new IllegalArgumentException("该比值不可小于1");
-        }
-        this.raiseBoundary = boundary;
-    }
+    private long mFooterSpinnerVisibleDuration;
 
     /**
-     * 设置顶部信息栏不可见 若在配置文件中配置为可见，需在设置适配器之后调用
+     * 拖动过程中的丢帧统计，仅在Android 4.1及以上使用
      */
-    public void removeRefreshView() {
-        if (isInitRefresh) {
-            if (mRefreshView != null) {
-                this.removeHeaderView(mRefreshView);
-            }
-        }
-        isInitRefresh = false;
-    }
+    private FrameMonitor mFrameMonitor;
 
     /**
-     * 设置底部信息栏不可见 若在配置文件中配置为可见，需在设置适配器之后调用
+     * 预取窗口的计算
      */
-    public void removeLoadMoreView() {
-        if (isInitLoadMore) {
-            if (mLoadMoreView != null) {
-                this.removeFooterView(mLoadMoreView);
-            }
-            isInitLoadMore = false;
-        }
-    }
+    private final PrefetchWindow mPrefetchWindow = new PrefetchWindow();
 
     /**
-     * 设置上拉加载是否可用
-     *
-     * @param noMoreData 上拉加载是否可用
+     * 预取的回调监听，为null时不计算预取窗口
      */
-    public void setNoMoreData(boolean noMoreData) {
-        setCanLoadMore(!noMoreData);
-        if (noMoreData) {
-            if (mNeedShowNoData) {
-                mNoDataTextView.setVisibility(VISIBLE);
-                mLoadMoreView.setOnClickListener(null);
-            } else {
-                mNoDataTextView.setVisibility(GONE);
-            }
-        } else {
-            mNoDataTextView.setVisibility(GONE);
-        }
-    }
+    private OnPrefetchListener mPrefetchListener;
 
     /**
-     * 设置上拉加载是否可用
-     *
-     * @param canLoadMore 上拉加载是否可用
+     * 库内部使用的预取监听，与{@link #mPrefetchListener}同时接收通知，不会被应用设置的监听替换
      */
-    public void setCanLoadMore(boolean canLoadMore) {
-        mCanLoadMore = canLoadMore;
-        if (canLoadMore) {
-            changeFooterViewByState();
-            mLoadMoreView.setOnClickListener(mFootLoadMoreListener);
-        } else {
-            mLoadMoreTextView.setVisibility(GONE);
-            mLoadMoreProgressView.setVisibility(GONE);
-        }
-    }
+    private OnPrefetchListener mInternalPrefetchListener;
 
     /**
-     * 设置是否启用下拉加载的提示图标的动画
-     *
-     * @param enabled
+     * 数据变化时是否保持第一个可见条目的位置
      */
-    public void setArrowAnimationEnabled(boolean enabled) {
-        mArrowAnimationEnabled = enabled;
-    }
+    private boolean mAnchorEnabled;
 
-    public void setAutoLoadEnabled(boolean autoLoadEnabled) {
-        mAutoLoadEnabled = autoLoadEnabled;
-    }
+    /**
+     * 第一个可见条目的ID，顶部信息栏可见时为{@link #INVALID_ROW_ID}
+     */
+    private long mAnchorId = INVALID_ROW_ID;
 
-    public void setUpdateTimeEnabled(boolean enabled) {
-        mRefreshTimeView.setVisibility(enabled ? VISIBLE : GONE);
-    }
+    /**
+     * 第一个可见条目在适配器中的序号，数据变化后从此处开始查找
+     */
+    private int mAnchorPosition;
 
     /**
-     * 没有更多数据可被加载的提示信息
-     *
-     * @param noDataMsg 提示信息，如：没有更多数据了
+     * 第一个可见条目的顶部位置
      */
-    public void setNoDataMsg(String noDataMsg) {
-        mNoDataTextView.setText(noDataMsg);
-    }
+    private int mAnchorTop;
 
-    @Override
-    public void setAdapter(ListAdapter adapter) {
-        if (adapter != null) {
-            adapter.registerDataSetObserver(new DataSetObserver() {
+    /**
+     * 下次数据变化中发生增删的位置，-1表示未知
+     */
+    private int mShiftPosition = -1;
+
+    /**
+     * 下次数据变化中删除的条目数
+     */
+    private int mShiftRemoved;
+
+    /**
+     * 下次数据变化中插入的条目数
+     */
+    private int mShiftInserted;
+
+    /**
+     * 数据变化后插入到可见区域上方、尚未被看到的条目数
+     */
+    private int mNewItemsAbove;
+
+    private OnNewItemsListener mNewItemsListener;
+
+    /**
+     * 是否已设置没有更多数据
+     */
+    private boolean mNoMoreData;
+
+    /**
+     * 是否有从保存的状态中恢复、等待数据加载后定位的条目
+     */
+    private boolean mAnchorRestorePending;
+
+    /**
+     * 保存及恢复状态时的监听
+     */
+    private OnSaveStateListener mSaveStateListener;
+
+    /**
+     * 将预取窗口的回调转发给应用及内部的预取监听
+     */
+    private final PrefetchWindow.Callback mPrefetchCallback = new PrefetchWindow.Callback() {
+        @Override
+        public void onPrefetch(int start, int end) {
+            if (mPrefetchListener != null) {
+                mPrefetchListener.onPrefetch(start, end);
+            }
+            if (mInternalPrefetchListener != null) {
+                mInternalPrefetchListener.onPrefetch(start, end);
+            }
+        }
+
+        @Override
+        public void onCancelPrefetch(int start, int end) {
+            if (mPrefetchListener != null) {
+                mPrefetchListener.onCancelPrefetch(start, end);
+            }
+            if (mInternalPrefetchListener != null) {
+                mInternalPrefetchListener.onCancelPrefetch(start, end);
+            }
+        }
+    };
+
+    /**
+     * 是否初始化头部信息栏
+     */
+    private boolean isInitRefresh;
+
+    /**
+     * 是否初始化底部信息栏
+     */
+    private boolean isInitLoadMore;
+
+    /**
+     * 箭头动画是否旋转
+     */
+    private boolean mArrowAnimationEnabled = true;
+
+    private int mPaddingTop;
+    private int mPaddingBottom;
+
+    /**
+     * 当前的滑动状态
+     */
+    private int mScrollState = SCROLL_STATE_IDLE;
+
+    /**
+     * 是否通过绘制偏移而非设置Padding来展示拖动效果
+     */
+    private boolean mOffsetDragEnabled;
+
+    /**
+     * 拖动时内容的绘制偏移，下拉时为正，上拉时为负
+     */
+    private int mDragOffset;
+
+    /**
+     * 当前设置的适配器
+     */
+    private ListAdapter mAdapter;
+
+    /**
+     * 快速滑动的分组索引
+     */
+    private AsyncSectionIndexer<?> mSectionIndexer;
+
+    /**
+     * 设置了分组索引时包装后的适配器
+     */
+    private SectionIndexerAdapter mSectionAdapter;
+
+    /**
+     * 分组标题变化时通知快速滑动重新获取分组，只是分组范围变化时无需通知
+     */
+    private final AsyncSectionIndexer.OnIndexChangedListener mIndexChangedListener =
+            new AsyncSectionIndexer.OnIndexChangedListener() {
+                @Override
+                public void onIndexChanged(boolean sectionsChanged) {
+                    if (sectionsChanged && mSectionAdapter != null) {
+                        mSectionAdapter.notifySectionsChanged();
+                    }
+                }
+            };
+
+    /**
+     * 是否已有等待处理的数据变化
+     */
+    private boolean mDataChangedPending;
+
+    /**
+     * 主线程空闲时创建默认的指示器，避免在构造时或首次下拉时创建
+     */
+    private final MessageQueue.IdleHandler mIndicatorPreloader = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            if (mAttachedToWindow) {
+                ensureIndicator();
+            }
+            return false;
+        }
+    };
+
+    /**
+     * 数据变化后的处理，同一帧内的多次变化只处理一次
+     */
+    private final Runnable mDataChangedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            boolean traced = beginTrace("RefreshListView#onDataChanged");
+            mDataChangedPending = false;
+            if (mCompleteOnDataChanged) {
+                onRefreshComplete();
+                onLoadMoreComplete();
+            }
+            endTrace(traced);
+        }
+    };
+
+    /**
+     * 适配器的数据变化监听，更换适配器时会被注销
+     */
+    private final DataSetObserver mDataSetObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            // 数据变化后已通知的序号可能失效
+            resetPrefetch();
+            if (mAnchorEnabled || mAnchorRestorePending) {
+                restoreAnchor();
+            }
+            mShiftPosition = -1;
+            scheduleDataChanged();
+        }
+
+        @Override
+        public void onInvalidated() {
+            resetPrefetch();
+        }
+    };
+
+    /**
+     * 简单构造方法
+     *
+     * @param context 上下文
+     */
+    public RefreshListView(Context context) {
+        super(context);
+        this.mContext = context;
+        if (isInEditMode()) {
+            return;
+        }
+        initHeader();
+        initFooter();
+        isInitRefresh = true;
+        isInitLoadMore = true;
+        setOnScrollListener(this);
+    }
+
+    /**
+     * 系统调用的构造方法 当在xml中配置本控件时调用
+     *
+     * @param context 上下文
+     * @param attrs   xml中配置的参数
+     */
+    public RefreshListView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        this.mContext = context;
+        TypedArray array = context.obtainStyledAttributes(attrs,
+                R.styleable.RefreshListView);
+        isInitRefresh = array.getBoolean(
+                R.styleable.RefreshListView_init_header, true);
+        isInitLoadMore = array.getBoolean(
+                R.styleable.RefreshListView_init_footer, true);
+        if (isInEditMode()) {
+            return;
+        }
+        if (isInitRefresh) {
+            initHeader();
+        }
+
+        if (isInitLoadMore) {
+            initFooter();
+        }
+        setOnScrollListener(this);
+        array.recycle();
+        mPaddingTop = getPaddingTop();
+        mPaddingBottom = getPaddingBottom();
+    }
+
+    /**
+     * 设置刷新监听
+     *
+     * @param listener 刷新监听器
+     */
+    public void setOnRefreshLoadListener(OnRefreshLoadListener listener) {
+        this.mOnRefreshLoadListener = listener;
+    }
+
+    /**
+     * 设置与{@link RefreshRecyclerView}共用的刷新监听，可与{@link #setOnRefreshLoadListener(OnRefreshLoadListener)}同时使用
+     *
+     * @param listener 刷新监听器
+     */
+    public void setRefreshLoadListener(RefreshLoadListener listener) {
+        mRefreshLoadListener = listener;
+    }
+
+    /**
+     * 设置异步加载的监听. 开始刷新或加载时在后台线程调用其加载方法，
+     * 加载结果在主线程按帧批量交给监听应用，应用后自动结束刷新或加载
+     *
+     * @param listener 异步加载的监听，为null时取消
+     * @param <R>      加载结果的类型
+     */
+    public <R> void setOnAsyncLoadListener(OnAsyncLoadListener<R> listener) {
+        mAsyncDispatcher = listener == null ? null
+                : new AsyncLoadDispatcher<R>(this, listener, mLoadExecutor);
+    }
+
+    /**
+     * 设置异步加载所使用的线程池，默认为2个线程、等待队列长度为16的有界线程池
+     *
+     * @param executor 线程池，为null时使用默认的线程池
+     */
+    public void setLoadExecutor(Executor executor) {
+        mLoadExecutor = executor;
+        if (mAsyncDispatcher != null) {
+            mAsyncDispatcher.setExecutor(executor);
+        }
+    }
+
+    /**
+     * 设置性能统计监听，设置后还会输出Systrace的trace section. 为null时不做任何统计
+     *
+     * @param listener 性能统计监听
+     */
+    public void setOnMetricsListener(OnMetricsListener listener) {
+        mMetricsListener = listener;
+        if (listener == null && mFrameMonitor != null) {
+            mFrameMonitor.stop();
+        }
+    }
+
+    /**
+     * 设置上拉时触动加载更多的边界 默认为2倍底部信息栏高度
+     *
+     * @param boundary 界限值与底部信息栏的比值
+     */
+    public void setLoadMoreBoundary(int boundary) {
+        if (boundary <= 1) {
+            throw new IllegalArgumentException("该比值不可小于1");
+        }
+        mPull.setRaiseBoundary(boundary);
+    }
+
+    /**
+     * 设置顶部信息栏不可见 若在配置文件中配置为可见，需在设置适配器之后调用
+     */
+    public void removeRefreshView() {
+        if (isInitRefresh) {
+            if (mRefreshView != null) {
+                this.removeHeaderView(mRefreshView);
+            }
+        }
+        isInitRefresh = false;
+    }
+
+    /**
+     * 设置底部信息栏不可见 若在配置文件中配置为可见，需在设置适配器之后调用
+     */
+    public void removeLoadMoreView() {
+        if (isInitLoadMore) {
+            if (mLoadMoreView != null) {
+                this.removeFooterView(mLoadMoreView);
+            }
+            isInitLoadMore = false;
+        }
+    }
+
+    /**
+     * 设置上拉加载是否可用
+     *
+     * @param noMoreData 上拉加载是否可用
+     */
+    public void setNoMoreData(boolean noMoreData) {
+        mNoMoreData = noMoreData;
+        setCanLoadMore(!noMoreData);
+        if (!isInitLoadMore) {
+            return;
+        }
+        if (noMoreData && mNeedShowNoData) {
+            setNoDataVisible(true);
+            mLoadMoreView.setOnClickListener(null);
+        } else {
+            setNoDataVisible(false);
+        }
+    }
+
+    /**
+     * 设置上拉加载是否可用
+     *
+     * @param canLoadMore 上拉加载是否可用
+     */
+    public void setCanLoadMore(boolean canLoadMore) {
+        mController.setCanLoadMore(canLoadMore);
+        if (!isInitLoadMore) {
+            return;
+        }
+        if (canLoadMore) {
+            changeFooterViewByState();
+            mLoadMoreView.setOnClickListener(mFootLoadMoreListener);
+        } else {
+            removeCallbacks(mRetryRunnable);
+            mLoadMoreTextView.setVisibility(GONE);
+            setLoadMoreProgressVisible(false);
+        }
+    }
+
+    /**
+     * 设置是否启用下拉加载的提示图标的动画
+     *
+     * @param enabled
+     */
+    public void setArrowAnimationEnabled(boolean enabled) {
+        mArrowAnimationEnabled = enabled;
+        if (mIndicator instanceof RefreshIndicatorView) {
+            ((RefreshIndicatorView) mIndicator).setArrowAnimationEnabled(enabled);
+        }
+    }
+
+    /**
+     * 设置下拉刷新与上拉加载之间的策略
+     *
+     * @param policy {@link #LOAD_POLICY_PARALLEL}、{@link #LOAD_POLICY_REFRESH_SUPERSEDES_LOAD_MORE}
+     *               或{@link #LOAD_POLICY_EXCLUSIVE}
+     */
+    public void setLoadPolicy(int policy) {
+        mController.setLoadPolicy(policy);
+    }
+
+    /**
+     * 设置刷新及加载的超时时间，超时后取消对应的{@link LoadToken}并恢复顶部或底部信息栏
+     *
+     * @param timeout 超时时间，单位：毫秒，为0时不超时
+     */
+    public void setLoadTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("超时时间不可小于0");
+        }
+        mLoadTimeout = timeout;
+    }
+
+    /**
+     * 设置适配器数据变化时是否自动结束正在进行的刷新及加载，默认为true.
+     * 关闭后需要通过{@link #onRefreshComplete(int)}及{@link #onLoadMoreComplete(int)}结束.
+     *
+     * @param enabled 是否自动结束
+     */
+    public void setCompleteOnDataChanged(boolean enabled) {
+        mCompleteOnDataChanged = enabled;
+    }
+
+    public void setAutoLoadEnabled(boolean autoLoadEnabled) {
+        mController.setAutoLoadEnabled(autoLoadEnabled);
+    }
+
+    /**
+     * 设置上拉加载失败后自动重试的退避参数. 仅在开启自动加载时自动重试，
+     * 重试间隔按指数增长并加入随机抖动，超过次数后只能点击底部信息栏重试
+     *
+     * @param initialDelay 第一次重试的基础间隔，单位：毫秒
+     * @param maxDelay     最大的基础间隔，单位：毫秒
+     * @param maxRetries   最大的自动重试次数，为0时不自动重试
+     */
+    public void setRetryBackoff(long initialDelay, long maxDelay, int maxRetries) {
+        RetryBackoff backoff = mController.getRetryBackoff();
+        backoff.setDelays(initialDelay, maxDelay);
+        backoff.setMaxRetries(maxRetries);
+    }
+
+    /**
+     * 设置自动重试的回调监听
+     *
+     * @param listener 监听
+     */
+    public void setOnLoadMoreRetryListener(OnLoadMoreRetryListener listener) {
+        mRetryListener = listener;
+    }
+
+    /**
+     * 设置自动加载的预加载距离，需要先调用{@link #setAutoLoadEnabled(boolean)}启用自动加载
+     *
+     * @param distance 距离列表末尾还剩多少条数据时开始加载，为0时滑动到底部才加载
+     */
+    public void setPrefetchDistance(int distance) {
+        mController.getScrollTracker().setPrefetchDistance(distance);
+    }
+
+    /**
+     * 设置是否根据滑动速度及最近几次加载的耗时自适应调整预加载距离.
+     * 启用后实际的预加载距离不小于{@link #setPrefetchDistance(int)}设置的值.
+     *
+     * @param enabled 是否启用
+     */
+    public void setAdaptivePrefetchEnabled(boolean enabled) {
+        mController.getScrollTracker().setAdaptivePrefetchEnabled(enabled);
+    }
+
+    /**
+     * 设置预取监听. 滑动时按滑动方向及速度通知即将可见的条目范围，已通知的范围不会重复通知，
+     * 滑离后不再需要的范围会通知取消. 为null时不计算预取窗口
+     *
+     * @param listener 预取监听
+     */
+    public void setOnPrefetchListener(OnPrefetchListener listener) {
+        resetPrefetch();
+        mPrefetchListener = listener;
+    }
+
+    /**
+     * 设置库内部使用的预取监听，与{@link #setOnPrefetchListener(OnPrefetchListener)}设置的监听互不影响
+     *
+     * @param listener 预取监听，为null时移除
+     */
+    void setInternalPrefetchListener(OnPrefetchListener listener) {
+        resetPrefetch();
+        mInternalPrefetchListener = listener;
+    }
+
+    /**
+     * @return 是否有需要计算预取窗口的监听
+     */
+    private boolean hasPrefetchListener() {
+        return mPrefetchListener != null || mInternalPrefetchListener != null;
+    }
+
+    /**
+     * 设置数据变化时是否保持第一个可见条目的位置. 开启后在数据变化前记录第一个可见条目的ID及位置，
+     * 变化后在同一次布局中定位到该条目，下拉刷新在顶部插入新条目时不会改变当前看到的内容.
+     * 要求适配器有稳定的ID，顶部信息栏可见时不做处理
+     *
+     * @param enabled 是否开启
+     */
+    public void setAnchorOnDataChangeEnabled(boolean enabled) {
+        mAnchorEnabled = enabled;
+        if (!enabled) {
+            mAnchorId = INVALID_ROW_ID;
+            setNewItemsAbove(0);
+        }
+    }
+
+    /**
+     * 设置保存及恢复状态时的监听，可在控件的状态中附带数据源的游标等少量数据
+     *
+     * @param listener 监听
+     */
+    public void setOnSaveStateListener(OnSaveStateListener listener) {
+        mSaveStateListener = listener;
+    }
+
+    /**
+     * 设置可见区域上方有新条目的监听，可据此展示“N条新内容”的提示，点击后调用{@link #scrollToNewItems()}
+     *
+     * @param listener 监听
+     */
+    public void setOnNewItemsListener(OnNewItemsListener listener) {
+        mNewItemsListener = listener;
+    }
+
+    /**
+     * 滑动到顶部的新条目
+     */
+    public void scrollToNewItems() {
+        setSelection(0);
+        setNewItemsAbove(0);
+    }
+
+    /**
+     * 设置快速滑动的分组索引，设置后开启快速滑动，为null时关闭.
+     * 索引的序号为适配器中的序号，与顶部及底部信息栏之间的换算由列表处理
+     *
+     * @param indexer 分组索引
+     */
+    public void setSectionIndexer(AsyncSectionIndexer<?> indexer) {
+        if (indexer == mSectionIndexer) {
+            return;
+        }
+        if (mSectionIndexer != null) {
+            mSectionIndexer.setOnIndexChangedListener(null);
+        }
+        mSectionIndexer = indexer;
+        if (indexer != null) {
+            indexer.setOnIndexChangedListener(mIndexChangedListener);
+        }
+        if (mAdapter != null) {
+            // 重新设置包装后的适配器，保持当前的滑动位置
+            int position = getFirstVisiblePosition();
+            View first = getChildAt(0);
+            int top = first != null ? first.getTop() : 0;
+            setAdapter(mAdapter);
+            setSelectionFromTop(position, top);
+        }
+        setFastScrollEnabled(indexer != null);
+    }
+
+    /**
+     * @param position 列表中的序号，包括顶部信息栏
+     * @return 所在的分组，顶部信息栏属于第一个分组，底部信息栏属于最后一个分组；未设置分组索引时返回0
+     */
+    public int getSectionForListPosition(int position) {
+        if (mSectionIndexer == null) {
+            return 0;
+        }
+        return mSectionIndexer.getSectionForPosition(position - getHeaderViewsCount());
+    }
+
+    /**
+     * @param section 分组
+     * @return 分组第一个条目在列表中的序号，包括顶部信息栏；未设置分组索引时返回第一个条目的序号
+     */
+    public int getListPositionForSection(int section) {
+        int position = mSectionIndexer != null ? mSectionIndexer.getPositionForSection(section) : 0;
+        return position + getHeaderViewsCount();
+    }
+
+    /**
+     * 跳转到指定分组的第一个条目
+     *
+     * @param section 分组
+     */
+    public void scrollToSection(int section) {
+        setSelection(getListPositionForSection(section));
+    }
+
+    /**
+     * 设置预取窗口的大小，实际大小在该范围内随滑动速度变化
+     *
+     * @param minItems 最小的预取条目数
+     * @param maxItems 最大的预取条目数
+     */
+    public void setPrefetchWindowSize(int minItems, int maxItems) {
+        mPrefetchWindow.setWindowSize(minItems, maxItems);
+    }
+
+    /**
+     * 设置是否通过绘制偏移来展示下拉及上拉的拖动效果.
+     * 启用后拖动过程中不再修改Padding及调用setSelection，不会引起整个列表的重新布局，
+     * 仅在松手后切换状态时布局一次. 该模式需要关闭列表及顶部信息栏对子控件的裁剪.
+     *
+     * @param enabled 是否启用
+     */
+    public void setOffsetDragEnabled(boolean enabled) {
+        mOffsetDragEnabled = enabled;
+        setClipChildren(!enabled);
+        setClipToPadding(!enabled);
+        if (mRefreshView != null) {
+            ((ViewGroup) mRefreshView).setClipChildren(!enabled);
+        }
+        if (!enabled) {
+            cancelSettle();
+            setDragOffset(0);
+        }
+    }
+
+    public void setUpdateTimeEnabled(boolean enabled) {
+        if (!isInitRefresh) {
+            return;
+        }
+        mUpdateTimeEnabled = enabled;
+        updateIndicatorTime();
+    }
+
+    /**
+     * 没有更多数据可被加载的提示信息
+     *
+     * @param noDataMsg 提示信息，如：没有更多数据了
+     */
+    public void setNoDataMsg(String noDataMsg) {
+        mNoDataMsg = noDataMsg;
+        if (mNoDataTextView != null) {
+            mNoDataTextView.setText(noDataMsg);
+        }
+    }
+
+    @Override
+    public void setAdapter(ListAdapter adapter) {
+        if (mAdapter != null) {
+            mAdapter.unregisterDataSetObserver(mDataSetObserver);
+            if (adapter != mAdapter) {
+                mController.cancelRefresh(LoadToken.REASON_ADAPTER_CHANGED);
+                mController.cancelLoadMore(LoadToken.REASON_ADAPTER_CHANGED);
+            }
+        }
+        resetPrefetch();
+        mAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerDataSetObserver(mDataSetObserver);
+        }
+        // 快速滑动只从适配器获取分组，设置了分组索引时包装一层
+        mSectionAdapter = adapter != null && mSectionIndexer != null
+                ? new SectionIndexerAdapter(adapter, mSectionIndexer) : null;
+        super.setAdapter(mSectionAdapter != null ? mSectionAdapter : adapter);
+    }
+
+    /**
+     * 在下一帧调用加载完毕后的处理方法，保证数据已经展示在界面
+     */
+    private void scheduleDataChanged() {
+        if (!mDataChangedPending) {
+            mDataChangedPending = true;
+            ViewCompat.postOnAnimation(this, mDataChangedRunnable);
+        }
+    }
+
+    /**
+     * 在不重新布局的情况下重新绑定内容发生变化的条目，不可见的条目无需处理.
+     * 要求适配器在getView时复用传入的convertView.
+     *
+     * @param positions 内容变化的条目在适配器中的序号
+     * @param count     序号的个数
+     * @return 是否全部在原位重新绑定，返回false时需要调用notifyDataSetChanged
+     */
+    public boolean rebindItems(int[] positions, int count) {
+        ListAdapter adapter = getAdapter();
+        if (adapter == null) {
+            return false;
+        }
+        int headerCount = getHeaderViewsCount();
+        int first = getFirstVisiblePosition();
+        int childCount = getChildCount();
+        for (int i = 0; i < count; i++) {
+            int index = positions[i] + headerCount - first;
+            if (index < 0 || index >= childCount) {
+                continue;
+            }
+            View child = getChildAt(index);
+            if (adapter.getView(first + index, child, this) != child) {
+                return false;
+            }
+        }
+        scheduleDataChanged();
+        return true;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttachedToWindow = true;
+        getViewTreeObserver().addOnScrollChangedListener(mScrollChangedListener);
+        if (isInitRefresh && mIndicator == null) {
+            Looper.myQueue().addIdleHandler(mIndicatorPreloader);
+        }
+        updateIndicatorAnimations();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mAttachedToWindow = false;
+        getViewTreeObserver().removeOnScrollChangedListener(mScrollChangedListener);
+        Looper.myQueue().removeIdleHandler(mIndicatorPreloader);
+        if (mDataChangedPending) {
+            // 已不会再有下一帧，直接处理未完成的数据变化
+            removeCallbacks(mDataChangedRunnable);
+            mDataChangedRunnable.run();
+        }
+        flushPullResult();
+        cancelSettle();
+        // 帧回调不会随控件移出窗口而停止
+        stopFrameMonitor();
+        resetPrefetch();
+        removeCallbacks(mRetryRunnable);
+        mController.cancelRefresh(LoadToken.REASON_DETACHED);
+        mController.cancelLoadMore(LoadToken.REASON_DETACHED);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateIndicatorAnimations();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // 构造过程中也可能回调，此时尚未附加到窗口
+        if (mAttachedToWindow) {
+            updateIndicatorAnimations();
+        }
+    }
+
+    /**
+     * 根据是否附加到窗口、窗口是否可见及顶部、底部信息栏是否在屏幕上，暂停或恢复正在刷新及加载的指示器动画.
+     * 暂停时将指示器设为INVISIBLE，ProgressBar及{@link RefreshIndicatorView}会随之停止动画，且不需要重新布局.
+     * 没有正在进行的刷新及加载时不做判断
+     */
+    private void updateIndicatorAnimations() {
+        boolean refreshing = mPull.getRefreshState() == REFRESHING;
+        boolean loading = mPull.getLoadMoreState() == REFRESHING;
+        if (!refreshing && !loading && !mHeaderAnimationPaused && !mFooterAnimationPaused) {
+            return;
+        }
+        boolean onScreen = (refreshing || loading) && isOnScreen();
+        setHeaderAnimationPaused(refreshing && !(onScreen && getFirstVisiblePosition() == 0));
+        setFooterAnimationPaused(loading
+                && !(onScreen && getLastVisiblePosition() == getCount() - 1));
+    }
+
+    /**
+     * @return 列表是否有部分显示在屏幕上，被祖先控件裁剪掉（如ViewPager中不可见的页面）时为false
+     */
+    private boolean isOnScreen() {
+        return mAttachedToWindow && getWindowVisibility() == VISIBLE && isShown()
+                && getGlobalVisibleRect(mVisibleRect);
+    }
+
+    private void setHeaderAnimationPaused(boolean paused) {
+        if (paused == mHeaderAnimationPaused) {
+            return;
+        }
+        mHeaderAnimationPaused = paused;
+        if (mIndicator != null) {
+            mIndicator.getView().setVisibility(paused ? INVISIBLE : VISIBLE);
+        }
+    }
+
+    private void setFooterAnimationPaused(boolean paused) {
+        if (paused == mFooterAnimationPaused) {
+            return;
+        }
+        mFooterAnimationPaused = paused;
+        if (mLoadMoreProgressView != null && mLoadMoreProgressView.getVisibility() != GONE) {
+            mLoadMoreProgressView.setVisibility(paused ? INVISIBLE : VISIBLE);
+        }
+    }
+
+    @Override
+    public void onScrollStateChanged(AbsListView view, int scrollState) {
+        mScrollState = scrollState;
+        ListAdapter adapter = getAdapter();
+        if (adapter != null) {
+            if (adapter.getCount() - 1 == getLastVisiblePosition()) {
+                isFootBarWork = true;
+            } else {
+                isFootBarWork = false;
+            }
+        }
+        mController.onScrollStateChanged(scrollState == SCROLL_STATE_IDLE, isFootBarWork,
+                SystemClock.uptimeMillis());
+    }
+
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding(left, top, right, bottom);
+        mPaddingTop = top;
+        mPaddingBottom = bottom;
+    }
+
+    /**
+     * 开始加载更多，已在加载中时不重复触发
+     *
+     * @return 本次加载的凭证，未能开始时返回{@link #NO_TICKET}
+     */
+    private int startLoadMore() {
+        return mController.startLoadMore(SystemClock.uptimeMillis());
+    }
+
+    /**
+     * 开始下拉刷新，已在刷新中时不重复触发
+     *
+     * @return 本次刷新的凭证，未能开始时返回{@link #NO_TICKET}
+     */
+    private int startRefresh() {
+        return mController.startRefresh();
+    }
+
+    @Override
+    public void onScroll(AbsListView view, int firstVisibleItem,
+                         int visibleItemCount, int totalItemCount) {
+        boolean traced = beginTrace("RefreshListView#onScroll");
+        handleScroll(firstVisibleItem, visibleItemCount, totalItemCount);
+        endTrace(traced);
+    }
+
+    /**
+     * 处理列表滑动
+     *
+     * @param firstVisibleItem 第一个可见条目的序号
+     * @param visibleItemCount 可见条目数
+     * @param totalItemCount   总条目数
+     */
+    private void handleScroll(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        /* 获取当前所能看到的项目序号 以及总条数 */
+        firstItemIndex = firstVisibleItem;
+        totalSize = totalItemCount;
+        if (getLastVisiblePosition() == totalItemCount - 1) {
+            isFootBarWork = true;
+        } else {
+            isFootBarWork = false;
+        }
+        mNeedShowNoData = totalItemCount > visibleItemCount;
+        if (mMetricsListener != null && mPull.getLoadMoreState() == REFRESHING) {
+            trackFooterSpinner();
+        }
+
+        boolean scrolling = mScrollState != SCROLL_STATE_IDLE;
+        mController.onScroll(firstVisibleItem, visibleItemCount, totalItemCount,
+                getFooterViewsCount(), scrolling, SystemClock.uptimeMillis());
+        if (hasPrefetchListener() && mAdapter != null) {
+            updatePrefetch(firstVisibleItem, visibleItemCount, scrolling);
+        }
+        if (mAnchorEnabled) {
+            captureAnchor(firstVisibleItem);
+        }
+        updateIndicatorAnimations();
+    }
+
+    /**
+     * 记录第一个可见条目的ID及位置，每次滑动及布局后调用，此时适配器的数据与界面一致
+     *
+     * @param firstVisibleItem 第一个可见条目的序号，包括顶部信息栏
+     */
+    private void captureAnchor(int firstVisibleItem) {
+        int position = firstVisibleItem - getHeaderViewsCount();
+        if (mAdapter == null || !mAdapter.hasStableIds() || getChildCount() == 0
+                || position < 0 || position >= mAdapter.getCount()) {
+            mAnchorId = INVALID_ROW_ID;
+            setNewItemsAbove(0);
+            return;
+        }
+        mAnchorId = mAdapter.getItemId(position);
+        mAnchorPosition = position;
+        mAnchorTop = getChildAt(0).getTop();
+        if (mNewItemsAbove > position) {
+            // 向上滑动已看到部分新条目
+            setNewItemsAbove(position);
+        }
+    }
+
+    /**
+     * 数据变化后定位到之前记录的条目. 此时ListView已记录同步状态并请求了布局，
+     * 这里只修改同步的位置，不会增加布局次数
+     */
+    private void restoreAnchor() {
+        if (mAnchorRestorePending) {
+            restorePendingAnchor();
+            return;
+        }
+        if (mAnchorId == INVALID_ROW_ID || !mAdapter.hasStableIds()) {
+            return;
+        }
+        int position = findPositionForId(mAnchorId, getShiftedPosition(mAnchorPosition));
+        if (position < 0) {
+            mAnchorId = INVALID_ROW_ID;
+            return;
+        }
+        int shift = position - mAnchorPosition;
+        mAnchorPosition = position;
+        setSelectionFromTop(position + getHeaderViewsCount(), mAnchorTop - getListPaddingTop());
+        if (shift > 0) {
+            setNewItemsAbove(mNewItemsAbove + shift);
+        }
+    }
+
+    /**
+     * 定位到从保存的状态中恢复的条目，适配器还没有数据时等待下次数据变化.
+     * 有稳定的ID时按ID查找，否则按序号定位
+     */
+    private void restorePendingAnchor() {
+        if (mAdapter == null || mAdapter.getCount() == 0) {
+            return;
+        }
+        mAnchorRestorePending = false;
+        int position = mAnchorPosition;
+        if (mAnchorId != INVALID_ROW_ID && mAdapter.hasStableIds()) {
+            position = findPositionForId(mAnchorId, mAnchorPosition);
+        }
+        if (position < 0 || position >= mAdapter.getCount()) {
+            mAnchorId = INVALID_ROW_ID;
+            return;
+        }
+        mAnchorPosition = position;
+        setSelectionFromTop(position + getHeaderViewsCount(), mAnchorTop - getListPaddingTop());
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        int flags = 0;
+        if (mController.canLoadMore()) {
+            flags |= SavedState.FLAG_CAN_LOAD_MORE;
+        }
+        if (mNoMoreData) {
+            flags |= SavedState.FLAG_NO_MORE_DATA;
+        }
+        if (mPull.getRefreshState() == REFRESHING) {
+            flags |= SavedState.FLAG_REFRESHING;
+        }
+        if (mController.isLoadMoreFailed()) {
+            flags |= SavedState.FLAG_LOAD_FAILED;
+        }
+        state.flags = flags;
+        state.anchorId = INVALID_ROW_ID;
+        int position = getFirstVisiblePosition() - getHeaderViewsCount();
+        if (mAdapter != null && getChildCount() > 0
+                && position >= 0 && position < mAdapter.getCount()) {
+            state.anchorId = mAdapter.hasStableIds() ? mAdapter.getItemId(position) : INVALID_ROW_ID;
+            state.anchorPosition = position;
+            state.anchorTop = getChildAt(0).getTop();
+        }
+        if (mSaveStateListener != null) {
+            state.extras = new Bundle();
+            mSaveStateListener.onSaveState(state.extras);
+        }
+        return state;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        int flags = savedState.flags;
+        if ((flags & SavedState.FLAG_NO_MORE_DATA) != 0) {
+            setNoMoreData(true);
+        } else {
+            setCanLoadMore((flags & SavedState.FLAG_CAN_LOAD_MORE) != 0);
+        }
+        if ((flags & SavedState.FLAG_LOAD_FAILED) != 0) {
+            // 点击底部信息栏重试，不自动发起请求
+            mController.restoreLoadMoreFailed();
+        }
+        if (savedState.anchorPosition >= 0) {
+            mAnchorId = savedState.anchorId;
+            mAnchorPosition = savedState.anchorPosition;
+            mAnchorTop = savedState.anchorTop;
+            mAnchorRestorePending = true;
+            restorePendingAnchor();
+        }
+        if (mSaveStateListener != null && savedState.extras != null) {
+            mSaveStateListener.onRestoreState(savedState.extras);
+        }
+        if ((flags & SavedState.FLAG_REFRESHING) != 0) {
+            // 被中断的刷新没有结果，重新开始
+            post(new Runnable() {
                 @Override
-                public void onChanged() {
-                    // 延时调用加载完毕后的处理方法，保证数据已经展示咱界面
-                    Handler handler = new Handler();
-                    handler.postDelayed(new Runnable() {
-                        @Override
-                        public void run() {
-                            onRefreshComplete();
-                            onLoadMoreComplete();
-                        }
-                    }, 10);
-                    super.onChanged();
+                public void run() {
+                    triggerRefresh();
                 }
             });
         }
-        super.setAdapter(adapter);
     }
 
-    @Override
-    public void onScrollStateChanged(AbsListView view, int scrollState) {
-        ListAdapter adapter = getAdapter();
-        if (adapter != null) {
-            if (adapter.getCount() - 1 == getLastVisiblePosition()) {
-                isFootBarWork = true;
-            } else {
-                isFootBarWork = false;
+    /**
+     * 查找指定ID的条目，从上次的位置开始向后再向前查找，顶部插入时通常很快找到
+     *
+     * @param id   条目ID
+     * @param hint 上次的位置
+     * @return 条目在适配器中的序号，不存在时返回-1
+     */
+    private int findPositionForId(long id, int hint) {
+        int count = mAdapter.getCount();
+        if (hint >= 0 && hint < count && mAdapter.getItemId(hint) == id) {
+            return hint;
+        }
+        int start = Math.min(Math.max(hint, 0), count);
+        for (int i = start; i < count; i++) {
+            if (mAdapter.getItemId(i) == id) {
+                return i;
             }
         }
-        if (isFootBarWork && mAutoLoadEnabled && mCanLoadMore) {
-            startLoadMore();
+        for (int i = start - 1; i >= 0; i--) {
+            if (mAdapter.getItemId(i) == id) {
+                return i;
+            }
         }
+        return -1;
+    }
+
+    /**
+     * 告知下次数据变化只在一处发生增删，其余条目的顺序不变. 在notifyDataSetChanged之前调用，
+     * 第一个可见条目的新位置可直接计算，不需要按ID查找
+     *
+     * @param position 发生增删的位置
+     * @param removed  删除的条目数
+     * @param inserted 插入的条目数
+     */
+    void setPendingItemShift(int position, int removed, int inserted) {
+        mShiftPosition = position;
+        mShiftRemoved = removed;
+        mShiftInserted = inserted;
     }
 
+    /**
+     * @param position 数据变化前的序号
+     * @return 数据变化后的序号，未知或条目已被删除时返回原序号
+     */
+    private int getShiftedPosition(int position) {
+        if (mShiftPosition < 0 || position < mShiftPosition + mShiftRemoved) {
+            return position;
+        }
+        return position - mShiftRemoved + mShiftInserted;
+    }
 
-    @Override
-    public void setPadding(int left, int top, int right, int bottom) {
-        super.setPadding(left, top, right, bottom);
-        mPaddingTop = top;
-        mPaddingBottom = bottom;
+    private void setNewItemsAbove(int count) {
+        if (mNewItemsAbove == count) {
+            return;
+        }
+        mNewItemsAbove = count;
+        if (mNewItemsListener != null) {
+            mNewItemsListener.onNewItemsAbove(count);
+        }
     }
 
     /**
-     * 开始加载更多
+     * 按适配器中的序号更新预取窗口
+     *
+     * @param firstVisibleItem 第一个可见条目的序号，包括顶部信息栏
+     * @param visibleItemCount 可见条目数，包括顶部及底部信息栏
+     * @param scrolling        是否正在滑动
      */
-    private void startLoadMore() {
-        mPullRefreshState = REFRESHING;
-        changeFooterViewByState();
-        onPullToLoadMore();
+    private void updatePrefetch(int firstVisibleItem, int visibleItemCount, boolean scrolling) {
+        int count = mAdapter.getCount();
+        int headerCount = getHeaderViewsCount();
+        int first = Math.min(Math.max(firstVisibleItem - headerCount, 0), count);
+        int last = Math.min(Math.max(firstVisibleItem + visibleItemCount - headerCount, 0), count);
+        mPrefetchWindow.onScroll(first, last - first, count, scrolling,
+                SystemClock.uptimeMillis(), mPrefetchCallback);
     }
 
-    @Override
-    public void onScroll(AbsListView view, int firstVisibleItem,
-                         int visibleItemCount, int totalItemCount) {
-        /* 获取当前所能看到的项目序号 以及总条数 */
-        firstItemIndex = firstVisibleItem;
-        totalSize = totalItemCount;
-        if (getLastVisiblePosition() == totalItemCount - 1) {
-            isFootBarWork = true;
+    /**
+     * 取消所有已通知的预取范围
+     */
+    private void resetPrefetch() {
+        mPrefetchWindow.reset(hasPrefetchListener() ? mPrefetchCallback : null);
+    }
+
+    /**
+     * 设置顶部信息栏的Padding，并通过绘制偏移从当前的展示位置回弹到新的位置
+     *
+     * @param paddingTop 顶部信息栏新的Padding
+     */
+    private void setHeaderPaddingAndSettle(int paddingTop) {
+        // 列表内容当前被顶部信息栏下推的距离
+        int shift = mRefreshView.getPaddingTop() + mHeaderHeight + mDragOffset;
+        mRefreshView.setPadding(0, paddingTop, 0, 0);
+        if (getFirstVisiblePosition() == 0) {
+            settle(shift - (paddingTop + mHeaderHeight));
         } else {
-            isFootBarWork = false;
+            settle(0);
+        }
+    }
+
+    /**
+     * 恢复列表及底部信息栏的Padding，并通过绘制偏移从当前的展示位置回弹到新的位置
+     */
+    private void resetFooterPaddingAndSettle() {
+        // 列表内容当前被底部信息栏上推的距离，向下为正
+        int shift = mDragOffset - mLoadMoreView.getPaddingBottom();
+        super.setPadding(0, mPaddingTop, 0, mPaddingBottom);
+        mLoadMoreView.setPadding(0, 0, 0, 0);
+        settle(isFootBarWork ? shift : 0);
+    }
+
+    /**
+     * 以绘制偏移从指定位置回弹到0. 动画过程中只重绘，不重新布局，
+     * 列表的子控件以硬件加速的显示列表整体平移
+     *
+     * @param offset 起始的绘制偏移
+     */
+    private void settle(int offset) {
+        cancelSettle();
+        if (offset == 0) {
+            setDragOffset(0);
+            return;
+        }
+        if (mSettleAnimator == null) {
+            mSettleAnimator = ValueAnimator.ofFloat(0, 1);
+            mSettleAnimator.setInterpolator(new DecelerateInterpolator());
+            mSettleAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    // 按进度计算偏移，避免每帧对动画值装箱拆箱
+                    float fraction;
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+                        fraction = animation.getAnimatedFraction();
+                    } else {
+                        fraction = (Float) animation.getAnimatedValue();
+                    }
+                    setDragOffset((int) (mSettleStartOffset * (1 - fraction)));
+                }
+            });
+            mSettleAnimator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    setDragOffset(0);
+                    setSettleClipping(false);
+                    // 回弹的帧也计入本次拖动的统计，新的拖动已开始时由拖动结束统计
+                    if (!isDragging()) {
+                        stopFrameMonitor();
+                    }
+                }
+            });
+        }
+        // 减速插值的初速度为平均速度的2倍，按松手速度推算时长
+        float minVelocity = MIN_SETTLE_VELOCITY * getResources().getDisplayMetrics().density;
+        float velocity = Math.max(Math.abs(mReleaseVelocity), minVelocity);
+        long duration = (long) (2000 * Math.abs(offset) / velocity);
+        duration = Math.max(MIN_SETTLE_DURATION, Math.min(MAX_SETTLE_DURATION, duration));
+        setSettleClipping(true);
+        setDragOffset(offset);
+        mSettleStartOffset = offset;
+        mSettleAnimator.setDuration(duration);
+        mSettleAnimator.start();
+    }
+
+    /**
+     * 结束正在进行的回弹，直接停在最终位置
+     */
+    private void cancelSettle() {
+        if (mSettleAnimator != null && mSettleAnimator.isRunning()) {
+            // cancel后会回调onAnimationEnd
+            mSettleAnimator.cancel();
+        }
+    }
+
+    /**
+     * 回弹过程中顶部信息栏会绘制在其布局范围之外，需要暂时关闭裁剪
+     *
+     * @param settling 是否正在回弹
+     */
+    private void setSettleClipping(boolean settling) {
+        if (mOffsetDragEnabled) {
+            // 偏移拖动模式下已关闭裁剪
+            return;
+        }
+        setClipChildren(!settling);
+        if (mRefreshView != null) {
+            ((ViewGroup) mRefreshView).setClipChildren(!settling);
+        }
+    }
+
+    /**
+     * 合并手势结果，在下一帧统一应用到界面
+     *
+     * @param result 结果标志
+     */
+    private void schedulePullResult(int result) {
+        result &= ~PullStateMachine.CONSUMED;
+        if (result == 0) {
+            return;
+        }
+        // 状态及拖动距离在应用时读取最新值，合并标志即可
+        mPendingPullResult |= result;
+        if (!mPullUpdatePending) {
+            mPullUpdatePending = true;
+            ViewCompat.postOnAnimation(this, mPullUpdateRunnable);
+        }
+    }
+
+    /**
+     * 立即应用尚未更新的手势结果
+     */
+    private void flushPullResult() {
+        if (mPullUpdatePending) {
+            removeCallbacks(mPullUpdateRunnable);
+            mPullUpdateRunnable.run();
         }
-        mNeedShowNoData = totalItemCount > visibleItemCount;
     }
 
+    /**
+     * 获取最近一次拖动的速度，根据触摸事件及其历史采样估算
+     *
+     * @return 速度，向下为正，单位：像素/秒
+     */
+    public float getDragVelocity() {
+        return mDragVelocity.getVelocity();
+    }
+
+    /**
+     * 统计上拉加载中底部加载进度可见的时长
+     */
+    private void trackFooterSpinner() {
+        long now = SystemClock.uptimeMillis();
+        if (isFootBarWork) {
+            if (mFooterSpinnerShownTime == 0) {
+                mFooterSpinnerShownTime = now;
+            }
+        } else if (mFooterSpinnerShownTime != 0) {
+            mFooterSpinnerVisibleDuration += now - mFooterSpinnerShownTime;
+            mFooterSpinnerShownTime = 0;
+        }
+    }
+
+    /**
+     * 开始一个trace section，仅在设置了性能统计监听时输出
+     *
+     * @param name section的名称
+     * @return 是否开始了section
+     */
+    private boolean beginTrace(String name) {
+        if (mMetricsListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 结束trace section
+     *
+     * @param traced {@link #beginTrace(String)}的返回值
+     */
+    private void endTrace(boolean traced) {
+        if (traced) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * 开始统计拖动过程中的丢帧
+     */
+    private void startFrameMonitor() {
+        if (mMetricsListener == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        if (mFrameMonitor == null) {
+            WindowManager wm = (WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE);
+            mFrameMonitor = new FrameMonitor(wm.getDefaultDisplay().getRefreshRate(),
+                    new FrameMonitor.Callback() {
+                        @Override
+                        public void onFrameStats(int frames, int droppedFrames) {
+                            if (mMetricsListener != null) {
+                                mMetricsListener.onDragFrameStats(frames, droppedFrames);
+                            }
+                        }
+                    });
+        }
+        mFrameMonitor.start();
+    }
+
+    /**
+     * 结束统计拖动过程中的丢帧
+     */
+    private void stopFrameMonitor() {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
+        }
+    }
+
+    /**
+     * 手势结束时调用，松手后仍在回弹时等回弹结束再结束统计
+     */
+    private void stopFrameMonitorUnlessSettling() {
+        if (mSettleAnimator == null || !mSettleAnimator.isRunning()) {
+            stopFrameMonitor();
+        }
+    }
+
+    /**
+     * @return 是否正在下拉或上拉拖动中
+     */
+    private boolean isDragging() {
+        int refreshState = mPull.getRefreshState();
+        int loadMoreState = mPull.getLoadMoreState();
+        return refreshState == PULL_TO_REFRESH || refreshState == RELEASE_TO_REFRESH
+                || loadMoreState == RAISE_TO_REFRESH || loadMoreState == RELEASE_RAISE_TO_REFRESH;
+    }
+
+    /**
+     * 设置拖动时内容的绘制偏移
+     *
+     * @param offset 绘制偏移
+     */
+    private void setDragOffset(int offset) {
+        if (mDragOffset != offset) {
+            mDragOffset = offset;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mDragOffset == 0) {
+            super.dispatchDraw(canvas);
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.translate(0, mDragOffset);
+        super.dispatchDraw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
 
     /**
      * 重写onTouchEvent 处理ListView的上拉和下拉事件
@@ -433,87 +1853,70 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
      * 触摸事件
      * @return 触摸事件是否被消耗掉
      */
-
-    long startTime;
-
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
+        boolean traced = beginTrace("RefreshListView#onTouchEvent");
+        try {
+            return handleTouchEvent(ev);
+        } finally {
+            endTrace(traced);
+        }
+    }
+
+    /**
+     * 处理触摸事件
+     *
+     * @param ev 触摸事件
+     * @return 触摸事件是否被消耗掉
+     */
+    private boolean handleTouchEvent(MotionEvent ev) {
         switch (ev.getAction()) {
             case MotionEvent.ACTION_DOWN:
                 // 手势落在屏幕上，记录起始位置
-                if (!isRecord) {
-                    isRecord = true;
-                    startY = (int) ev.getY();
-                }
-                startTime = System.currentTimeMillis();
+                // 新的触摸打断正在进行的回弹，直接停在最终位置
+                cancelSettle();
+                // 空闲时还没来得及创建指示器时在此创建，不放到拖动中
+                ensureIndicator();
+                mPull.onDown((int) ev.getY());
+                mTouchDownTime = SystemClock.uptimeMillis();
+                mDragVelocity.reset();
+                mDragVelocity.addSample(ev.getY(), ev.getEventTime());
                 break;
             case MotionEvent.ACTION_MOVE:
-                // 手势移动，根据手势判断是下拉还是上拉
-                int tempY = (int) ev.getY();
-                if (!isRecord && (firstItemIndex == 0 || isFootBarWork)) {
-                    isRecord = true;
-                    startY = tempY;
+                // 批量事件中的历史采样只用于估算速度
+                for (int i = 0, size = ev.getHistorySize(); i < size; i++) {
+                    mDragVelocity.addSample(ev.getHistoricalY(i), ev.getHistoricalEventTime(i));
                 }
-                if (tempY - startY > 0 && firstItemIndex == 0 && isInitRefresh) {
-                    // 下拉动作
-                    pullToRefresh(tempY);
-                } else if (tempY - startY < 0 && isFootBarWork && isInitLoadMore && mCanLoadMore) {
-                    // 上拉动作
-                    pullToLoadMore(tempY);
+                mDragVelocity.addSample(ev.getY(), ev.getEventTime());
+                // 手势移动，根据手势判断是下拉还是上拉，界面在下一帧统一更新
+                int result = mPull.onMove((int) ev.getY(), firstItemIndex == 0, isFootBarWork,
+                        isInitRefresh, isInitLoadMore && mController.canLoadMore());
+                schedulePullResult(result);
+                if (mMetricsListener != null && isDragging()) {
+                    startFrameMonitor();
                 }
-                if (tempY - startY == 0) {
-                    // 交替动作界限 将标志位重置
-                    mPullRefreshState = DONE;
+                if ((result & PullStateMachine.CONSUMED) != 0) {
                     return true;
                 }
                 break;
             case MotionEvent.ACTION_UP:
-                int upY = (int) ev.getY();
-                if (isInitRefresh) {
-                    // 手势抬起，执行对应的操作
-                    if (mPullRefreshState != REFRESHING) {
-                        // 未处于正在加载状态中
-                        if (mPullRefreshState == DONE) {
-
-                        }
-                        if (mPullRefreshState == PULL_TO_REFRESH) {
-                            // 下拉刷新界限内
-                            mPullRefreshState = DONE;
-                            changeHeaderViewByState();
-                        }
-                        if (mPullRefreshState == RELEASE_TO_REFRESH) {
-                            // 触发刷新
-                            mPullRefreshState = REFRESHING;
-                            changeHeaderViewByState();
-                            onPullToRefresh();
-                        }
-                    }
-                }
-                if (isInitLoadMore && isFootBarWork && mCanLoadMore) {
-                    System.out.println("mPullRefreshState-----------------"
-                            + mPullRefreshState);
-                    if (mPullRefreshState != RELEASE_RAISE_TO_REFRESH
-                            || mPullRefreshState != RELEASE_TO_REFRESH) {
-                        // 上拉刷新
-                        if (-1 * (upY - startY) < mFooterHeight * raiseBoundary) {
-                            // 界限内
-                            mPullRefreshState = DONE;
-                        } else {
-                            // 触发上拉加载
-                            mPullRefreshState = REFRESHING;
-                            onPullToLoadMore();
-                        }
-                        changeFooterViewByState();
-                    }
-                    if (mPullRefreshState == RAISE_TO_REFRESH) {
-                        // 上拉加载界限内
-                        mPullRefreshState = DONE;
-                        changeFooterViewByState();
-                    }
-                }
+                // 手势抬起，先应用尚未更新的移动，再执行对应的操作
+                flushPullResult();
+                mDragVelocity.addSample(ev.getY(), ev.getEventTime());
+                mReleaseVelocity = mDragVelocity.getVelocity();
+                boolean dragging = mMetricsListener != null && isDragging();
+                applyPullResult(mPull.onUp((int) ev.getY(), isInitRefresh,
+                        isInitLoadMore && isFootBarWork && mController.canLoadMore()));
+                mReleaseVelocity = 0;
                 isFootBarWork = false;
-                isRecord = false;
-                isBack = false;
+                stopFrameMonitorUnlessSettling();
+                if (dragging) {
+                    mMetricsListener.onPullReleased(SystemClock.uptimeMillis() - mTouchDownTime);
+                }
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                flushPullResult();
+                stopFrameMonitorUnlessSettling();
                 break;
 
             default:
@@ -529,55 +1932,132 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
         /* 获取子控件 */
         mRefreshView = View.inflate(mContext,
                 R.layout.refresh_listview_header_view, null);
-        mRefreshTextView = (TextView) mRefreshView
-                .findViewById(R.id.head_action_tip);
-        mRefreshTimeView = (TextView) mRefreshView
-                .findViewById(R.id.head_last_updated);
-        mArrowImageView = (ImageView) mRefreshView
-                .findViewById(R.id.head_arrowImageView);
-        mRefreshProgressBar = (ProgressBar) mRefreshView
-                .findViewById(R.id.head_progressBar);
-        measureView(mRefreshView);
-
-		/* 获取提示控件高度 */
-        mHeaderHeight = mRefreshView.getMeasuredHeight();
+
+        /* 指示器尚未创建，顶部信息栏没有内容，使用默认的高度 */
+        mHeaderHeight = getResources().getDimensionPixelSize(R.dimen.refresh_listview_header_height);
+        mPull.setHeaderHeight(mHeaderHeight);
         mRefreshView.setPadding(0, -1 * mHeaderHeight, 0, 0);
+        if (mOffsetDragEnabled) {
+            ((ViewGroup) mRefreshView).setClipChildren(false);
+        }
         mRefreshView.invalidate();
         addHeaderView(mRefreshView, null, false);
         setOnScrollListener(this);
+    }
+
+    /**
+     * 设置下拉刷新的指示器，替换默认的{@link RefreshIndicatorView}
+     *
+     * @param indicator 指示器，其控件的高度即为顶部信息栏的高度
+     */
+    public void setRefreshIndicator(RefreshIndicator indicator) {
+        if (indicator == null) {
+            throw new IllegalArgumentException("indicator不可为null");
+        }
+        if (!isInitRefresh) {
+            return;
+        }
+        ViewGroup header = (ViewGroup) mRefreshView;
+        if (mIndicator != null) {
+            header.removeView(mIndicator.getView());
+        }
+        mIndicator = indicator;
+        attachIndicator();
+        // 顶部信息栏隐藏时带有负的内边距，只测量指示器本身
+        View view = indicator.getView();
+        measureView(view);
+        mHeaderHeight = view.getMeasuredHeight();
+        mPull.setHeaderHeight(mHeaderHeight);
+        changeHeaderViewByState();
+    }
+
+    /**
+     * 创建默认的指示器. 附加到窗口后在主线程空闲时创建，此前按下或触发刷新时立即创建，
+     * 不会在拖动过程中创建
+     */
+    private void ensureIndicator() {
+        if (mIndicator != null || !isInitRefresh) {
+            return;
+        }
+        RefreshIndicatorView indicator = new RefreshIndicatorView(mContext);
+        indicator.setArrowAnimationEnabled(mArrowAnimationEnabled);
+        mIndicator = indicator;
+        attachIndicator();
+    }
+
+    /**
+     * 将指示器的控件添加到顶部信息栏中，并同步当前的状态
+     */
+    private void attachIndicator() {
+        View view = mIndicator.getView();
+        view.setVisibility(mHeaderAnimationPaused ? INVISIBLE : VISIBLE);
+        ((ViewGroup) mRefreshView).addView(view,
+                new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                        ViewGroup.LayoutParams.MATCH_PARENT));
+        updateIndicatorTime();
+    }
+
+    private void updateIndicatorTime() {
+        if (mIndicator != null) {
+            mIndicator.setLastUpdateTime(mUpdateTimeEnabled ? mRefreshTimeText : null);
+        }
+    }
+
+    /**
+     * 初始化底部信息
+     */
+    private void initFooter() {
+        /* 获取底部“加载更多”控件 */
+        isInitLoadMore = true;
+        mLoadMoreView = View.inflate(mContext,
+                R.layout.refresh_listview_footer_view, null);
+        mLoadMoreTextView = (TextView) mLoadMoreView.findViewById(R.id.footerMsg);
+        mLoadMoreText = mLoadMoreTextView.getText();
+        measureView(mLoadMoreView);
+        mFooterHeight = mLoadMoreView.getMeasuredHeight();
+        mPull.setFooterHeight(mFooterHeight);
+        mLoadMoreView.invalidate();
+        addFooterView(mLoadMoreView);
+        mLoadMoreView.setOnClickListener(mFootLoadMoreListener);
+    }
 
-		/* 下拉箭头的旋转动画 */
-        animation = new RotateAnimation(0, -180,
-                RotateAnimation.RELATIVE_TO_SELF, 0.5f,
-                RotateAnimation.RELATIVE_TO_SELF, 0.5f);
-        animation.setInterpolator(new LinearInterpolator());
-        animation.setDuration(250);
-        animation.setFillAfter(true);
-        reverseAnimation = new RotateAnimation(-180, 0,
-                RotateAnimation.RELATIVE_TO_SELF, 0.5f,
-                RotateAnimation.RELATIVE_TO_SELF, 0.5f);
-        reverseAnimation.setInterpolator(new LinearInterpolator());
-        reverseAnimation.setDuration(200);
-        reverseAnimation.setFillAfter(true);
-        mPullRefreshState = DONE;
+    /**
+     * 设置底部进度是否可见，首次可见时才加载
+     *
+     * @param visible 是否可见
+     */
+    private void setLoadMoreProgressVisible(boolean visible) {
+        if (mLoadMoreProgressView == null) {
+            if (!visible) {
+                return;
+            }
+            mLoadMoreProgressView = ((ViewStub) mLoadMoreView
+                    .findViewById(R.id.footerProgressStub)).inflate();
+        }
+        if (!visible) {
+            mLoadMoreProgressView.setVisibility(GONE);
+        } else {
+            mLoadMoreProgressView.setVisibility(mFooterAnimationPaused ? INVISIBLE : VISIBLE);
+        }
     }
 
     /**
-     * 初始化底部信息
+     * 设置没有更多数据的提示是否可见，首次可见时才加载
+     *
+     * @param visible 是否可见
      */
-    private void initFooter() {
-        /* 获取底部“加载更多”控件 */
-        isInitLoadMore = true;
-        mLoadMoreView = View.inflate(mContext,
-                R.layout.refresh_listview_footer_view, null);
-        mLoadMoreTextView = (TextView) mLoadMoreView.findViewById(R.id.footerMsg);
-        mNoDataTextView = (TextView) mLoadMoreView.findViewById(R.id.no_data_msg);
-        mLoadMoreProgressView = mLoadMoreView.findViewById(R.id.footerProgress);
-        measureView(mLoadMoreView);
-        mFooterHeight = mLoadMoreView.getMeasuredHeight();
-        mLoadMoreView.invalidate();
-        addFooterView(mLoadMoreView);
-        mLoadMoreView.setOnClickListener(mFootLoadMoreListener);
+    private void setNoDataVisible(boolean visible) {
+        if (mNoDataTextView == null) {
+            if (!visible) {
+                return;
+            }
+            mNoDataTextView = (TextView) ((ViewStub) mLoadMoreView
+                    .findViewById(R.id.no_data_msg_stub)).inflate();
+            if (mNoDataMsg != null) {
+                mNoDataTextView.setText(mNoDataMsg);
+            }
+        }
+        mNoDataTextView.setVisibility(visible ? VISIBLE : GONE);
     }
 
     /**
@@ -606,35 +2086,57 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
     }
 
     /**
-     * 上拉加载
+     * 根据手势状态机的结果更新界面
      *
-     * @param tempY 触摸时的Y坐标
+     * @param result 手势状态机返回的结果标志
      */
-    private void pullToLoadMore(int tempY) {
-        if (mPullRefreshState != REFRESHING && isRecord) {
-            if (mPullRefreshState == DONE) {
-                // 开始拖动
-                mPullRefreshState = RAISE_TO_REFRESH;
-                changeFooterViewByState();
+    private void applyPullResult(int result) {
+        if (result == 0) {
+            return;
+        }
+        if ((result & PullStateMachine.HEADER_STATE_CHANGED) != 0) {
+            changeHeaderViewByState();
+        }
+        if ((result & PullStateMachine.FOOTER_STATE_CHANGED) != 0) {
+            changeFooterViewByState();
+        }
+        if (!mOffsetDragEnabled) {
+            if ((result & PullStateMachine.SELECT_TOP) != 0) {
+                setSelection(0);
             }
-            if (mPullRefreshState == RAISE_TO_REFRESH
-                    || mPullRefreshState == RAISE_TO_REFRESH) {
-                // 拖动过程中
+            if ((result & PullStateMachine.SELECT_BOTTOM) != 0) {
                 setSelection(totalSize - 1);
-                if (-1 * ((tempY - startY) / RATIO) >= mFooterHeight
-                        * raiseBoundary) {
-                    mPullRefreshState = RELEASE_RAISE_TO_REFRESH;
-                } else {
-                    mPullRefreshState = RAISE_TO_REFRESH;
-                    changeFooterViewByState();
-                }
             }
-			/* 设置Padding值来展示上拉动作 */
-            if (firstItemIndex == 0) {
-                super.setPadding(0, mPaddingTop + (tempY - startY) / RATIO, 0, mPaddingBottom +
-                        -1 * (tempY - startY) / RATIO);
+        }
+        if ((result & PullStateMachine.HEADER_MOVED) != 0) {
+            /* 展示下拉动作 */
+            int offset = mPull.getHeaderOffset();
+            if (mIndicator != null && mHeaderHeight > 0) {
+                mIndicator.onPull(offset / (float) mHeaderHeight);
+            }
+            if (mOffsetDragEnabled) {
+                setDragOffset(offset);
+            } else {
+                mRefreshView.setPadding(0, offset - mHeaderHeight, 0, 0);
+            }
+        }
+        if ((result & PullStateMachine.FOOTER_MOVED) != 0) {
+            /* 展示上拉动作 */
+            int offset = mPull.getFooterOffset();
+            if (mOffsetDragEnabled) {
+                setDragOffset(-offset);
+            } else {
+                if (firstItemIndex == 0) {
+                    super.setPadding(0, mPaddingTop - offset, 0, mPaddingBottom + offset);
+                }
+                mLoadMoreView.setPadding(0, 0, 0, offset);
             }
-            mLoadMoreView.setPadding(0, 0, 0, -1 * (tempY - startY) / RATIO);
+        }
+        if ((result & PullStateMachine.START_REFRESH) != 0) {
+            startRefresh();
+        }
+        if ((result & PullStateMachine.START_LOAD_MORE) != 0) {
+            startLoadMore();
         }
     }
 
@@ -642,175 +2144,285 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
      * 根据状态更改底部的提示信息
      */
     private void changeFooterViewByState() {
-        if (!mCanLoadMore) {
+        if (!mController.canLoadMore() || !isInitLoadMore) {
             return;
         }
-        switch (mPullRefreshState) {
+        switch (mPull.getLoadMoreState()) {
             case RAISE_TO_REFRESH:
                 // 未达临界
                 mLoadMoreTextView.setVisibility(VISIBLE);
-                mLoadMoreProgressView.setVisibility(GONE);
+                setLoadMoreProgressVisible(false);
                 break;
             case DONE:
                 // 正常状态
-                super.setPadding(0, mPaddingTop, 0, mPaddingBottom);
-                mLoadMoreView.setPadding(0, 0, 0, 0);
+                resetFooterPaddingAndSettle();
+                setLoadMoreText(mLoadMoreText);
+                mLoadMoreTextView.setVisibility(VISIBLE);
+                setLoadMoreProgressVisible(false);
+                break;
+            case LOAD_FAILED:
+                // 加载失败，点击重试
+                resetFooterPaddingAndSettle();
+                setLoadMoreText(getResources().getText(R.string.load_more_failed));
                 mLoadMoreTextView.setVisibility(VISIBLE);
-                mLoadMoreProgressView.setVisibility(GONE);
+                setLoadMoreProgressVisible(false);
                 break;
             case RELEASE_RAISE_TO_REFRESH:
                 // 超过临界值
                 mLoadMoreTextView.setVisibility(VISIBLE);
-                mLoadMoreProgressView.setVisibility(GONE);
+                setLoadMoreProgressVisible(false);
                 break;
             case REFRESHING:
                 // 正在刷新中
-                super.setPadding(0, mPaddingTop, 0, mPaddingBottom);
-                mLoadMoreView.setPadding(0, 0, 0, 0);
+                resetFooterPaddingAndSettle();
                 mLoadMoreTextView.setVisibility(GONE);
-                mLoadMoreProgressView.setVisibility(VISIBLE);
+                setLoadMoreProgressVisible(true);
                 break;
             default:
                 break;
         }
-    }
-
-    /**
-     * 下拉刷新
-     *
-     * @param tempY 触摸时的Y坐标
-     */
-    private void pullToRefresh(int tempY) {
-        // 控件无刷新，后台无更新数据，并且触发了开始记录触摸事件位置
-        if (mPullRefreshState != REFRESHING && isRecord) {
-            if (mPullRefreshState == RELEASE_TO_REFRESH) {
-                // 处于下拉越界状态
-                setSelection(0);
-                if (((tempY - startY) / RATIO < mHeaderHeight)
-                        && (tempY - startY) > 0) {
-                    mPullRefreshState = PULL_TO_REFRESH;
-                    changeHeaderViewByState();
-                } else if (tempY - startY <= 0) {
-                    mPullRefreshState = DONE;
-                    changeHeaderViewByState();
-                }
-            }
-
-            if (mPullRefreshState == PULL_TO_REFRESH) {
-                // 正常下拉状态
-                setSelection(0);
-                if ((tempY - startY) / RATIO >= mHeaderHeight) {
-                    mPullRefreshState = RELEASE_TO_REFRESH;
-                    isBack = true;
-                    changeHeaderViewByState();
-                } else if (tempY - startY <= 0) {
-                    mPullRefreshState = DONE;
-                    changeHeaderViewByState();
-                }
-            }
-            // 正常状态
-            if (mPullRefreshState == DONE) {
-                if (tempY - startY > 0) {
-                    mPullRefreshState = PULL_TO_REFRESH;
-                    changeHeaderViewByState();
-                }
-            }
-
-			/* 设置Padding值来展示下拉动作 */
-            if (mPullRefreshState == PULL_TO_REFRESH) {
-                mRefreshView.setPadding(0, -1 * mHeaderHeight + (tempY - startY)
-                        / RATIO, 0, 0);
-            }
-            if (mPullRefreshState == RELEASE_TO_REFRESH) {
-                mRefreshView.setPadding(0, (tempY - startY) / RATIO
-                        - mHeaderHeight, 0, 0);
-            }
-
-        }
+        updateIndicatorAnimations();
     }
 
     /**
      * 根据状态改变顶端的提示信息
      */
     private void changeHeaderViewByState() {
-        mArrowImageView.clearAnimation();
-        switch (mPullRefreshState) {
-            // 下拉越界
-            case RELEASE_TO_REFRESH:
-                mArrowImageView.setVisibility(View.VISIBLE);
-                mRefreshProgressBar.setVisibility(View.GONE);
-                mRefreshTextView.setVisibility(View.VISIBLE);
-                if (mArrowAnimationEnabled) {
-                    mArrowImageView.startAnimation(animation);
-                }
-                mRefreshTextView.setText(R.string.release_to_refresh);
-                break;
-
+        if (!isInitRefresh) {
+            return;
+        }
+        if (mPull.getRefreshState() == DONE && mIndicator == null) {
+            // 指示器尚未创建，只需保持隐藏
+            setHeaderPaddingAndSettle(-1 * mHeaderHeight);
+            return;
+        }
+        ensureIndicator();
+        mIndicator.onStateChanged(mPull.getRefreshState());
+        switch (mPull.getRefreshState()) {
             // 下拉但未越界
             case PULL_TO_REFRESH:
-                mRefreshProgressBar.setVisibility(View.GONE);
-                mRefreshTextView.setVisibility(View.VISIBLE);
-                mArrowImageView.setVisibility(View.VISIBLE);
-                if (isBack) {
-                    isBack = false;
-                    if (mArrowAnimationEnabled) {
-                        mArrowImageView.startAnimation(reverseAnimation);
-                    }
-                }
-                mRefreshTextView.setText(R.string.pull_to_refresh);
+                mPull.setBack(false);
                 break;
 
             // 到达可刷新临界并松手
             case REFRESHING:
-                mRefreshView.setPadding(0, 0, 0, 0);
-                mRefreshProgressBar.setVisibility(View.VISIBLE);
-                mArrowImageView.setVisibility(View.GONE);
-                mRefreshTextView.setText(R.string.loading_very_hard);
+                setHeaderPaddingAndSettle(0);
                 break;
 
             // 加载完成或无动作
             case DONE:
-                mRefreshProgressBar.setVisibility(View.GONE);
-                mArrowImageView.setImageResource(R.drawable.listview_loading);
-                mRefreshTextView.setText(R.string.loading_finished);
-                mRefreshView.setPadding(0, -1 * mHeaderHeight, 0, 0);
+                setHeaderPaddingAndSettle(-1 * mHeaderHeight);
                 break;
             default:
                 break;
         }
+        updateIndicatorAnimations();
     }
 
     /**
-     * 下拉刷新完毕
+     * 下拉刷新完毕，结束当前正在进行的刷新. 可在任意线程调用，非主线程时在主线程中结束
      */
     public void onRefreshComplete() {
-        if (isInitRefresh) {
-            mPullRefreshState = DONE;
-            changeHeaderViewByState();
+        if (!AsyncLoadDispatcher.isMainThread()) {
+            AsyncLoadDispatcher.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    onRefreshComplete();
+                }
+            });
+            return;
+        }
+        mController.completeRefresh();
+    }
+
+    /**
+     * 结束指定凭证对应的下拉刷新，凭证已过期时不做处理.
+     * 可在任意线程调用，非主线程时在主线程中结束
+     *
+     * @param ticket 开始刷新时得到的凭证，见{@link #getRefreshTicket()}
+     * @return 是否结束了正在进行的刷新，非主线程调用时为调用时凭证是否有效
+     */
+    public boolean onRefreshComplete(final int ticket) {
+        if (ticket == NO_TICKET || ticket != mController.getRefreshTicket()) {
+            return false;
+        }
+        if (!AsyncLoadDispatcher.isMainThread()) {
+            AsyncLoadDispatcher.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    onRefreshComplete(ticket);
+                }
+            });
+            return true;
         }
+        return mController.completeRefresh(ticket);
+    }
+
+    /**
+     * @return 手势状态机，供测试使用
+     */
+    PullStateMachine getPullStateMachine() {
+        return mPull;
+    }
+
+    /**
+     * 获取正在进行的下拉刷新的凭证，可在{@link OnRefreshLoadListener#onRefresh(ListView)}中调用
+     *
+     * @return 刷新的凭证，没有正在进行的刷新时返回{@link #NO_TICKET}
+     */
+    public int getRefreshTicket() {
+        return mController.getRefreshTicket();
+    }
+
+    /**
+     * 获取正在进行的上拉加载的凭证，可在{@link OnRefreshLoadListener#onLoadMore(ListView)}中调用
+     *
+     * @return 加载的凭证，没有正在进行的加载时返回{@link #NO_TICKET}
+     */
+    public int getLoadMoreTicket() {
+        return mController.getLoadMoreTicket();
+    }
+
+    /**
+     * 获取正在进行的下拉刷新的取消标记，可在{@link OnRefreshLoadListener#onRefresh(ListView)}中调用.
+     * 刷新超时、控件被移除、适配器被替换时会被取消
+     *
+     * @return 取消标记，没有正在进行的刷新时返回null
+     */
+    public LoadToken getRefreshToken() {
+        return mController.getRefreshToken();
+    }
+
+    /**
+     * 获取正在进行的上拉加载的取消标记，可在{@link OnRefreshLoadListener#onLoadMore(ListView)}中调用.
+     * 加载超时、控件被移除、适配器被替换或被下拉刷新取代时会被取消
+     *
+     * @return 取消标记，没有正在进行的加载时返回null
+     */
+    public LoadToken getLoadMoreToken() {
+        return mController.getLoadMoreToken();
     }
 
     public void setRefreshTime(String time) {
-        mRefreshTimeView.setText(getResources().getString(R.string.update_time, time));
+        if (!isInitRefresh) {
+            return;
+        }
+        mRefreshTimeText = getResources().getString(R.string.update_time, time);
+        updateIndicatorTime();
+    }
+
+    /**
+     * 设置更新时间
+     *
+     * @param timeMillis 更新时间，单位：毫秒
+     */
+    public void setRefreshTime(long timeMillis) {
+        setRefreshTime(DateUtils.formatDateTime(mContext, timeMillis,
+                DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_TIME));
     }
 
     /**
      * 触发刷新
      */
     public void triggerRefresh() {
-        mPullRefreshState = REFRESHING;
-        changeHeaderViewByState();
-        onPullToRefresh();
+        startRefresh();
+    }
+
+    /**
+     * 触发刷新，并返回本次刷新的凭证，用于结束时调用{@link #onRefreshComplete(int)}
+     *
+     * @return 本次刷新的凭证，正在刷新时返回当前的凭证，未能开始时返回{@link #NO_TICKET}
+     */
+    public int triggerRefreshForTicket() {
+        return startRefresh();
     }
 
     /**
-     * 上拉加载完毕
+     * 上拉加载完毕，结束当前正在进行的加载. 可在任意线程调用，非主线程时在主线程中结束
      */
     public void onLoadMoreComplete() {
-        if (isInitLoadMore) {
-            mLoadMoreView.setClickable(true);
-            mPullRefreshState = DONE;
-            changeFooterViewByState();
+        if (!AsyncLoadDispatcher.isMainThread()) {
+            AsyncLoadDispatcher.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    onLoadMoreComplete();
+                }
+            });
+            return;
+        }
+        mController.completeLoadMore(SystemClock.uptimeMillis());
+    }
+
+    /**
+     * 结束指定凭证对应的上拉加载，凭证已过期时不做处理.
+     * 可在任意线程调用，非主线程时在主线程中结束
+     *
+     * @param ticket 开始加载时得到的凭证，见{@link #getLoadMoreTicket()}
+     * @return 是否结束了正在进行的加载，非主线程调用时为调用时凭证是否有效
+     */
+    public boolean onLoadMoreComplete(final int ticket) {
+        if (ticket == NO_TICKET || ticket != mController.getLoadMoreTicket()) {
+            return false;
+        }
+        if (!AsyncLoadDispatcher.isMainThread()) {
+            AsyncLoadDispatcher.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    onLoadMoreComplete(ticket);
+                }
+            });
+            return true;
+        }
+        return mController.completeLoadMore(ticket, SystemClock.uptimeMillis());
+    }
+
+    /**
+     * 上拉加载失败，底部信息栏显示失败提示，可点击重试. 开启自动加载时按退避间隔自动重试.
+     * 可在任意线程调用
+     */
+    public void onLoadMoreFailed() {
+        if (!AsyncLoadDispatcher.isMainThread()) {
+            AsyncLoadDispatcher.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    onLoadMoreFailed();
+                }
+            });
+            return;
+        }
+        mController.failLoadMore();
+    }
+
+    /**
+     * 指定凭证对应的上拉加载失败，凭证已过期时不做处理. 可在任意线程调用
+     *
+     * @param ticket 开始加载时得到的凭证，见{@link #getLoadMoreTicket()}
+     * @return 是否结束了正在进行的加载，非主线程调用时为调用时凭证是否有效
+     */
+    public boolean onLoadMoreFailed(final int ticket) {
+        if (ticket == NO_TICKET || ticket != mController.getLoadMoreTicket()) {
+            return false;
+        }
+        if (!AsyncLoadDispatcher.isMainThread()) {
+            AsyncLoadDispatcher.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    onLoadMoreFailed(ticket);
+                }
+            });
+            return true;
+        }
+        return mController.failLoadMore(ticket);
+    }
+
+    /**
+     * 设置底部提示信息，文字未变化时不重新设置，避免重新布局
+     *
+     * @param text 提示信息
+     */
+    private void setLoadMoreText(CharSequence text) {
+        if (text != null && !text.equals(mLoadMoreTextView.getText())) {
+            mLoadMoreTextView.setText(text);
         }
     }
 
@@ -821,16 +2433,32 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
         if (mOnRefreshLoadListener != null) {
             mOnRefreshLoadListener.onRefresh(this);
         }
+        if (mRefreshLoadListener != null) {
+            mRefreshLoadListener.onRefresh(this);
+        }
+        LoadToken token = mController.getRefreshToken();
+        if (mAsyncDispatcher != null && token != null) {
+            mAsyncDispatcher.dispatch(true, token);
+        }
     }
 
     /**
      * 上拉加载中
      */
     private void onPullToLoadMore() {
-        mLoadMoreView.setClickable(false);
+        if (isInitLoadMore) {
+            mLoadMoreView.setClickable(false);
+        }
         if (mOnRefreshLoadListener != null) {
             mOnRefreshLoadListener.onLoadMore(this);
         }
+        if (mRefreshLoadListener != null) {
+            mRefreshLoadListener.onLoadMore(this);
+        }
+        LoadToken token = mController.getLoadMoreToken();
+        if (mAsyncDispatcher != null && token != null) {
+            mAsyncDispatcher.dispatch(false, token);
+        }
     }
 
     /**
@@ -850,6 +2478,219 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
         void onLoadMore(ListView v);
     }
 
+    /**
+     * 异步加载的回调接口，加载方法在后台线程调用，应用结果的方法在主线程调用
+     *
+     * @param <R> 加载结果的类型，如一页数据
+     */
+    public interface OnAsyncLoadListener<R> {
+        /**
+         * 加载下拉刷新的数据，在后台线程调用
+         *
+         * @param token 取消标记，被取消后返回的结果会被丢弃
+         * @return 加载结果
+         * @throws Exception 加载失败
+         */
+        R onLoadRefresh(LoadToken token) throws Exception;
+
+        /**
+         * 加载下一页数据，在后台线程调用
+         *
+         * @param token 取消标记，被取消后返回的结果会被丢弃
+         * @return 加载结果
+         * @throws Exception 加载失败，底部信息栏进入失败状态
+         */
+        R onLoadMore(LoadToken token) throws Exception;
+
+        /**
+         * 将下拉刷新的结果应用到适配器，在主线程调用，之后刷新自动结束
+         *
+         * @param result 加载结果
+         */
+        void onRefreshResult(R result);
+
+        /**
+         * 将上拉加载的结果应用到适配器，在主线程调用，之后加载自动结束
+         *
+         * @param result 加载结果
+         */
+        void onLoadMoreResult(R result);
+
+        /**
+         * 加载失败，在主线程调用
+         *
+         * @param refresh 是否为下拉刷新
+         * @param e       加载时抛出的异常
+         */
+        void onLoadError(boolean refresh, Exception e);
+    }
+
+    /**
+     * 保存及恢复控件状态的回调接口. 状态会随Activity一起保存，应只放入游标等少量数据
+     */
+    public interface OnSaveStateListener {
+        /**
+         * 保存状态
+         *
+         * @param state 附带在控件状态中的数据
+         */
+        void onSaveState(Bundle state);
+
+        /**
+         * 恢复状态，在控件恢复标志及待定位的条目之后调用
+         *
+         * @param state 保存时附带的数据
+         */
+        void onRestoreState(Bundle state);
+    }
+
+    /**
+     * 控件保存的状态，只包含标志、第一个可见条目及附带的少量数据，与加载的条目数无关
+     */
+    static class SavedState extends BaseSavedState {
+
+        static final int FLAG_CAN_LOAD_MORE = 1;
+
+        static final int FLAG_NO_MORE_DATA = 1 << 1;
+
+        static final int FLAG_REFRESHING = 1 << 2;
+
+        static final int FLAG_LOAD_FAILED = 1 << 3;
+
+        int flags;
+
+        long anchorId = INVALID_ROW_ID;
+
+        int anchorPosition = -1;
+
+        int anchorTop;
+
+        Bundle extras;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            flags = in.readInt();
+            anchorId = in.readLong();
+            anchorPosition = in.readInt();
+            anchorTop = in.readInt();
+            extras = in.readBundle(RefreshListView.class.getClassLoader());
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(this.flags);
+            out.writeLong(anchorId);
+            out.writeInt(anchorPosition);
+            out.writeInt(anchorTop);
+            out.writeBundle(extras);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    /**
+     * 可见区域上方新条目数变化的回调接口
+     */
+    public interface OnNewItemsListener {
+        /**
+         * 可见区域上方尚未被看到的新条目数发生变化
+         *
+         * @param count 新条目数，为0时应隐藏提示
+         */
+        void onNewItemsAbove(int count);
+    }
+
+    /**
+     * 上拉加载失败后自动重试的回调接口
+     */
+    public interface OnLoadMoreRetryListener {
+        /**
+         * 已安排自动重试
+         *
+         * @param attempt 本次是第几次重试
+         * @param delay   距离重试的间隔，单位：毫秒
+         */
+        void onRetryScheduled(int attempt, long delay);
+
+        /**
+         * 自动重试次数已用完，之后只能点击底部信息栏重试
+         *
+         * @param attempts 已进行的重试次数
+         */
+        void onRetriesExhausted(int attempts);
+    }
+
+    /**
+     * 预取的回调接口，范围均为适配器中左闭右开的条目序号，不包括顶部及底部信息栏
+     */
+    public interface OnPrefetchListener {
+        /**
+         * 该范围内的条目即将可见，可提前解码图片、预热缓存等
+         *
+         * @param start 起始序号，包含
+         * @param end   结束序号，不包含
+         */
+        void onPrefetch(int start, int end);
+
+        /**
+         * 已通知的范围不再需要，可取消对应的预取任务
+         *
+         * @param start 起始序号，包含
+         * @param end   结束序号，不包含
+         */
+        void onCancelPrefetch(int start, int end);
+    }
+
+    /**
+     * 性能统计的回调接口，所有时长的单位均为毫秒
+     */
+    public interface OnMetricsListener {
+        /**
+         * 下拉或上拉拖动后松手
+         *
+         * @param pullDuration 从手指按下到松手的时长
+         */
+        void onPullReleased(long pullDuration);
+
+        /**
+         * 下拉刷新完成
+         *
+         * @param latency 从开始刷新到刷新完成的时长
+         */
+        void onRefreshLatency(long latency);
+
+        /**
+         * 上拉加载完成
+         *
+         * @param latency              从开始加载到加载完成的时长
+         * @param spinnerVisibleLength 加载过程中底部加载进度可见的时长
+         */
+        void onLoadMoreLatency(long latency, long spinnerVisibleLength);
+
+        /**
+         * 一次拖动及松手后的回弹结束，仅在Android 4.1及以上回调
+         *
+         * @param frames        拖动及回弹过程中绘制的帧数
+         * @param droppedFrames 拖动及回弹过程中丢失的帧数
+         */
+        void onDragFrameStats(int frames, int droppedFrames);
+    }
+
     /**
      * 底部提示栏监听事件
      */
@@ -857,7 +2698,7 @@ public class RefreshListView extends ListView implements AbsListView.OnScrollLis
         @Override
         public void onClick(View v) {
             // 触发上拉加载
-            if (mCanLoadMore) {
+            if (mController.canLoadMore()) {
                 startLoadMore();
             }
         }
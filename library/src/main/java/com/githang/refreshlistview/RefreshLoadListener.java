@@ -0,0 +1,23 @@
+package com.githang.refreshlistview;
+
+/**
+ * 刷新及加载的回调，{@link RefreshListView}及{@link RefreshRecyclerView}共用，
+ * 通过{@link Refreshable}结束刷新或加载，实现不依赖具体的控件.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public interface RefreshLoadListener {
+    /**
+     * 下拉刷新
+     *
+     * @param v 触发刷新的控件
+     */
+    void onRefresh(Refreshable v);
+
+    /**
+     * 上拉加载
+     *
+     * @param v 触发加载的控件
+     */
+    void onLoadMore(Refreshable v);
+}
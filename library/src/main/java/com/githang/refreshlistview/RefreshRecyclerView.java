@@ -0,0 +1,1370 @@
+package com.githang.refreshlistview;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.format.DateUtils;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewStub;
+import android.view.ViewTreeObserver;
+import android.view.animation.DecelerateInterpolator;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.githang.refreshlistview.core.DragVelocity;
+import com.githang.refreshlistview.core.LoadToken;
+import com.githang.refreshlistview.core.PullStateMachine;
+import com.githang.refreshlistview.core.RefreshController;
+import com.githang.refreshlistview.core.RetryBackoff;
+
+/**
+ * 带有下拉刷新及上拉加载的RecyclerView，对外接口与{@link RefreshListView}保持一致.
+ *
+ * 默认使用纵向的{@link LinearLayoutManager}，顶部信息栏固定在适配器的第一个位置，底部信息栏固定在最后一个位置，
+ * 因此通过RecyclerView得到的条目序号均包含顶部信息栏. 只支持纵向的线性布局.
+ *
+ * 拖动时通过绘制偏移整体平移列表的内容，拖动过程中不会重新布局，手势结果每帧最多应用一次，
+ * 松手后以绘制偏移回弹，仅在切换状态时布局一次. 顶部信息栏需绘制在其布局范围之外，因此关闭了对子控件的裁剪.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public class RefreshRecyclerView extends RecyclerView implements Refreshable {
+
+    private static final int PULL_TO_REFRESH = PullStateMachine.PULL_TO_REFRESH;
+
+    private static final int REFRESHING = PullStateMachine.REFRESHING;
+
+    private static final int DONE = PullStateMachine.DONE;
+
+    private static final int RAISE_TO_REFRESH = PullStateMachine.RAISE_TO_REFRESH;
+
+    private static final int RELEASE_RAISE_TO_REFRESH = PullStateMachine.RELEASE_RAISE_TO_REFRESH;
+
+    private static final int LOAD_FAILED = PullStateMachine.LOAD_FAILED;
+
+    /**
+     * 无效的刷新或加载凭证
+     */
+    public static final int NO_TICKET = RefreshListView.NO_TICKET;
+
+    /**
+     * 加载策略，见{@link RefreshListView#LOAD_POLICY_PARALLEL}
+     */
+    public static final int LOAD_POLICY_PARALLEL = RefreshListView.LOAD_POLICY_PARALLEL;
+
+    /**
+     * 加载策略，见{@link RefreshListView#LOAD_POLICY_REFRESH_SUPERSEDES_LOAD_MORE}
+     */
+    public static final int LOAD_POLICY_REFRESH_SUPERSEDES_LOAD_MORE =
+            RefreshListView.LOAD_POLICY_REFRESH_SUPERSEDES_LOAD_MORE;
+
+    /**
+     * 加载策略，见{@link RefreshListView#LOAD_POLICY_EXCLUSIVE}
+     */
+    public static final int LOAD_POLICY_EXCLUSIVE = RefreshListView.LOAD_POLICY_EXCLUSIVE;
+
+    /**
+     * 下拉提示控件
+     */
+    private View mRefreshView;
+
+    /**
+     * 下拉刷新的指示器，首次需要展示时才创建
+     */
+    private RefreshIndicator mIndicator;
+
+    /**
+     * 指示器的动画是否因列表不在屏幕上而暂停
+     */
+    private boolean mIndicatorAnimationPaused;
+
+    /**
+     * 是否已附加到窗口
+     */
+    private boolean mAttachedToWindow;
+
+    /**
+     * 判断是否在屏幕上时使用，避免每次分配
+     */
+    private final Rect mVisibleRect = new Rect();
+
+    /**
+     * 祖先控件滑动时（如ViewPager切换页面）重新判断列表是否在屏幕上
+     */
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    updateIndicatorAnimations();
+                }
+            };
+
+    /**
+     * 主线程空闲时创建默认的指示器，避免在构造时或首次下拉时创建
+     */
+    private final MessageQueue.IdleHandler mIndicatorPreloader = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            if (mAttachedToWindow) {
+                ensureIndicator();
+            }
+            return false;
+        }
+    };
+
+    /**
+     * 是否显示上次更新时间
+     */
+    private boolean mUpdateTimeEnabled = true;
+
+    /**
+     * 上次更新时间的提示
+     */
+    private CharSequence mRefreshTimeText;
+
+    /**
+     * 下拉提示控件高度
+     */
+    private int mHeaderHeight;
+
+    /**
+     * 底部提示框
+     */
+    private View mLoadMoreView;
+
+    /**
+     * 上拉提示控件高度
+     */
+    private int mFooterHeight;
+
+    /**
+     * 底部提示信息
+     */
+    private TextView mLoadMoreTextView;
+
+    /**
+     * 底部原本的提示信息，加载失败后恢复时使用
+     */
+    private CharSequence mLoadMoreText;
+
+    /**
+     * 底部进度条
+     */
+    private View mLoadMoreProgressView;
+
+    /**
+     * 没有更多数据的提示信息
+     */
+    private TextView mNoDataTextView;
+
+    /**
+     * 没有更多数据的提示信息，提示控件加载前设置时暂存
+     */
+    private CharSequence mNoDataMsg;
+
+    /**
+     * 是否初始化下拉刷新
+     */
+    private boolean isInitRefresh;
+
+    /**
+     * 是否初始化上拉加载
+     */
+    private boolean isInitLoadMore;
+
+    /**
+     * 箭头动画是否旋转
+     */
+    private boolean mArrowAnimationEnabled = true;
+
+    /**
+     * 底部信息栏是否可见
+     */
+    private boolean isFootBarWork;
+
+    private int mScrollState = SCROLL_STATE_IDLE;
+
+    /**
+     * 拖动时内容的绘制偏移，下拉时为正，上拉时为负
+     */
+    private int mDragOffset;
+
+    /**
+     * 拖动速度的估算，用于计算回弹动画的时长
+     */
+    private final DragVelocity mDragVelocity = new DragVelocity();
+
+    /**
+     * 松手时的拖动速度，单位：像素/秒
+     */
+    private float mReleaseVelocity;
+
+    /**
+     * 顶部及底部信息栏的回弹动画，只改变绘制偏移，不会重新布局
+     */
+    private ValueAnimator mSettleAnimator;
+
+    /**
+     * 回弹开始时的绘制偏移
+     */
+    private int mSettleStartOffset;
+
+    /**
+     * 尚未应用到界面的手势结果标志
+     */
+    private int mPendingPullResult;
+
+    /**
+     * 是否已安排在下一帧应用手势结果
+     */
+    private boolean mPullUpdatePending;
+
+    /**
+     * 每帧最多应用一次手势结果，同一帧内的多次移动只更新一次界面
+     */
+    private final Runnable mPullUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mPullUpdatePending = false;
+            int result = mPendingPullResult;
+            mPendingPullResult = 0;
+            applyPullResult(result);
+        }
+    };
+
+    /**
+     * 下拉及上拉的回调
+     */
+    private RefreshLoadListener mRefreshLoadListener;
+
+    /**
+     * 自动重试的回调监听
+     */
+    private RefreshListView.OnLoadMoreRetryListener mRetryListener;
+
+    /**
+     * 加载失败后的自动重试
+     */
+    private final Runnable mRetryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mController.retryLoadMore(SystemClock.uptimeMillis());
+        }
+    };
+
+    /**
+     * 流程变化时更新界面及通知监听
+     */
+    private final RefreshController.Callback mControllerCallback = new RefreshController.Callback() {
+        @Override
+        public void onHeaderStateChanged() {
+            changeHeaderViewByState();
+        }
+
+        @Override
+        public void onFooterStateChanged() {
+            changeFooterViewByState();
+        }
+
+        @Override
+        public void onRefreshStarted(int ticket, LoadToken token) {
+            if (mLoadTimeout > 0) {
+                postDelayed(mRefreshTimeoutRunnable, mLoadTimeout);
+            }
+            changeHeaderViewByState();
+            if (mRefreshLoadListener != null) {
+                mRefreshLoadListener.onRefresh(RefreshRecyclerView.this);
+            }
+        }
+
+        @Override
+        public void onRefreshFinished(boolean completed) {
+            removeCallbacks(mRefreshTimeoutRunnable);
+            if (completed) {
+                // 刷新完成时会清除上拉加载的失败状态，不再需要自动重试
+                removeCallbacks(mRetryRunnable);
+            }
+            changeHeaderViewByState();
+        }
+
+        @Override
+        public void onLoadMoreStarted(int ticket, LoadToken token) {
+            removeCallbacks(mRetryRunnable);
+            if (mLoadTimeout > 0) {
+                postDelayed(mLoadMoreTimeoutRunnable, mLoadTimeout);
+            }
+            changeFooterViewByState();
+            if (isInitLoadMore) {
+                mLoadMoreView.setClickable(false);
+            }
+            if (mRefreshLoadListener != null) {
+                mRefreshLoadListener.onLoadMore(RefreshRecyclerView.this);
+            }
+        }
+
+        @Override
+        public void onLoadMoreFinished(boolean completed) {
+            removeCallbacks(mLoadMoreTimeoutRunnable);
+            if (isInitLoadMore) {
+                mLoadMoreView.setClickable(true);
+                changeFooterViewByState();
+            }
+        }
+
+        @Override
+        public void onRetryScheduled(int attempt, long delay) {
+            postDelayed(mRetryRunnable, delay);
+            if (mRetryListener != null) {
+                mRetryListener.onRetryScheduled(attempt, delay);
+            }
+        }
+
+        @Override
+        public void onRetriesExhausted(int attempts) {
+            if (mRetryListener != null) {
+                mRetryListener.onRetriesExhausted(attempts);
+            }
+        }
+    };
+
+    /**
+     * 刷新及加载的流程控制，与{@link RefreshListView}共用
+     */
+    private final RefreshController mController = new RefreshController(mControllerCallback);
+
+    /**
+     * 下拉刷新及上拉加载的手势状态机
+     */
+    private final PullStateMachine mPull = mController.getPullStateMachine();
+
+    /**
+     * 刷新及加载的超时时间，单位：毫秒，为0时不超时
+     */
+    private long mLoadTimeout;
+
+    /**
+     * 下拉刷新超时
+     */
+    private final Runnable mRefreshTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mController.cancelRefresh(LoadToken.REASON_TIMEOUT);
+        }
+    };
+
+    /**
+     * 上拉加载超时
+     */
+    private final Runnable mLoadMoreTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mController.cancelLoadMore(LoadToken.REASON_TIMEOUT);
+        }
+    };
+
+    /**
+     * 加上顶部及底部信息栏后的适配器
+     */
+    private RefreshAdapterWrapper mWrapper;
+
+    /**
+     * 适配器数据变化时是否自动结束刷新及加载
+     */
+    private boolean mCompleteOnDataChanged = true;
+
+    /**
+     * 是否已有等待处理的数据变化
+     */
+    private boolean mDataChangedPending;
+
+    /**
+     * 数据变化后的处理，同一帧内的多次变化只处理一次
+     */
+    private final Runnable mDataChangedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mDataChangedPending = false;
+            if (mCompleteOnDataChanged) {
+                onRefreshComplete();
+                onLoadMoreComplete();
+            }
+        }
+    };
+
+    /**
+     * 适配器的数据变化监听，更换适配器时会被注销
+     */
+    private final AdapterDataObserver mDataObserver = new AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            scheduleDataChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            scheduleDataChanged();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            scheduleDataChanged();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            scheduleDataChanged();
+        }
+    };
+
+    /**
+     * 滑动监听，判断底部信息栏是否可见及是否需要自动加载
+     */
+    private final OnScrollListener mScrollListener = new OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(int newState) {
+            mScrollState = newState;
+            updateFootBarWork();
+            mController.onScrollStateChanged(newState == SCROLL_STATE_IDLE, isFootBarWork,
+                    SystemClock.uptimeMillis());
+        }
+
+        @Override
+        public void onScrolled(int dx, int dy) {
+            handleScroll();
+        }
+    };
+
+    public RefreshRecyclerView(Context context) {
+        super(context);
+        isInitRefresh = true;
+        isInitLoadMore = true;
+        init();
+    }
+
+    public RefreshRecyclerView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        TypedArray array = context.obtainStyledAttributes(attrs,
+                R.styleable.RefreshListView);
+        isInitRefresh = array.getBoolean(
+                R.styleable.RefreshListView_init_header, true);
+        isInitLoadMore = array.getBoolean(
+                R.styleable.RefreshListView_init_footer, true);
+        array.recycle();
+        init();
+    }
+
+    private void init() {
+        setLayoutManager(new LinearLayoutManager(getContext()));
+        // 拖动及回弹时顶部信息栏绘制在其布局范围之外
+        setClipChildren(false);
+        setOnScrollListener(mScrollListener);
+        if (isInEditMode()) {
+            return;
+        }
+        if (isInitRefresh) {
+            initHeader();
+        }
+        if (isInitLoadMore) {
+            initFooter();
+        }
+    }
+
+    /**
+     * 设置刷新监听，与{@link RefreshListView#setRefreshLoadListener(RefreshLoadListener)}使用同一个监听类型
+     *
+     * @param listener 刷新监听器
+     */
+    public void setRefreshLoadListener(RefreshLoadListener listener) {
+        mRefreshLoadListener = listener;
+    }
+
+    /**
+     * 设置上拉时触动加载更多的边界 默认为2倍底部信息栏高度
+     *
+     * @param boundary 界限值与底部信息栏的比值
+     */
+    public void setLoadMoreBoundary(int boundary) {
+        if (boundary <= 1) {
+            throw new IllegalArgumentException("该比值不可小于1");
+        }
+        mPull.setRaiseBoundary(boundary);
+    }
+
+    /**
+     * 设置顶部信息栏不可见
+     */
+    public void removeRefreshView() {
+        if (isInitRefresh && mWrapper != null) {
+            mWrapper.setHeaderView(null);
+        }
+        isInitRefresh = false;
+    }
+
+    /**
+     * 设置底部信息栏不可见
+     */
+    public void removeLoadMoreView() {
+        if (isInitLoadMore && mWrapper != null) {
+            mWrapper.setFooterView(null);
+        }
+        isInitLoadMore = false;
+    }
+
+    /**
+     * 设置是否没有更多数据
+     *
+     * @param noMoreData 是否没有更多数据
+     */
+    public void setNoMoreData(boolean noMoreData) {
+        setCanLoadMore(!noMoreData);
+        if (!isInitLoadMore) {
+            return;
+        }
+        if (noMoreData && isContentOverflow()) {
+            setNoDataVisible(true);
+            mLoadMoreView.setOnClickListener(null);
+        } else {
+            setNoDataVisible(false);
+        }
+    }
+
+    /**
+     * 设置上拉加载是否可用
+     *
+     * @param canLoadMore 上拉加载是否可用
+     */
+    public void setCanLoadMore(boolean canLoadMore) {
+        mController.setCanLoadMore(canLoadMore);
+        if (!isInitLoadMore) {
+            return;
+        }
+        if (canLoadMore) {
+            changeFooterViewByState();
+            mLoadMoreView.setOnClickListener(mFootLoadMoreListener);
+        } else {
+            removeCallbacks(mRetryRunnable);
+            mLoadMoreTextView.setVisibility(GONE);
+            setLoadMoreProgressVisible(false);
+        }
+    }
+
+    /**
+     * 设置是否在滑动到底部附近时自动加载
+     *
+     * @param autoLoadEnabled 是否自动加载
+     */
+    public void setAutoLoadEnabled(boolean autoLoadEnabled) {
+        mController.setAutoLoadEnabled(autoLoadEnabled);
+    }
+
+    /**
+     * 设置下拉刷新与上拉加载之间的策略，见{@link RefreshListView#setLoadPolicy(int)}
+     *
+     * @param policy {@link #LOAD_POLICY_PARALLEL}、{@link #LOAD_POLICY_REFRESH_SUPERSEDES_LOAD_MORE}
+     *               或{@link #LOAD_POLICY_EXCLUSIVE}
+     */
+    public void setLoadPolicy(int policy) {
+        mController.setLoadPolicy(policy);
+    }
+
+    /**
+     * 设置刷新及加载的超时时间，超时后取消对应的{@link LoadToken}并恢复顶部或底部信息栏
+     *
+     * @param timeout 超时时间，单位：毫秒，为0时不超时
+     */
+    public void setLoadTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("超时时间不可小于0");
+        }
+        mLoadTimeout = timeout;
+    }
+
+    /**
+     * 设置上拉加载失败后自动重试的退避参数，见{@link RefreshListView#setRetryBackoff(long, long, int)}
+     *
+     * @param initialDelay 第一次重试的基础间隔，单位：毫秒
+     * @param maxDelay     最大的基础间隔，单位：毫秒
+     * @param maxRetries   最大的自动重试次数，为0时不自动重试
+     */
+    public void setRetryBackoff(long initialDelay, long maxDelay, int maxRetries) {
+        RetryBackoff backoff = mController.getRetryBackoff();
+        backoff.setDelays(initialDelay, maxDelay);
+        backoff.setMaxRetries(maxRetries);
+    }
+
+    /**
+     * 设置自动重试的回调监听
+     *
+     * @param listener 监听
+     */
+    public void setOnLoadMoreRetryListener(RefreshListView.OnLoadMoreRetryListener listener) {
+        mRetryListener = listener;
+    }
+
+    /**
+     * 设置自动加载的预加载距离，见{@link RefreshListView#setPrefetchDistance(int)}
+     *
+     * @param distance 剩余未展示的条目数不超过该值时开始加载
+     */
+    public void setPrefetchDistance(int distance) {
+        mController.getScrollTracker().setPrefetchDistance(distance);
+    }
+
+    /**
+     * 设置适配器数据变化时是否自动结束正在进行的刷新及加载
+     *
+     * @param enabled 是否自动结束
+     */
+    public void setCompleteOnDataChanged(boolean enabled) {
+        mCompleteOnDataChanged = enabled;
+    }
+
+    /**
+     * 设置是否启用下拉加载的提示图标的动画
+     *
+     * @param enabled 是否启用
+     */
+    public void setArrowAnimationEnabled(boolean enabled) {
+        mArrowAnimationEnabled = enabled;
+        if (mIndicator instanceof RefreshIndicatorView) {
+            ((RefreshIndicatorView) mIndicator).setArrowAnimationEnabled(enabled);
+        }
+    }
+
+    public void setUpdateTimeEnabled(boolean enabled) {
+        mUpdateTimeEnabled = enabled;
+        updateIndicatorTime();
+    }
+
+    public void setRefreshTime(String time) {
+        mRefreshTimeText = getResources().getString(R.string.update_time, time);
+        updateIndicatorTime();
+    }
+
+    /**
+     * 设置更新时间
+     *
+     * @param timeMillis 更新时间，单位：毫秒
+     */
+    public void setRefreshTime(long timeMillis) {
+        setRefreshTime(DateUtils.formatDateTime(getContext(), timeMillis,
+                DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_TIME));
+    }
+
+    /**
+     * 没有更多数据可被加载的提示信息
+     *
+     * @param noDataMsg 提示信息，如：没有更多数据了
+     */
+    public void setNoDataMsg(String noDataMsg) {
+        mNoDataMsg = noDataMsg;
+        if (mNoDataTextView != null) {
+            mNoDataTextView.setText(noDataMsg);
+        }
+    }
+
+    /**
+     * 设置下拉刷新的指示器，替换默认的{@link RefreshIndicatorView}
+     *
+     * @param indicator 指示器，其控件的高度即为顶部信息栏的高度
+     */
+    public void setRefreshIndicator(RefreshIndicator indicator) {
+        if (indicator == null) {
+            throw new IllegalArgumentException("indicator不可为null");
+        }
+        if (!isInitRefresh) {
+            return;
+        }
+        if (mIndicator != null) {
+            ((ViewGroup) mRefreshView).removeView(mIndicator.getView());
+        }
+        mIndicator = indicator;
+        attachIndicator();
+        // 顶部信息栏隐藏时带有负的内边距，只测量指示器本身
+        View view = indicator.getView();
+        measureView(view);
+        mHeaderHeight = view.getMeasuredHeight();
+        mPull.setHeaderHeight(mHeaderHeight);
+        changeHeaderViewByState();
+    }
+
+    /**
+     * 设置适配器，适配器会被加上顶部及底部信息栏后再交给RecyclerView
+     *
+     * @param adapter 适配器
+     */
+    @Override
+    public void setAdapter(Adapter adapter) {
+        if (mWrapper != null) {
+            RecyclerView.Adapter<?> old = mWrapper.getWrappedAdapter();
+            old.unregisterAdapterDataObserver(mDataObserver);
+            mWrapper.release();
+            mWrapper = null;
+            if (old != adapter) {
+                mController.cancelRefresh(LoadToken.REASON_ADAPTER_CHANGED);
+                mController.cancelLoadMore(LoadToken.REASON_ADAPTER_CHANGED);
+            }
+        }
+        if (adapter == null) {
+            super.setAdapter(null);
+            return;
+        }
+        adapter.registerAdapterDataObserver(mDataObserver);
+        mWrapper = new RefreshAdapterWrapper(adapter);
+        if (isInitRefresh && mRefreshView != null) {
+            mWrapper.setHeaderView(mRefreshView);
+        }
+        if (isInitLoadMore && mLoadMoreView != null) {
+            mWrapper.setFooterView(mLoadMoreView);
+        }
+        super.setAdapter(mWrapper);
+    }
+
+    /**
+     * 触发刷新
+     */
+    public void triggerRefresh() {
+        mController.startRefresh();
+    }
+
+    /**
+     * 触发刷新，并返回本次刷新的凭证，用于结束时调用{@link #onRefreshComplete(int)}
+     *
+     * @return 本次刷新的凭证，正在刷新时返回当前的凭证，未能开始时返回{@link #NO_TICKET}
+     */
+    public int triggerRefreshForTicket() {
+        return mController.startRefresh();
+    }
+
+    /**
+     * 下拉刷新完毕，结束当前正在进行的刷新
+     */
+    public void onRefreshComplete() {
+        mController.completeRefresh();
+    }
+
+    /**
+     * 结束指定凭证对应的下拉刷新，凭证已过期时不做处理
+     *
+     * @param ticket 开始刷新时得到的凭证，见{@link #getRefreshTicket()}
+     * @return 是否结束了正在进行的刷新
+     */
+    public boolean onRefreshComplete(int ticket) {
+        return mController.completeRefresh(ticket);
+    }
+
+    /**
+     * 上拉加载完毕，结束当前正在进行的加载
+     */
+    public void onLoadMoreComplete() {
+        mController.completeLoadMore(SystemClock.uptimeMillis());
+    }
+
+    /**
+     * 结束指定凭证对应的上拉加载，凭证已过期时不做处理
+     *
+     * @param ticket 开始加载时得到的凭证，见{@link #getLoadMoreTicket()}
+     * @return 是否结束了正在进行的加载
+     */
+    public boolean onLoadMoreComplete(int ticket) {
+        return mController.completeLoadMore(ticket, SystemClock.uptimeMillis());
+    }
+
+    /**
+     * 上拉加载失败，底部信息栏显示失败提示，可点击重试. 开启自动加载时按退避间隔自动重试
+     */
+    public void onLoadMoreFailed() {
+        mController.failLoadMore();
+    }
+
+    /**
+     * 指定凭证对应的上拉加载失败，凭证已过期时不做处理
+     *
+     * @param ticket 开始加载时得到的凭证，见{@link #getLoadMoreTicket()}
+     * @return 是否结束了正在进行的加载
+     */
+    public boolean onLoadMoreFailed(int ticket) {
+        return mController.failLoadMore(ticket);
+    }
+
+    /**
+     * @return 正在进行的下拉刷新的凭证，没有正在进行的刷新时返回{@link #NO_TICKET}
+     */
+    public int getRefreshTicket() {
+        return mController.getRefreshTicket();
+    }
+
+    /**
+     * @return 正在进行的上拉加载的凭证，没有正在进行的加载时返回{@link #NO_TICKET}
+     */
+    public int getLoadMoreTicket() {
+        return mController.getLoadMoreTicket();
+    }
+
+    /**
+     * @return 正在进行的下拉刷新的取消标记，没有正在进行的刷新时返回null
+     */
+    public LoadToken getRefreshToken() {
+        return mController.getRefreshToken();
+    }
+
+    /**
+     * @return 正在进行的上拉加载的取消标记，没有正在进行的加载时返回null
+     */
+    public LoadToken getLoadMoreToken() {
+        return mController.getLoadMoreToken();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttachedToWindow = true;
+        getViewTreeObserver().addOnScrollChangedListener(mScrollChangedListener);
+        if (isInitRefresh && mIndicator == null) {
+            Looper.myQueue().addIdleHandler(mIndicatorPreloader);
+        }
+        updateIndicatorAnimations();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mAttachedToWindow = false;
+        getViewTreeObserver().removeOnScrollChangedListener(mScrollChangedListener);
+        Looper.myQueue().removeIdleHandler(mIndicatorPreloader);
+        if (mDataChangedPending) {
+            // 已不会再有下一帧，直接处理未完成的数据变化
+            removeCallbacks(mDataChangedRunnable);
+            mDataChangedRunnable.run();
+        }
+        flushPullResult();
+        cancelSettle();
+        removeCallbacks(mRetryRunnable);
+        mController.cancelRefresh(LoadToken.REASON_DETACHED);
+        mController.cancelLoadMore(LoadToken.REASON_DETACHED);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateIndicatorAnimations();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // 构造过程中也可能回调，此时尚未附加到窗口
+        if (mAttachedToWindow) {
+            updateIndicatorAnimations();
+        }
+    }
+
+    /**
+     * 根据是否附加到窗口、窗口是否可见及列表是否被祖先控件裁剪，暂停或恢复正在刷新及加载的指示器动画.
+     * 顶部及底部信息栏滑出列表时会被移出窗口，其中的动画随之停止，无需在此处理
+     */
+    private void updateIndicatorAnimations() {
+        boolean active = mPull.getRefreshState() == REFRESHING
+                || mPull.getLoadMoreState() == REFRESHING;
+        if (!active && !mIndicatorAnimationPaused) {
+            return;
+        }
+        boolean paused = active && !(mAttachedToWindow && getWindowVisibility() == VISIBLE
+                && isShown() && getGlobalVisibleRect(mVisibleRect));
+        if (paused == mIndicatorAnimationPaused) {
+            return;
+        }
+        mIndicatorAnimationPaused = paused;
+        if (mIndicator != null) {
+            mIndicator.getView().setVisibility(paused ? INVISIBLE : VISIBLE);
+        }
+        if (mLoadMoreProgressView != null && mLoadMoreProgressView.getVisibility() != GONE) {
+            mLoadMoreProgressView.setVisibility(paused ? INVISIBLE : VISIBLE);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        switch (ev.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                // 新的触摸打断正在进行的回弹，直接停在最终位置
+                cancelSettle();
+                // 空闲时还没来得及创建指示器时在此创建，不放到拖动中
+                ensureIndicator();
+                mPull.onDown((int) ev.getY());
+                mDragVelocity.reset();
+                mDragVelocity.addSample(ev.getY(), ev.getEventTime());
+                break;
+            case MotionEvent.ACTION_MOVE:
+                // 批量事件中的历史采样只用于估算速度
+                for (int i = 0, size = ev.getHistorySize(); i < size; i++) {
+                    mDragVelocity.addSample(ev.getHistoricalY(i), ev.getHistoricalEventTime(i));
+                }
+                mDragVelocity.addSample(ev.getY(), ev.getEventTime());
+                updateFootBarWork();
+                // 界面在下一帧统一更新
+                int result = mPull.onMove((int) ev.getY(), isAtTop(), isFootBarWork,
+                        isInitRefresh, isInitLoadMore && mController.canLoadMore());
+                schedulePullResult(result);
+                if ((result & PullStateMachine.CONSUMED) != 0) {
+                    return true;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                // 先应用尚未更新的移动，再执行对应的操作
+                flushPullResult();
+                mDragVelocity.addSample(ev.getY(), ev.getEventTime());
+                mReleaseVelocity = mDragVelocity.getVelocity();
+                applyPullResult(mPull.onUp((int) ev.getY(), isInitRefresh,
+                        isInitLoadMore && isFootBarWork && mController.canLoadMore()));
+                mReleaseVelocity = 0;
+                isFootBarWork = false;
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                flushPullResult();
+                break;
+            default:
+                break;
+        }
+        return super.onTouchEvent(ev);
+    }
+
+    /**
+     * 处理列表滑动
+     */
+    private void handleScroll() {
+        updateFootBarWork();
+        if (mWrapper == null || getChildCount() == 0) {
+            return;
+        }
+        int first = getChildPosition(getChildAt(0));
+        mController.onScroll(first, getChildCount(), mWrapper.getItemCount(),
+                mWrapper.getFooterCount(), mScrollState != SCROLL_STATE_IDLE,
+                SystemClock.uptimeMillis());
+    }
+
+    /**
+     * @return 列表是否已滑动到顶部
+     */
+    private boolean isAtTop() {
+        if (getChildCount() == 0) {
+            return true;
+        }
+        View first = getChildAt(0);
+        return getChildPosition(first) == 0 && first.getTop() >= getPaddingTop();
+    }
+
+    /**
+     * 根据最后一个子控件判断底部信息栏是否可见
+     */
+    private void updateFootBarWork() {
+        int childCount = getChildCount();
+        if (mWrapper == null || childCount == 0) {
+            isFootBarWork = false;
+            return;
+        }
+        isFootBarWork = getChildPosition(getChildAt(childCount - 1))
+                == mWrapper.getItemCount() - 1;
+    }
+
+    /**
+     * @return 内容是否超过一屏，不足一屏时不显示没有更多数据的提示
+     */
+    private boolean isContentOverflow() {
+        return mWrapper != null && mWrapper.getItemCount() > getChildCount();
+    }
+
+    /**
+     * 根据手势状态机的结果更新界面
+     *
+     * @param result 手势状态机返回的结果标志
+     */
+    private void applyPullResult(int result) {
+        if (result == 0) {
+            return;
+        }
+        if ((result & PullStateMachine.HEADER_STATE_CHANGED) != 0) {
+            changeHeaderViewByState();
+        }
+        if ((result & PullStateMachine.FOOTER_STATE_CHANGED) != 0) {
+            changeFooterViewByState();
+        }
+        // 拖动只在列表处于顶部或底部时开始，通过绘制偏移展示，无需定位列表
+        if ((result & PullStateMachine.HEADER_MOVED) != 0) {
+            /* 展示下拉动作 */
+            int offset = mPull.getHeaderOffset();
+            if (mIndicator != null && mHeaderHeight > 0) {
+                mIndicator.onPull(offset / (float) mHeaderHeight);
+            }
+            setDragOffset(offset);
+        }
+        if ((result & PullStateMachine.FOOTER_MOVED) != 0) {
+            /* 展示上拉动作 */
+            setDragOffset(-mPull.getFooterOffset());
+        }
+        if ((result & PullStateMachine.START_REFRESH) != 0) {
+            mController.startRefresh();
+        }
+        if ((result & PullStateMachine.START_LOAD_MORE) != 0) {
+            mController.startLoadMore(SystemClock.uptimeMillis());
+        }
+    }
+
+    /**
+     * 合并手势结果，在下一帧统一应用到界面
+     *
+     * @param result 结果标志
+     */
+    private void schedulePullResult(int result) {
+        result &= ~PullStateMachine.CONSUMED;
+        if (result == 0) {
+            return;
+        }
+        // 状态及拖动距离在应用时读取最新值，合并标志即可
+        mPendingPullResult |= result;
+        if (!mPullUpdatePending) {
+            mPullUpdatePending = true;
+            ViewCompat.postOnAnimation(this, mPullUpdateRunnable);
+        }
+    }
+
+    /**
+     * 立即应用尚未更新的手势结果
+     */
+    private void flushPullResult() {
+        if (mPullUpdatePending) {
+            removeCallbacks(mPullUpdateRunnable);
+            mPullUpdateRunnable.run();
+        }
+    }
+
+    /**
+     * 设置顶部信息栏的Padding，并通过绘制偏移从当前的展示位置回弹到新的位置
+     *
+     * @param paddingTop 顶部信息栏新的Padding
+     */
+    private void setHeaderPaddingAndSettle(int paddingTop) {
+        // 列表内容当前被顶部信息栏下推的距离
+        int shift = mRefreshView.getPaddingTop() + mHeaderHeight + mDragOffset;
+        mRefreshView.setPadding(0, paddingTop, 0, 0);
+        if (getChildCount() > 0 && getChildPosition(getChildAt(0)) == 0) {
+            settle(shift - (paddingTop + mHeaderHeight));
+        } else {
+            settle(0);
+        }
+    }
+
+    /**
+     * 通过绘制偏移从上拉时的展示位置回弹到底部信息栏原本的位置
+     */
+    private void settleFooter() {
+        settle(isFootBarWork ? mDragOffset : 0);
+    }
+
+    /**
+     * 以绘制偏移从指定位置回弹到0. 动画过程中只重绘，不重新布局
+     *
+     * @param offset 起始的绘制偏移
+     */
+    private void settle(int offset) {
+        cancelSettle();
+        if (offset == 0) {
+            setDragOffset(0);
+            return;
+        }
+        if (mSettleAnimator == null) {
+            mSettleAnimator = ValueAnimator.ofFloat(0, 1);
+            mSettleAnimator.setInterpolator(new DecelerateInterpolator());
+            mSettleAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    // 按进度计算偏移，避免每帧对动画值装箱拆箱
+                    float fraction;
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+                        fraction = animation.getAnimatedFraction();
+                    } else {
+                        fraction = (Float) animation.getAnimatedValue();
+                    }
+                    setDragOffset((int) (mSettleStartOffset * (1 - fraction)));
+                }
+            });
+            mSettleAnimator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    setDragOffset(0);
+                }
+            });
+        }
+        // 减速插值的初速度为平均速度的2倍，按松手速度推算时长
+        float minVelocity = RefreshListView.MIN_SETTLE_VELOCITY
+                * getResources().getDisplayMetrics().density;
+        float velocity = Math.max(Math.abs(mReleaseVelocity), minVelocity);
+        long duration = (long) (2000 * Math.abs(offset) / velocity);
+        duration = Math.max(RefreshListView.MIN_SETTLE_DURATION,
+                Math.min(RefreshListView.MAX_SETTLE_DURATION, duration));
+        setDragOffset(offset);
+        mSettleStartOffset = offset;
+        mSettleAnimator.setDuration(duration);
+        mSettleAnimator.start();
+    }
+
+    /**
+     * 结束正在进行的回弹，直接停在最终位置
+     */
+    private void cancelSettle() {
+        if (mSettleAnimator != null && mSettleAnimator.isRunning()) {
+            // cancel后会回调onAnimationEnd
+            mSettleAnimator.cancel();
+        }
+    }
+
+    /**
+     * 设置拖动时内容的绘制偏移
+     *
+     * @param offset 绘制偏移
+     */
+    private void setDragOffset(int offset) {
+        if (mDragOffset != offset) {
+            mDragOffset = offset;
+            invalidate();
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        // 在draw中平移，使条目装饰与条目一起移动
+        if (mDragOffset == 0) {
+            super.draw(canvas);
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.translate(0, mDragOffset);
+        super.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 在下一帧调用加载完毕后的处理方法，保证数据已经展示在界面
+     */
+    private void scheduleDataChanged() {
+        if (!mDataChangedPending) {
+            mDataChangedPending = true;
+            ViewCompat.postOnAnimation(this, mDataChangedRunnable);
+        }
+    }
+
+    /**
+     * 根据状态改变顶端的提示信息
+     */
+    private void changeHeaderViewByState() {
+        if (!isInitRefresh) {
+            return;
+        }
+        if (mPull.getRefreshState() == DONE && mIndicator == null) {
+            // 指示器尚未创建，只需保持隐藏
+            setHeaderPaddingAndSettle(-1 * mHeaderHeight);
+            return;
+        }
+        ensureIndicator();
+        mIndicator.onStateChanged(mPull.getRefreshState());
+        switch (mPull.getRefreshState()) {
+            case PULL_TO_REFRESH:
+                mPull.setBack(false);
+                break;
+            case REFRESHING:
+                setHeaderPaddingAndSettle(0);
+                break;
+            case DONE:
+                setHeaderPaddingAndSettle(-1 * mHeaderHeight);
+                break;
+            default:
+                break;
+        }
+        updateIndicatorAnimations();
+    }
+
+    /**
+     * 根据状态更改底部的提示信息
+     */
+    private void changeFooterViewByState() {
+        if (!mController.canLoadMore() || !isInitLoadMore) {
+            return;
+        }
+        switch (mPull.getLoadMoreState()) {
+            case RAISE_TO_REFRESH:
+            case RELEASE_RAISE_TO_REFRESH:
+                mLoadMoreTextView.setVisibility(VISIBLE);
+                setLoadMoreProgressVisible(false);
+                break;
+            case DONE:
+                settleFooter();
+                setLoadMoreText(mLoadMoreText);
+                mLoadMoreTextView.setVisibility(VISIBLE);
+                setLoadMoreProgressVisible(false);
+                break;
+            case LOAD_FAILED:
+                settleFooter();
+                setLoadMoreText(getResources().getText(R.string.load_more_failed));
+                mLoadMoreTextView.setVisibility(VISIBLE);
+                setLoadMoreProgressVisible(false);
+                break;
+            case REFRESHING:
+                settleFooter();
+                mLoadMoreTextView.setVisibility(GONE);
+                setLoadMoreProgressVisible(true);
+                break;
+            default:
+                break;
+        }
+        updateIndicatorAnimations();
+    }
+
+    /**
+     * 初始化下拉提示控件
+     */
+    private void initHeader() {
+        mRefreshView = View.inflate(getContext(), R.layout.refresh_listview_header_view, null);
+        mRefreshView.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        // 指示器尚未创建，顶部信息栏没有内容，使用默认的高度
+        mHeaderHeight = getResources().getDimensionPixelSize(R.dimen.refresh_listview_header_height);
+        mPull.setHeaderHeight(mHeaderHeight);
+        mRefreshView.setPadding(0, -1 * mHeaderHeight, 0, 0);
+        ((ViewGroup) mRefreshView).setClipChildren(false);
+    }
+
+    /**
+     * 初始化底部信息
+     */
+    private void initFooter() {
+        mLoadMoreView = View.inflate(getContext(), R.layout.refresh_listview_footer_view, null);
+        mLoadMoreView.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        mLoadMoreTextView = (TextView) mLoadMoreView.findViewById(R.id.footerMsg);
+        mLoadMoreText = mLoadMoreTextView.getText();
+        measureView(mLoadMoreView);
+        mFooterHeight = mLoadMoreView.getMeasuredHeight();
+        mPull.setFooterHeight(mFooterHeight);
+        mLoadMoreView.setOnClickListener(mFootLoadMoreListener);
+    }
+
+    /**
+     * 创建默认的指示器. 附加到窗口后在主线程空闲时创建，此前按下或触发刷新时立即创建，
+     * 不会在拖动过程中创建
+     */
+    private void ensureIndicator() {
+        if (mIndicator != null || !isInitRefresh) {
+            return;
+        }
+        RefreshIndicatorView indicator = new RefreshIndicatorView(getContext());
+        indicator.setArrowAnimationEnabled(mArrowAnimationEnabled);
+        mIndicator = indicator;
+        attachIndicator();
+    }
+
+    /**
+     * 将指示器的控件添加到顶部信息栏中，并同步当前的状态
+     */
+    private void attachIndicator() {
+        View view = mIndicator.getView();
+        view.setVisibility(mIndicatorAnimationPaused ? INVISIBLE : VISIBLE);
+        ((ViewGroup) mRefreshView).addView(view,
+                new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                        ViewGroup.LayoutParams.MATCH_PARENT));
+        updateIndicatorTime();
+    }
+
+    private void updateIndicatorTime() {
+        if (mIndicator != null) {
+            mIndicator.setLastUpdateTime(mUpdateTimeEnabled ? mRefreshTimeText : null);
+        }
+    }
+
+    /**
+     * 设置底部提示信息，文字未变化时不重新设置，避免重新布局
+     *
+     * @param text 提示信息
+     */
+    private void setLoadMoreText(CharSequence text) {
+        if (text != null && !text.equals(mLoadMoreTextView.getText())) {
+            mLoadMoreTextView.setText(text);
+        }
+    }
+
+    /**
+     * 设置底部进度是否可见，首次可见时才加载
+     *
+     * @param visible 是否可见
+     */
+    private void setLoadMoreProgressVisible(boolean visible) {
+        if (mLoadMoreProgressView == null) {
+            if (!visible) {
+                return;
+            }
+            mLoadMoreProgressView = ((ViewStub) mLoadMoreView
+                    .findViewById(R.id.footerProgressStub)).inflate();
+        }
+        if (!visible) {
+            mLoadMoreProgressView.setVisibility(GONE);
+        } else {
+            mLoadMoreProgressView.setVisibility(mIndicatorAnimationPaused ? INVISIBLE : VISIBLE);
+        }
+    }
+
+    /**
+     * 设置没有更多数据的提示是否可见，首次可见时才加载
+     *
+     * @param visible 是否可见
+     */
+    private void setNoDataVisible(boolean visible) {
+        if (mNoDataTextView == null) {
+            if (!visible) {
+                return;
+            }
+            mNoDataTextView = (TextView) ((ViewStub) mLoadMoreView
+                    .findViewById(R.id.no_data_msg_stub)).inflate();
+            if (mNoDataMsg != null) {
+                mNoDataTextView.setText(mNoDataMsg);
+            }
+        }
+        mNoDataTextView.setVisibility(visible ? VISIBLE : GONE);
+    }
+
+    /**
+     * 以不限制高度的方式测量控件，得到其内容的高度
+     *
+     * @param view 需要计算的view控件
+     */
+    private void measureView(View view) {
+        int widthSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        int heightSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        view.measure(widthSpec, heightSpec);
+    }
+
+    /**
+     * 底部提示栏监听事件
+     */
+    private final OnClickListener mFootLoadMoreListener = new OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            // 触发上拉加载
+            if (mController.canLoadMore()) {
+                mController.startLoadMore(SystemClock.uptimeMillis());
+            }
+        }
+    };
+}
@@ -0,0 +1,84 @@
+package com.githang.refreshlistview;
+
+import com.githang.refreshlistview.core.LoadToken;
+
+/**
+ * {@link RefreshListView}及{@link RefreshRecyclerView}共有的刷新及加载接口.
+ *
+ * 数据代码通过{@link RefreshLoadListener}及本接口结束刷新或加载，可在两种控件间直接切换.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+public interface Refreshable {
+
+    /**
+     * 刷新完毕，结束当前的下拉刷新
+     */
+    void onRefreshComplete();
+
+    /**
+     * 结束指定凭证的下拉刷新
+     *
+     * @param ticket 刷新的凭证
+     * @return 凭证是否有效
+     */
+    boolean onRefreshComplete(int ticket);
+
+    /**
+     * 加载完毕，结束当前的上拉加载
+     */
+    void onLoadMoreComplete();
+
+    /**
+     * 结束指定凭证的上拉加载
+     *
+     * @param ticket 加载的凭证
+     * @return 凭证是否有效
+     */
+    boolean onLoadMoreComplete(int ticket);
+
+    /**
+     * 当前的上拉加载失败
+     */
+    void onLoadMoreFailed();
+
+    /**
+     * 指定凭证的上拉加载失败
+     *
+     * @param ticket 加载的凭证
+     * @return 凭证是否有效
+     */
+    boolean onLoadMoreFailed(int ticket);
+
+    /**
+     * @return 正在进行的下拉刷新的凭证，没有时为{@link RefreshListView#NO_TICKET}
+     */
+    int getRefreshTicket();
+
+    /**
+     * @return 正在进行的上拉加载的凭证，没有时为{@link RefreshListView#NO_TICKET}
+     */
+    int getLoadMoreTicket();
+
+    /**
+     * @return 正在进行的下拉刷新的取消标记，没有时为null
+     */
+    LoadToken getRefreshToken();
+
+    /**
+     * @return 正在进行的上拉加载的取消标记，没有时为null
+     */
+    LoadToken getLoadMoreToken();
+
+    /**
+     * 触发下拉刷新
+     */
+    void triggerRefresh();
+
+    /**
+     * 设置是否已没有更多数据
+     *
+     * @param noMoreData 是否已没有更多数据
+     */
+    void setNoMoreData(boolean noMoreData);
+}
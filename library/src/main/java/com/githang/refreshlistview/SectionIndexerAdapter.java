@@ -0,0 +1,123 @@
+package com.githang.refreshlistview;
+
+import android.database.DataSetObservable;
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ListAdapter;
+import android.widget.SectionIndexer;
+import android.widget.WrapperListAdapter;
+
+/**
+ * 为{@link RefreshListView}的适配器加上{@link AsyncSectionIndexer}，使快速滑动可以获取分组.
+ *
+ * 数据变化的监听直接注册到被包装的适配器，通知顺序与不包装时相同. 分组标题变化时只通知列表，
+ * 使快速滑动重新获取分组，不会通知到适配器上的其他监听.
+ *
+ * @author 黄浩杭 (msdx.android[at]qq[dot]com)
+ */
+class SectionIndexerAdapter implements WrapperListAdapter, SectionIndexer {
+
+    private final ListAdapter mAdapter;
+
+    private final AsyncSectionIndexer<?> mIndexer;
+
+    /**
+     * 分组变化的通知，只包含列表注册的监听
+     */
+    private final DataSetObservable mSectionObservable = new DataSetObservable();
+
+    SectionIndexerAdapter(ListAdapter adapter, AsyncSectionIndexer<?> indexer) {
+        mAdapter = adapter;
+        mIndexer = indexer;
+    }
+
+    /**
+     * 通知列表分组标题已变化
+     */
+    void notifySectionsChanged() {
+        mSectionObservable.notifyChanged();
+    }
+
+    @Override
+    public ListAdapter getWrappedAdapter() {
+        return mAdapter;
+    }
+
+    @Override
+    public Object[] getSections() {
+        return mIndexer.getSections();
+    }
+
+    @Override
+    public int getPositionForSection(int section) {
+        return mIndexer.getPositionForSection(section);
+    }
+
+    @Override
+    public int getSectionForPosition(int position) {
+        return mIndexer.getSectionForPosition(position);
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return mAdapter.areAllItemsEnabled();
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return mAdapter.isEnabled(position);
+    }
+
+    @Override
+    public void registerDataSetObserver(DataSetObserver observer) {
+        mAdapter.registerDataSetObserver(observer);
+        mSectionObservable.registerObserver(observer);
+    }
+
+    @Override
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+        mAdapter.unregisterDataSetObserver(observer);
+        mSectionObservable.unregisterObserver(observer);
+    }
+
+    @Override
+    public int getCount() {
+        return mAdapter.getCount();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return mAdapter.getItem(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mAdapter.getItemId(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return mAdapter.hasStableIds();
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        return mAdapter.getView(position, convertView, parent);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mAdapter.getItemViewType(position);
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return mAdapter.getViewTypeCount();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mAdapter.isEmpty();
+    }
+}